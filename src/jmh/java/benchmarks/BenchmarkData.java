@@ -0,0 +1,26 @@
+package benchmarks;
+
+import java.util.Random;
+
+/**
+ * Deterministic input data shared by the benchmarks.
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {}
+
+    static double[][] randomMatrix(int rows, int cols, long seed) {
+        Random random = new Random(seed);
+        double[][] matrix = new double[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                matrix[i][j] = random.nextDouble() * 2 - 1;
+            }
+        }
+        return matrix;
+    }
+
+    static double[] randomVector(int length, long seed) {
+        return randomMatrix(1, length, seed)[0];
+    }
+}
@@ -0,0 +1,108 @@
+package benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import parser.ComputationNode;
+import scheduling.DispatchMode;
+import spl.lae.LinearAlgebraEngine;
+
+/**
+ * End-to-end LinearAlgebraEngine.run for single operators and for a whole expression.
+ * A fresh engine and tree are built before every invocation, outside the measured time,
+ * because run() resolves the tree in place and shuts the executor down.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class EngineBenchmark {
+
+    @Param({ "128", "512" })
+    public int size;
+
+    @Param({ "1", "4", "8" })
+    public int threads;
+
+    @Param({ "HANDOFF", "WORK_STEALING" })
+    public DispatchMode dispatchMode;
+
+    private double[][] a;
+    private double[][] b;
+    private double[][] c;
+    private LinearAlgebraEngine engine;
+    private ComputationNode addTree;
+    private ComputationNode negateTree;
+    private ComputationNode transposeTree;
+    private ComputationNode multiplyTree;
+    private ComputationNode expressionTree;
+
+    @Setup(Level.Trial)
+    public void createData() {
+        a = BenchmarkData.randomMatrix(size, size, 6);
+        b = BenchmarkData.randomMatrix(size, size, 7);
+        c = BenchmarkData.randomMatrix(size, size, 8);
+    }
+
+    @Setup(Level.Invocation)
+    public void createEngine() {
+        engine = new LinearAlgebraEngine(threads, dispatchMode);
+        addTree = new ComputationNode("+", List.of(leaf(a), leaf(b)));
+        negateTree = new ComputationNode("-", List.of(leaf(a)));
+        transposeTree = new ComputationNode("T", List.of(leaf(a)));
+        multiplyTree = new ComputationNode("*", List.of(leaf(a), leaf(b)));
+        // (A + T(B)) * -C, the shape of example.json
+        ComputationNode sum = new ComputationNode("+", List.of(leaf(a),
+                new ComputationNode("T", List.of(leaf(b)))));
+        ComputationNode negated = new ComputationNode("-", List.of(leaf(c)));
+        expressionTree = new ComputationNode("*", List.of(sum, negated));
+    }
+
+    private static ComputationNode leaf(double[][] matrix) {
+        double[][] copy = new double[matrix.length][];
+        for (int i = 0; i < matrix.length; i++) {
+            copy[i] = matrix[i].clone();
+        }
+        return new ComputationNode(copy);
+    }
+
+    @Benchmark
+    public ComputationNode add() {
+        return engine.run(addTree);
+    }
+
+    @Benchmark
+    public ComputationNode negate() {
+        return engine.run(negateTree);
+    }
+
+    @Benchmark
+    public ComputationNode transpose() {
+        return engine.run(transposeTree);
+    }
+
+    @Benchmark
+    public ComputationNode multiply() {
+        return engine.run(multiplyTree);
+    }
+
+    @Benchmark
+    public ComputationNode expression() {
+        return engine.run(expressionTree);
+    }
+}
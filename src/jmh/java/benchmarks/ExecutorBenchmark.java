@@ -0,0 +1,68 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import scheduling.DispatchMode;
+import scheduling.TiredExecutor;
+
+/**
+ * Pure dispatch overhead of TiredExecutor: batches of tasks that do almost nothing.
+ * Divide the score by batchSize for the cost of one task round trip.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class ExecutorBenchmark {
+
+    @Param({ "1", "4", "8" })
+    public int threads;
+
+    @Param({ "HANDOFF", "WORK_STEALING" })
+    public DispatchMode dispatchMode;
+
+    @Param({ "1", "64", "1024" })
+    public int batchSize;
+
+    private TiredExecutor executor;
+    private List<Runnable> tasks;
+    private final long[] sink = new long[1];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        executor = new TiredExecutor(threads, dispatchMode);
+        tasks = new ArrayList<>();
+        for (int i = 0; i < batchSize; i++) {
+            tasks.add(() -> sink[0]++);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public long submitAll() {
+        executor.submitAll(tasks);
+        return sink[0];
+    }
+}
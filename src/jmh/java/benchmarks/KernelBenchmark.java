@@ -0,0 +1,68 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import memory.Kernels;
+import memory.VectorKernels;
+
+/**
+ * Scalar against SIMD kernels on raw arrays, without the locking around them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class KernelBenchmark {
+
+    @Param({ "scalar", "simd" })
+    public String kernel;
+
+    @Param({ "256", "4096" })
+    public int size;
+
+    private VectorKernels kernels;
+    private double[] x;
+    private double[] y;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        kernels = kernel.equals("simd") ? Kernels.simd() : Kernels.scalar();
+        if (kernels == null) {
+            throw new IllegalStateException("Vector API not available in the benchmark JVM.");
+        }
+        x = BenchmarkData.randomVector(size, 9);
+        y = BenchmarkData.randomVector(size, 10);
+    }
+
+    @Benchmark
+    public double dot() {
+        return kernels.dot(x, 0, y, 0, size);
+    }
+
+    @Benchmark
+    public double[] axpy() {
+        kernels.axpy(1e-9, x, 0, y, 0, size);
+        return y;
+    }
+
+    @Benchmark
+    public double[] add() {
+        kernels.add(y, 0, x, 0, size);
+        return y;
+    }
+}
@@ -0,0 +1,72 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import memory.MatrixStorage;
+import memory.SharedMatrix;
+
+/**
+ * Loading and exporting whole matrices, for both storage backends and for frozen matrices.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class SharedMatrixBenchmark {
+
+    @Param({ "256", "1024" })
+    public int size;
+
+    @Param({ "VECTORS", "CONTIGUOUS" })
+    public MatrixStorage storage;
+
+    @Param({ "false", "true" })
+    public boolean frozen;
+
+    private double[][] data;
+    private SharedMatrix matrix;
+    private double[] flatBuffer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = BenchmarkData.randomMatrix(size, size, 5);
+        matrix = new SharedMatrix(data, storage);
+        if (frozen) {
+            matrix.freeze();
+        }
+        flatBuffer = new double[size * size];
+    }
+
+    @Benchmark
+    public SharedMatrix loadRowMajor() {
+        SharedMatrix loaded = new SharedMatrix(storage);
+        loaded.loadRowMajor(data);
+        return loaded;
+    }
+
+    @Benchmark
+    public double[][] readRowMajor() {
+        return matrix.readRowMajor();
+    }
+
+    @Benchmark
+    public double[] copyInto() {
+        matrix.copyInto(flatBuffer, 0);
+        return flatBuffer;
+    }
+}
@@ -0,0 +1,75 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import memory.SharedMatrix;
+import memory.SharedVector;
+import memory.VectorOrientation;
+
+/**
+ * Single-threaded cost of the SharedVector kernels, including their locking.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class SharedVectorBenchmark {
+
+    @Param({ "256", "1024", "4096" })
+    public int size;
+
+    private SharedVector row;
+    private SharedVector otherRow;
+    private SharedVector column;
+    private SharedMatrix squareMatrix;
+    private double[] rowData;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        rowData = BenchmarkData.randomVector(size, 1);
+        row = new SharedVector(rowData.clone(), VectorOrientation.ROW_MAJOR);
+        otherRow = new SharedVector(BenchmarkData.randomVector(size, 2), VectorOrientation.ROW_MAJOR);
+        column = new SharedVector(BenchmarkData.randomVector(size, 3), VectorOrientation.COLUMN_MAJOR);
+        squareMatrix = new SharedMatrix(BenchmarkData.randomMatrix(size, size, 4));
+    }
+
+    @Benchmark
+    public SharedVector add() {
+        row.add(otherRow);
+        return row;
+    }
+
+    @Benchmark
+    public SharedVector negate() {
+        row.negate();
+        return row;
+    }
+
+    @Benchmark
+    public double dot() {
+        return row.dot(column);
+    }
+
+    @Benchmark
+    public SharedVector vecMatMul() {
+        // vecMatMul replaces the vector's data, so start every call from the same input
+        SharedVector vector = new SharedVector(rowData.clone(), VectorOrientation.ROW_MAJOR);
+        vector.vecMatMul(squareMatrix);
+        return vector;
+    }
+}
@@ -0,0 +1,102 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import memory.MatrixPool;
+import memory.StrassenMultiplier;
+import memory.TiledMultiplier;
+import scheduling.DispatchMode;
+import scheduling.TiredExecutor;
+
+/**
+ * Strassen against the tiled multiplier on large square products, for a range of leaf sizes and depths.
+ * Before measuring, every configuration is checked against the tiled product, so a fast but wrong
+ * setting fails the trial instead of reporting a score.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules=jdk.incubator.vector", "-Xmx8g" })
+public class StrassenBenchmark {
+
+    @Param({ "1024", "2048" })
+    public int size;
+
+    @Param({ "128", "256" })
+    public int leafSize;
+
+    @Param({ "1", "2", "3" })
+    public int depth;
+
+    @Param({ "8" })
+    public int threads;
+
+    private double[][] a;
+    private double[][] b;
+    private double[][] target;
+    private TiredExecutor executor;
+    private StrassenMultiplier strassen;
+    private final MatrixPool pool = new MatrixPool();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        a = BenchmarkData.randomMatrix(size, size, 9);
+        b = BenchmarkData.randomMatrix(size, size, 10);
+        target = new double[size][size];
+        executor = new TiredExecutor(threads, DispatchMode.HANDOFF);
+        strassen = new StrassenMultiplier(size, leafSize, depth);
+
+        double[][] expected = tiled();
+        strassen();
+        // Entries are sums of size products of values in [-1, 1]
+        double tolerance = 1e-12 * size * (1 << depth);
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                if (Math.abs(expected[i][j] - target[i][j]) > tolerance) {
+                    throw new IllegalStateException("Strassen product differs from the tiled product at ("
+                            + i + ", " + j + "): " + target[i][j] + " instead of " + expected[i][j]);
+                }
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public double[][] tiled() {
+        int blockSize = Math.max(1, Math.min(TiledMultiplier.DEFAULT_BLOCK_SIZE, (size + threads - 1) / threads));
+        double[][] result = new double[size][size];
+        TiledMultiplier multiplier = new TiledMultiplier(a, b, result, blockSize, pool);
+        try {
+            executor.submitAll(multiplier.createBlockTasks());
+        } finally {
+            multiplier.release();
+        }
+        return result;
+    }
+
+    @Benchmark
+    public double[][] strassen() {
+        strassen.multiply(a, b, target, threads, executor::submitAll);
+        return target;
+    }
+}
@@ -0,0 +1,173 @@
+package memory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A lazily evaluated sum of elementwise terms, each one an operand matrix that may be negated
+ * and/or transposed. Any chain of ADD, NEGATE and TRANSPOSE over plain matrices reduces to this form,
+ * since -(X + Y) = -X + -Y and (X + Y)^T = X^T + Y^T.
+ *
+ * Nothing is computed until the block tasks run. Each task makes a single pass over its block
+ * of the result and of every operand, so a chain like -(A + B + C) costs one pass instead of one per operator,
+ * and only the final result is ever allocated.
+ * The operand arrays are only read, so tasks can share them without locks; every task writes its own block.
+ */
+public class ElementwiseExpression {
+
+    private static final int TILE_SIZE = 32; // Columns read together from a transposed operand
+
+    private static class Term {
+        final double[][] matrix;
+        final boolean negated;
+        final boolean transposed;
+
+        Term(double[][] matrix, boolean negated, boolean transposed) {
+            this.matrix = matrix;
+            this.negated = negated;
+            this.transposed = transposed;
+        }
+    }
+
+    private final List<Term> terms = new ArrayList<>();
+    private int rows = -1;
+    private int cols = -1;
+    private double[][] result;
+
+    public ElementwiseExpression() {}
+
+    /**
+     * Adds matrix (row-major), negated and/or transposed, to the expression.
+     * Every term must have the same shape once transposed.
+     */
+    public void addTerm(double[][] matrix, boolean negated, boolean transposed) {
+        if (result != null) {
+            throw new IllegalStateException("Cannot add terms after tasks were created.");
+        }
+        if (matrix == null || matrix.length == 0) {
+            throw new IllegalArgumentException("Cannot use an empty matrix in an elementwise expression.");
+        }
+        for (double[] row : matrix) {
+            if (row.length != matrix[0].length) {
+                throw new IllegalArgumentException("All rows of a matrix must have the same length.");
+            }
+        }
+        int termRows = transposed ? matrix[0].length : matrix.length;
+        int termCols = transposed ? matrix.length : matrix[0].length;
+        if (rows == -1) {
+            rows = termRows;
+            cols = termCols;
+        } else if (rows != termRows || cols != termCols) {
+            throw new IllegalArgumentException("Matrices must have the same dimensions to add.");
+        }
+        terms.add(new Term(matrix, negated, transposed));
+    }
+
+    public int termCount() {
+        return terms.size();
+    }
+
+    /**
+     * Allocates the result and returns one task per block of blockRows result rows.
+     * The tasks may run in any order and in parallel.
+     */
+    public List<Runnable> createRowBlockTasks(int blockRows) {
+        if (terms.isEmpty()) {
+            throw new IllegalStateException("Expression has no terms.");
+        }
+        return createBlockTasks(blockRows, cols);
+    }
+
+    /**
+     * Like createRowBlockTasks, but blocks may also cover only blockCols columns of their rows,
+     * so a matrix with few, long rows can still be spread over many tasks.
+     */
+    public List<Runnable> createBlockTasks(int blockRows, int blockCols) {
+        return createBlockTasks(blockRows, blockCols, null);
+    }
+
+    /**
+     * Same as createBlockTasks(blockRows, blockCols), writing the result into target (rows x cols)
+     * instead of a new matrix. Every element of target is overwritten, so it may hold anything beforehand,
+     * e.g. a recycled buffer from a MatrixPool. A null target allocates a new matrix.
+     */
+    public List<Runnable> createBlockTasks(int blockRows, int blockCols, double[][] target) {
+        if (blockRows <= 0 || blockCols <= 0) {
+            throw new IllegalArgumentException("Block size must be positive.");
+        }
+        if (terms.isEmpty()) {
+            throw new IllegalStateException("Expression has no terms.");
+        }
+        if (target != null && (target.length != rows || target[0].length != cols)) {
+            throw new IllegalArgumentException("Target matrix does not have the shape of the result.");
+        }
+        result = target != null ? target : new double[rows][cols];
+        List<Runnable> tasks = new ArrayList<>();
+        for (int rowStart = 0; rowStart < rows; rowStart += blockRows) {
+            for (int colStart = 0; colStart < cols; colStart += blockCols) {
+                final int r0 = rowStart;
+                final int r1 = Math.min(rowStart + blockRows, rows);
+                final int c0 = colStart;
+                final int c1 = Math.min(colStart + blockCols, cols);
+                tasks.add(() -> evaluateBlock(r0, r1, c0, c1));
+            }
+        }
+        return tasks;
+    }
+
+    /*
+     * The first term is written, the rest are accumulated, so the result needs no separate clearing pass.
+     * Transposed terms are read in tiles of TILE_SIZE columns so the operand rows they touch stay in cache.
+     */
+    private void evaluateBlock(int rowStart, int rowEnd, int colStart, int colEnd) {
+        for (int t = 0; t < terms.size(); t++) {
+            Term term = terms.get(t);
+            boolean first = t == 0;
+            double sign = term.negated ? -1 : 1;
+            if (!term.transposed) {
+                for (int i = rowStart; i < rowEnd; i++) {
+                    double[] source = term.matrix[i];
+                    double[] target = result[i];
+                    if (first) {
+                        for (int j = colStart; j < colEnd; j++) {
+                            target[j] = sign * source[j];
+                        }
+                    } else {
+                        for (int j = colStart; j < colEnd; j++) {
+                            target[j] += sign * source[j];
+                        }
+                    }
+                }
+            } else {
+                for (int tileStart = colStart; tileStart < colEnd; tileStart += TILE_SIZE) {
+                    int tileEnd = Math.min(tileStart + TILE_SIZE, colEnd);
+                    for (int i = rowStart; i < rowEnd; i++) {
+                        double[] target = result[i];
+                        for (int j = tileStart; j < tileEnd; j++) {
+                            double value = sign * term.matrix[j][i];
+                            target[j] = first ? value : target[j] + value;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the materialized result. Only complete once every row block task has finished.
+     */
+    public double[][] getResult() {
+        if (result == null) {
+            throw new IllegalStateException("Expression has not been evaluated.");
+        }
+        return result;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return cols;
+    }
+}
@@ -0,0 +1,62 @@
+package memory;
+
+/**
+ * Chooses the VectorKernels implementation once per JVM.
+ *
+ * The system property lae.kernels selects it: "scalar", "simd" or "auto" (the default).
+ * "auto" uses SimdKernels when the jdk.incubator.vector module is available and ScalarKernels otherwise;
+ * "simd" falls back to scalar the same way, with a warning. Unknown values are treated as "auto".
+ */
+public final class Kernels {
+
+    public static final String PROPERTY = "lae.kernels";
+
+    private static final VectorKernels SCALAR = new ScalarKernels();
+    private static final VectorKernels SIMD = loadSimd();
+    private static final VectorKernels SELECTED = select(System.getProperty(PROPERTY, "auto"));
+
+    private Kernels() {}
+
+    public static VectorKernels get() {
+        return SELECTED;
+    }
+
+    public static VectorKernels scalar() {
+        return SCALAR;
+    }
+
+    /**
+     * Returns the SIMD kernels, or null if the Vector API is not available in this JVM.
+     */
+    public static VectorKernels simd() {
+        return SIMD;
+    }
+
+    // Loaded by name so that a missing module surfaces here, as a LinkageError, and nowhere else
+    private static VectorKernels loadSimd() {
+        try {
+            return (VectorKernels) Class.forName("memory.SimdKernels").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    private static VectorKernels select(String choice) {
+        switch (choice) {
+            case "scalar":
+                return SCALAR;
+            case "simd":
+                if (SIMD == null) {
+                    System.err.println("Warning: " + PROPERTY + "=simd, but the Vector API is not available "
+                            + "(run with --add-modules jdk.incubator.vector); using scalar kernels.");
+                    return SCALAR;
+                }
+                return SIMD;
+            case "auto":
+                return SIMD != null ? SIMD : SCALAR;
+            default:
+                System.err.println("Warning: unknown " + PROPERTY + " value '" + choice + "'; using auto.");
+                return SIMD != null ? SIMD : SCALAR;
+        }
+    }
+}
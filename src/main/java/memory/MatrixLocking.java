@@ -0,0 +1,13 @@
+package memory;
+/**
+ * How a SharedMatrix guards its vectors.
+ * PER_VECTOR gives every SharedVector its own ReentrantReadWriteLock, so reading the whole matrix
+ * takes one lock per vector.
+ * STRIPED maps the vectors onto a fixed set of StampedLocks shared by the matrix. Single-vector operations
+ * lock one stripe, while whole-matrix reads validate every stripe optimistically and only lock them
+ * (once each) if a writer got in the way, so their lock traffic does not grow with the matrix.
+ */
+public enum MatrixLocking {
+    PER_VECTOR,
+    STRIPED
+}
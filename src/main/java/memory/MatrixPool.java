@@ -0,0 +1,140 @@
+package memory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Recycles matrix buffers between evaluation steps, so long expressions stop allocating
+ * a fresh result (and a fresh packing buffer) for every step.
+ *
+ * Row-major matrices are pooled by shape, flat arrays by length. Acquired buffers have unspecified
+ * contents: every user here overwrites its whole buffer before reading it. The pool holds at most
+ * maxElements doubles; buffers released beyond that are left to the garbage collector.
+ *
+ * Releasing transfers ownership to the pool: the caller must not touch the buffer afterwards,
+ * and must release it only once, since the pool hands it out again as it is.
+ * All methods are thread-safe and lock-free.
+ */
+public class MatrixPool {
+
+    public static final long DEFAULT_MAX_ELEMENTS = 1L << 22; // 32 MB of doubles
+
+    private final long maxElements;
+    private final Map<Long, ConcurrentLinkedDeque<double[][]>> matrices = new ConcurrentHashMap<>();
+    private final Map<Integer, ConcurrentLinkedDeque<double[]>> arrays = new ConcurrentHashMap<>();
+    private final AtomicLong pooledElements = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public MatrixPool() {
+        this(DEFAULT_MAX_ELEMENTS);
+    }
+
+    public MatrixPool(long maxElements) {
+        if (maxElements < 0) {
+            throw new IllegalArgumentException("Pool size cannot be negative.");
+        }
+        this.maxElements = maxElements;
+    }
+
+    private static long shapeKey(int rows, int cols) {
+        return ((long) rows << 32) | (cols & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Returns a rows x cols row-major matrix, recycled if one of that shape is pooled.
+     */
+    public double[][] acquire(int rows, int cols) {
+        if (rows <= 0 || cols < 0) {
+            throw new IllegalArgumentException("Invalid matrix dimensions: " + rows + "x" + cols);
+        }
+        ConcurrentLinkedDeque<double[][]> pooled = matrices.get(shapeKey(rows, cols));
+        double[][] matrix = pooled == null ? null : pooled.pollFirst();
+        if (matrix == null) {
+            misses.increment();
+            return new double[rows][cols];
+        }
+        hits.increment();
+        pooledElements.addAndGet(-(long) rows * cols);
+        return matrix;
+    }
+
+    public double[] acquireFlat(int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Invalid array length: " + length);
+        }
+        ConcurrentLinkedDeque<double[]> pooled = arrays.get(length);
+        double[] array = pooled == null ? null : pooled.pollFirst();
+        if (array == null) {
+            misses.increment();
+            return new double[length];
+        }
+        hits.increment();
+        pooledElements.addAndGet(-length);
+        return array;
+    }
+
+    /**
+     * Gives a matrix to the pool. Matrices with rows of different lengths are not pooled.
+     * Returns whether the matrix was kept.
+     */
+    public boolean release(double[][] matrix) {
+        if (matrix == null || matrix.length == 0 || matrix[0] == null) {
+            return false;
+        }
+        int cols = matrix[0].length;
+        for (double[] row : matrix) {
+            if (row == null || row.length != cols) {
+                return false;
+            }
+        }
+        if (!reserve((long) matrix.length * cols)) {
+            return false;
+        }
+        matrices.computeIfAbsent(shapeKey(matrix.length, cols), k -> new ConcurrentLinkedDeque<>()).addFirst(matrix);
+        return true;
+    }
+
+    public boolean releaseFlat(double[] array) {
+        if (array == null || !reserve(array.length)) {
+            return false;
+        }
+        arrays.computeIfAbsent(array.length, k -> new ConcurrentLinkedDeque<>()).addFirst(array);
+        return true;
+    }
+
+    // Claims room for elements more doubles, unless that would exceed maxElements
+    private boolean reserve(long elements) {
+        while (true) {
+            long current = pooledElements.get();
+            if (current + elements > maxElements) {
+                return false;
+            }
+            if (pooledElements.compareAndSet(current, current + elements)) {
+                return true;
+            }
+        }
+    }
+
+    public long getPooledElements() {
+        return pooledElements.get();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    // Drops every pooled buffer; buffers released at the same time may be dropped or kept
+    public void clear() {
+        matrices.clear();
+        arrays.clear();
+        pooledElements.set(0);
+    }
+}
@@ -0,0 +1,10 @@
+package memory;
+/**
+ * How a SharedMatrix keeps its elements in memory.
+ * VECTORS wraps every row (or column) as its own SharedVector over the caller's arrays.
+ * CONTIGUOUS copies all elements into one array, and every SharedVector is a view into that array.
+ */
+public enum MatrixStorage {
+    VECTORS,
+    CONTIGUOUS
+}
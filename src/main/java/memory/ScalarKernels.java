@@ -0,0 +1,42 @@
+package memory;
+
+/**
+ * Plain loops, available on every JVM. The JIT may still auto-vectorize some of them.
+ */
+public class ScalarKernels implements VectorKernels {
+
+    @Override
+    public void add(double[] dst, int dstOff, double[] src, int srcOff, int length) {
+        for (int i = 0; i < length; i++) {
+            dst[dstOff + i] += src[srcOff + i];
+        }
+    }
+
+    @Override
+    public void negate(double[] a, int off, int length) {
+        for (int i = off; i < off + length; i++) {
+            a[i] = -a[i];
+        }
+    }
+
+    @Override
+    public double dot(double[] a, int aOff, double[] b, int bOff, int length) {
+        double sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += a[aOff + i] * b[bOff + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public void axpy(double alpha, double[] x, int xOff, double[] y, int yOff, int length) {
+        for (int i = 0; i < length; i++) {
+            y[yOff + i] += alpha * x[xOff + i];
+        }
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+}
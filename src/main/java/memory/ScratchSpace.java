@@ -0,0 +1,104 @@
+package memory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Where and when matrices leave the heap for TiledMatrix scratch files.
+ *
+ * Matrices of at least spillThreshold elements are kept out of core: the engine computes such
+ * results tile by tile into scratch files in directory, and the parser loads such binary operands
+ * straight into tiles. The TileBudget bounds the tiles held in the heap meanwhile.
+ */
+public class ScratchSpace {
+
+    public static final String DIRECTORY_PROPERTY = "lae.scratch.dir";
+    public static final String THRESHOLD_PROPERTY = "lae.scratch.threshold"; // In elements
+    public static final String TILE_SIZE_PROPERTY = "lae.scratch.tile";
+    public static final String BUDGET_PROPERTY = "lae.scratch.budget"; // In tiles
+
+    private final Path directory;
+    private final long spillThreshold;
+    private final TileBudget budget;
+
+    public ScratchSpace(Path directory, long spillThreshold, int tileSize, int maxTiles) {
+        if (spillThreshold <= 0) {
+            throw new IllegalArgumentException("Spill threshold must be positive.");
+        }
+        this.directory = directory;
+        this.spillThreshold = spillThreshold;
+        this.budget = new TileBudget(maxTiles, tileSize);
+    }
+
+    /**
+     * Reads the lae.scratch.* system properties. By default matrices spill once they would take
+     * a quarter of the maximum heap, into java.io.tmpdir, with 1024 x 1024 tiles and a budget
+     * of MAX_TILES_PER_TASK tiles per worker.
+     */
+    public static ScratchSpace fromProperties(int workers) {
+        String directory = System.getProperty(DIRECTORY_PROPERTY, System.getProperty("java.io.tmpdir"));
+        long defaultThreshold = Runtime.getRuntime().maxMemory() / 4 / Double.BYTES;
+        return new ScratchSpace(Path.of(directory), Long.getLong(THRESHOLD_PROPERTY, defaultThreshold),
+                Integer.getInteger(TILE_SIZE_PROPERTY, TiledMatrix.DEFAULT_TILE_SIZE),
+                Integer.getInteger(BUDGET_PROPERTY, TileBudget.MAX_TILES_PER_TASK * Math.max(1, workers)));
+    }
+
+    public boolean shouldSpill(long elements) {
+        return elements >= spillThreshold;
+    }
+
+    // Scratch files are only created on demand, so an engine that never spills never touches the disk
+    public TiledMatrix allocate(int rows, int cols) {
+        try {
+            return TiledMatrix.create(rows, cols, budget.getTileSize(), directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create a scratch file in " + directory, e);
+        }
+    }
+
+    public TiledMatrix spill(double[][] matrix) {
+        try {
+            return TiledMatrix.fromDense(matrix, budget.getTileSize(), directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create a scratch file in " + directory, e);
+        }
+    }
+
+    /**
+     * Deletes the scratch files that processes which died before closing their matrices left in directory.
+     * Files of live matrices, in this process or another one, are kept. Returns the number of files deleted.
+     */
+    public int deleteStaleFiles() {
+        int deleted = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                TiledMatrix.FILE_PREFIX + "*" + TiledMatrix.FILE_SUFFIX)) {
+            for (Path file : files) {
+                if (TiledMatrix.deleteIfStale(file)) {
+                    deleted++;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: cannot clean the scratch directory " + directory + ": " + e.getMessage());
+        }
+        return deleted;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long getSpillThreshold() {
+        return spillThreshold;
+    }
+
+    public int getTileSize() {
+        return budget.getTileSize();
+    }
+
+    public TileBudget getBudget() {
+        return budget;
+    }
+}
@@ -1,77 +1,310 @@
 package memory;
 
+import metrics.EngineMetrics;
+
 public class SharedMatrix {
 
     private volatile SharedVector[] vectors = {}; // underlying vectors
+    private final MatrixStorage storage;
+    private final StripedLocks stripes; // null with per-vector locking
 
     public SharedMatrix() {
         // TODO: initialize empty matrix
+        this(MatrixStorage.VECTORS);
+    }
+
+    public SharedMatrix(MatrixStorage storage) {
+        this(storage, MatrixLocking.PER_VECTOR);
+    }
+
+    public SharedMatrix(MatrixStorage storage, MatrixLocking locking) {
+        this(storage, locking == MatrixLocking.STRIPED ? new StripedLocks(StripedLocks.defaultStripeCount()) : null);
+    }
+
+    /**
+     * A matrix whose vectors are guarded by the given stripes (or by their own locks if stripes is null).
+     */
+    SharedMatrix(MatrixStorage storage, StripedLocks stripes) {
+        this.storage = storage;
+        this.stripes = stripes;
         this.vectors = new SharedVector[0];
     }
 
     public SharedMatrix(double[][] matrix) {
         // TODO: construct matrix as row-major SharedVectors
-        this.vectors = new SharedVector[matrix.length];
-        for (int i = 0; i < matrix.length; i++) {
-            this.vectors[i] = new SharedVector(matrix[i], VectorOrientation.ROW_MAJOR);
-        }
+        this(matrix, MatrixStorage.VECTORS);
+    }
+
+    public SharedMatrix(double[][] matrix, MatrixStorage storage) {
+        this(storage);
+        load(matrix, VectorOrientation.ROW_MAJOR);
     }
 
     public void loadRowMajor(double[][] matrix) {
         // TODO: replace internal data with new row-major matrix
-        this.vectors = new SharedVector[matrix.length];
-        for (int i = 0; i < matrix.length; i++) {
-            this.vectors[i] = new SharedVector(matrix[i], VectorOrientation.ROW_MAJOR);
-        }
+        load(matrix, VectorOrientation.ROW_MAJOR);
     }
 
     public void loadColumnMajor(double[][] matrix) {
         // TODO: replace internal data with new column-major matrix
-        this.vectors = new SharedVector[matrix.length];
+        load(matrix, VectorOrientation.COLUMN_MAJOR);
+    }
+
+    private void load(double[][] matrix, VectorOrientation orientation) {
+        if (storage == MatrixStorage.CONTIGUOUS) {
+            int vectorLength = matrix.length == 0 ? 0 : matrix[0].length;
+            double[] data = new double[matrix.length * vectorLength];
+            for (int i = 0; i < matrix.length; i++) {
+                if (matrix[i].length != vectorLength) {
+                    throw new IllegalArgumentException("All vectors of a contiguous matrix must have the same length.");
+                }
+                System.arraycopy(matrix[i], 0, data, i * vectorLength, vectorLength);
+            }
+            loadFlat(data, matrix.length, vectorLength, orientation);
+            EngineMetrics.global().addBytesLoaded((long) data.length * Double.BYTES);
+            return;
+        }
+        SharedVector[] newVectors = new SharedVector[matrix.length];
+        long elements = 0;
         for (int i = 0; i < matrix.length; i++) {
-            this.vectors[i] = new SharedVector(matrix[i], VectorOrientation.COLUMN_MAJOR);
+            newVectors[i] = new SharedVector(matrix[i], orientation);
+            elements += matrix[i].length;
+        }
+        EngineMetrics.global().addBytesLoaded(elements * Double.BYTES);
+        shareStripes(newVectors);
+        this.vectors = newVectors;
+    }
+
+    /**
+     * Replaces the contents with a flat array holding vectorCount vectors of vectorLength elements each,
+     * stored one after the other. The array is used as-is (not copied), and every vector becomes
+     * a view into it, so this works for both storage modes.
+     */
+    public void loadFlat(double[] data, int vectorCount, int vectorLength, VectorOrientation orientation) {
+        if (vectorCount < 0 || vectorLength < 0 || (long) vectorCount * vectorLength > data.length) {
+            throw new IllegalArgumentException("Flat data is too short for the requested dimensions.");
+        }
+        SharedVector[] newVectors = new SharedVector[vectorCount];
+        for (int i = 0; i < vectorCount; i++) {
+            newVectors[i] = new SharedVector(data, i * vectorLength, 1, vectorLength, orientation);
+        }
+        shareStripes(newVectors);
+        this.vectors = newVectors;
+    }
+
+    // Done before the vectors are published through the volatile field, so every thread sees the shared locks
+    private void shareStripes(SharedVector[] newVectors) {
+        if (stripes == null) {
+            return;
+        }
+        for (int i = 0; i < newVectors.length; i++) {
+            newVectors[i].shareLock(stripes.stripeFor(i).asReadWriteLock());
         }
     }
 
     public double[][] readRowMajor() {
         // TODO: return matrix contents as a row-major double[][]
-        if (vectors.length == 0) {
+        SharedVector[] vecs = vectors;
+        if (vecs.length == 0) {
             return null;
         }
+        EngineMetrics.global().addBytesRead((long) vecs.length * vecs[0].length() * Double.BYTES);
 
-        if (this.getOrientation() == VectorOrientation.ROW_MAJOR) {
-            double[][] result = new double[vectors.length][vectors[0].length()];
-            acquireAllVectorReadLocks(vectors);
-            try {
-                for (int i = 0; i < vectors.length; i++) {
-                    double[] row = new double[vectors[i].length()];
-                    for (int j = 0; j < vectors[i].length(); j++) {
-                        row[j] = vectors[i].get(j);
+        // Every vector is copied in bulk while its lock is already held, instead of locking per element.
+        // Frozen vectors skip their locks entirely.
+        if (stripes != null) {
+            long[] stamps = stripes.tryOptimisticReadAll();
+            if (stamps != null) {
+                try {
+                    double[][] result = copyRowMajor(vecs);
+                    if (stripes.validateAll(stamps)) {
+                        return result;
                     }
-                    result[i] = row;
+                } catch (RuntimeException e) {
+                    // A writer changed a vector in the middle of the copy; the locked retry below sees it whole
                 }
+            }
+            long[] held = stripes.readLockAll();
+            try {
+                return copyRowMajor(vecs);
             } finally {
-                releaseAllVectorReadLocks(vectors);
+                stripes.unlockReadAll(held);
+            }
+        }
+        acquireAllVectorReadLocks(vecs);
+        try {
+            return copyRowMajor(vecs);
+        } finally {
+            releaseAllVectorReadLocks(vecs);
+        }
+    }
+
+    // Callers hold the read locks of all vectors, or validate afterwards that no writer interfered
+    private static double[][] copyRowMajor(SharedVector[] vecs) {
+        if (vecs[0].getOrientation() == VectorOrientation.ROW_MAJOR) {
+            double[][] result = new double[vecs.length][];
+            for (int i = 0; i < vecs.length; i++) {
+                double[] row = new double[vecs[i].length()];
+                vecs[i].copyIntoUnlocked(row, 0);
+                result[i] = row;
             }
             return result;
         } else {
             // Convert column-major to row-major
-            double[][] result = new double[vectors[0].length()][vectors.length];
-            acquireAllVectorReadLocks(vectors);
-            try {
-                for (int j = 0; j < vectors.length; j++) {
-                    double[] column = new double[vectors[j].length()];
-                    for (int k = 0; k < vectors[j].length(); k++) {
-                        column[k] = vectors[j].get(k);
+            double[][] result = new double[vecs[0].length()][vecs.length];
+            double[] column = new double[vecs[0].length()];
+            for (int j = 0; j < vecs.length; j++) {
+                vecs[j].copyIntoUnlocked(column, 0);
+                for (int i = 0; i < column.length; i++) {
+                    result[i][j] = column[i];
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Copies the whole matrix into dst in row-major order, starting at dst[off].
+     * Each vector is locked once for a bulk copy (not at all if frozen). With STRIPED locking the copy
+     * is validated against the stripes instead, and repeated under them only if a writer interfered.
+     */
+    public void copyInto(double[] dst, int off) {
+        copyVectorsInto(vectors, dst, off);
+    }
+
+    private void copyVectorsInto(SharedVector[] vecs, double[] dst, int off) {
+        if (vecs.length == 0) {
+            return;
+        }
+        EngineMetrics.global().addBytesRead((long) vecs.length * vecs[0].length() * Double.BYTES);
+        if (stripes != null) {
+            long[] stamps = stripes.tryOptimisticReadAll();
+            if (stamps != null) {
+                try {
+                    copyUnlocked(vecs, dst, off);
+                    if (stripes.validateAll(stamps)) {
+                        return;
                     }
-                    for (int i = 0; i < vectors[0].length(); i++) {
-                        result[i][j] = column[i];
+                } catch (RuntimeException e) {
+                    // Torn read, retried under the stripe locks
+                }
+            }
+            long[] held = stripes.readLockAll();
+            try {
+                copyUnlocked(vecs, dst, off);
+            } finally {
+                stripes.unlockReadAll(held);
+            }
+            return;
+        }
+        acquireAllVectorReadLocks(vecs);
+        try {
+            copyUnlocked(vecs, dst, off);
+        } finally {
+            releaseAllVectorReadLocks(vecs);
+        }
+    }
+
+    private static void copyUnlocked(SharedVector[] vecs, double[] dst, int off) {
+        int vectorLength = vecs[0].length();
+        if (vecs[0].getOrientation() == VectorOrientation.ROW_MAJOR) {
+            for (int i = 0; i < vecs.length; i++) {
+                vecs[i].copyIntoUnlocked(dst, off + i * vectorLength);
+            }
+        } else {
+            double[] column = new double[vectorLength];
+            for (int j = 0; j < vecs.length; j++) {
+                vecs[j].copyIntoUnlocked(column, 0);
+                for (int i = 0; i < vectorLength; i++) {
+                    dst[off + i * vecs.length + j] = column[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Freezes every vector of the matrix, making its current contents immutable
+     * and letting all later reads skip locking. Loading new data replaces the frozen vectors
+     * with fresh, writable ones.
+     */
+    public void freeze() {
+        for (SharedVector vec : vectors) {
+            vec.freeze();
+        }
+    }
+
+    public boolean isFrozen() {
+        SharedVector[] vecs = vectors;
+        for (SharedVector vec : vecs) {
+            if (!vec.isFrozen()) {
+                return false;
+            }
+        }
+        return vecs.length > 0;
+    }
+
+    /**
+     * Returns a frozen, contiguous row-major copy of this matrix.
+     */
+    public SharedMatrix snapshot() {
+        SharedMatrix copy = new SharedMatrix(MatrixStorage.CONTIGUOUS);
+        SharedVector[] vecs = vectors;
+        if (vecs.length == 0) {
+            return copy;
+        }
+        boolean rowMajor = vecs[0].getOrientation() == VectorOrientation.ROW_MAJOR;
+        int rows = rowMajor ? vecs.length : vecs[0].length();
+        int cols = rowMajor ? vecs[0].length() : vecs.length;
+        double[] data = new double[rows * cols];
+        copyVectorsInto(vecs, data, 0);
+        copy.loadFlat(data, rows, cols, VectorOrientation.ROW_MAJOR);
+        copy.freeze();
+        return copy;
+    }
+
+    /**
+     * Transposes the matrix without moving any data, by flipping the orientation of every vector:
+     * the rows of a row-major matrix read as columns are exactly the columns of its transpose.
+     * Consumers that can read column-major data (copyInto, BinaryMatrixIO.write) use it as-is;
+     * readRowMajor converts it on the way out. Frozen matrices cannot be transposed in place.
+     */
+    public void transpose() {
+        SharedVector[] vecs = vectors;
+        if (stripes != null) {
+            // Stripes cannot be locked twice by one thread, so each is locked once instead of once per vector
+            long[] held = stripes.writeLockAll();
+            try {
+                for (SharedVector vec : vecs) {
+                    if (vec.isFrozen()) {
+                        throw new IllegalStateException("Cannot modify a frozen vector.");
                     }
                 }
+                flipOrientations(vecs);
             } finally {
-                releaseAllVectorReadLocks(vectors);
+                stripes.unlockWriteAll(held);
             }
-            return result;
+            return;
+        }
+        // All vectors are locked before any is flipped, so no reader sees a half-transposed matrix.
+        // If one of them is frozen, the locks taken so far are given back before rethrowing.
+        int locked = 0;
+        try {
+            for (SharedVector vec : vecs) {
+                vec.writeLock();
+                locked++;
+            }
+            flipOrientations(vecs);
+        } finally {
+            for (int i = 0; i < locked; i++) {
+                vecs[i].writeUnlock();
+            }
+        }
+    }
+
+    private static void flipOrientations(SharedVector[] vecs) {
+        for (SharedVector vec : vecs) {
+            vec.setOrientation(vec.getOrientation() == VectorOrientation.ROW_MAJOR
+                    ? VectorOrientation.COLUMN_MAJOR : VectorOrientation.ROW_MAJOR);
         }
     }
 
@@ -85,6 +318,14 @@ public class SharedMatrix {
         return vectors.length;
     }
 
+    public MatrixStorage getStorage() {
+        return storage;
+    }
+
+    public MatrixLocking getLocking() {
+        return stripes == null ? MatrixLocking.PER_VECTOR : MatrixLocking.STRIPED;
+    }
+
     public VectorOrientation getOrientation() {
         // TODO: return orientation
         if (vectors.length == 0) {
@@ -2,28 +2,59 @@ package memory;
 
 import java.util.concurrent.locks.ReadWriteLock;
 
+import metrics.EngineMetrics;
+
 public class SharedVector {
 
     private double[] vector;
+    private int offset; // Index of element 0 inside 'vector'
+    private int stride; // Distance inside 'vector' between consecutive elements
+    private int length;
     private VectorOrientation orientation;
     private ReadWriteLock lock = new java.util.concurrent.locks.ReentrantReadWriteLock();
+    private volatile boolean frozen = false; // Once frozen the vector never changes again
 
     public SharedVector(double[] vector, VectorOrientation orientation) {
         // TODO: store vector data and its orientation
+        this(vector, 0, 1, vector.length, orientation);
+    }
+
+    /**
+     * Creates a strided view over a shared array: element i is stored at vector[offset + i * stride].
+     * Used by SharedMatrix's contiguous storage, where every row (or column) is a view into one array.
+     */
+    public SharedVector(double[] vector, int offset, int stride, int length, VectorOrientation orientation) {
+        if (offset < 0 || stride <= 0 || length < 0
+                || (length > 0 && offset + (long) (length - 1) * stride >= vector.length)) {
+            throw new IllegalArgumentException("View does not fit inside the backing array.");
+        }
         this.vector = vector;
+        this.offset = offset;
+        this.stride = stride;
+        this.length = length;
         this.orientation = orientation;
     }
 
     /**
      * Uses ReadLock to allow multiple threads to read simultaneously while preventing writes. 
      * This is safe because we're only reading a single element without modifying the vector.
+     * A frozen vector can no longer be written, so it is read without any locking.
      */
 
     public double get(int index) {
         // TODO: return element at index (read-locked)
+        if (frozen) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + length);
+            }
+            return vector[offset + index * stride];
+        }
         this.readLock();
         try {
-            double value = vector[index];
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + length);
+            }
+            double value = vector[offset + index * stride];
             return value;
         } finally {
             this.readUnlock();
@@ -32,7 +63,7 @@ public class SharedVector {
 
     public int length() {
         // TODO: return vector length
-        return vector.length;
+        return length;
     }
 
     public VectorOrientation getOrientation() {
@@ -41,12 +72,26 @@ public class SharedVector {
     }
 
     public void setOrientation(VectorOrientation orientation) {
+        if (frozen) {
+            throw new IllegalStateException("Cannot modify a frozen vector.");
+        }
         this.orientation = orientation;
     }
 
+    /**
+     * Every modification goes through the write lock, so refusing it here makes a frozen vector immutable.
+     */
     public void writeLock() {
         // TODO: acquire write lock
-        lock.writeLock().lock();
+        if (!lock.writeLock().tryLock()) {
+            long start = System.nanoTime();
+            lock.writeLock().lock();
+            EngineMetrics.global().recordLockWait(System.nanoTime() - start);
+        }
+        if (frozen) {
+            lock.writeLock().unlock();
+            throw new IllegalStateException("Cannot modify a frozen vector.");
+        }
     }
 
     public void writeUnlock() {
@@ -54,16 +99,110 @@ public class SharedVector {
         lock.writeLock().unlock();
     }
 
+    /*
+     * Read locks are skipped for frozen vectors. freeze() takes the write lock, so it cannot complete
+     * while a reader holds the read lock; a reader that got the lock just after freezing gives it back at once.
+     * This keeps every readLock() paired with a matching readUnlock().
+     * Only contended acquisitions are timed, so the uncontended path costs a single tryLock.
+     */
     public void readLock() {
         // TODO: acquire read lock
-        lock.readLock().lock();
+        if (frozen) {
+            return;
+        }
+        if (!lock.readLock().tryLock()) {
+            long start = System.nanoTime();
+            lock.readLock().lock();
+            EngineMetrics.global().recordLockWait(System.nanoTime() - start);
+        }
+        if (frozen) {
+            lock.readLock().unlock();
+        }
     }
 
     public void readUnlock() {
         // TODO: release read lock
+        if (frozen) {
+            return;
+        }
         lock.readLock().unlock();
     }
 
+    /**
+     * Makes this vector immutable. Afterwards all reads skip locking and every modification
+     * throws IllegalStateException. Freezing cannot be undone.
+     */
+    public void freeze() {
+        if (frozen) {
+            return;
+        }
+        // Not through writeLock(), which refuses frozen vectors: another thread may freeze it meanwhile
+        lock.writeLock().lock();
+        try {
+            frozen = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Makes this vector use a lock it shares with others, e.g. a stripe of a STRIPED SharedMatrix.
+     * Only called before the vector is published to other threads.
+     */
+    void shareLock(ReadWriteLock sharedLock) {
+        this.lock = sharedLock;
+    }
+
+    /**
+     * Returns a view of elements [from, to) that shares this vector's storage but has its own lock.
+     * This vector's lock does not cover writes through the slice (or the other way around), so slices
+     * are meant for splitting the work on a vector nobody else uses meanwhile, e.g. within one task batch.
+     * A slice of a frozen vector is frozen too.
+     */
+    public SharedVector slice(int from, int to) {
+        this.readLock();
+        try {
+            if (from < 0 || to > length || from > to) {
+                throw new IndexOutOfBoundsException("Slice [" + from + ", " + to + ") is out of bounds for length " + length);
+            }
+            SharedVector slice = new SharedVector(vector, offset + from * stride, stride, to - from, orientation);
+            slice.frozen = frozen;
+            return slice;
+        } finally {
+            this.readUnlock();
+        }
+    }
+
+    /**
+     * Copies all elements into dst starting at dst[off], under a single read lock
+     * (or none at all when frozen).
+     */
+    public void copyInto(double[] dst, int off) {
+        this.readLock();
+        try {
+            copyIntoUnlocked(dst, off);
+        } finally {
+            this.readUnlock();
+        }
+    }
+
+    /**
+     * Same as copyInto, for callers that already hold this vector's read lock.
+     */
+    void copyIntoUnlocked(double[] dst, int off) {
+        if (stride == 1) {
+            System.arraycopy(vector, offset, dst, off, length);
+        } else {
+            for (int i = 0; i < length; i++) {
+                dst[off + i] = vector[offset + i * stride];
+            }
+        }
+    }
+
     /*     
      * Uses WriteLock for exclusive access because we're modifying the orientation metadata.
      * Even though we're not changing the data of the array, we need exclusive access to ensure
@@ -89,6 +228,10 @@ public class SharedVector {
      * 
      * 'other' is locked first, then 'this'. This consistent ordering prevents deadlock when multiple threads
      * perform add operations. Locks are released in finally blocks to ensure cleanup.
+     *
+     * If both vectors are guarded by the same lock (v.add(v), or two vectors on one stripe), only the
+     * write lock is taken: it already excludes other writers of 'other', and a read lock cannot be
+     * upgraded to a write lock, so taking both would deadlock.
      */
     public void add(SharedVector other) {
         // TODO: add two vectors
@@ -98,15 +241,35 @@ public class SharedVector {
         if (this.orientation != other.orientation) {
             throw new IllegalArgumentException("Vectors must have the same orientation to add.");
         }
+        if (this.lock == other.lock) {
+            this.writeLock();
+            try {
+                addUnlocked(other);
+            } finally {
+                this.writeUnlock();
+            }
+            return;
+        }
         other.readLock();
-        this.writeLock();
         try {
-            for (int i = 0; i < this.length(); i++) {
-                this.vector[i] += other.vector[i];
+            this.writeLock();
+            try {
+                addUnlocked(other);
+            } finally {
+                this.writeUnlock();
             }
         } finally {
             other.readUnlock();
-            this.writeUnlock();
+        }
+    }
+
+    private void addUnlocked(SharedVector other) {
+        if (this.stride == 1 && other.stride == 1) {
+            Kernels.get().add(this.vector, this.offset, other.vector, other.offset, this.length);
+        } else {
+            for (int i = 0; i < this.length(); i++) {
+                this.vector[this.offset + i * this.stride] += other.vector[other.offset + i * other.stride];
+            }
         }
     }
 
@@ -118,8 +281,13 @@ public class SharedVector {
         // TODO: negate vector
         this.writeLock();
         try {
-            for (int i = 0; i < this.length(); i++) {
-                this.vector[i] = -this.vector[i];
+            if (this.stride == 1) {
+                Kernels.get().negate(this.vector, this.offset, this.length);
+            } else {
+                for (int i = 0; i < this.length(); i++) {
+                    int index = this.offset + i * this.stride;
+                    this.vector[index] = -this.vector[index];
+                }
             }
         } finally {
             this.writeUnlock();
@@ -134,6 +302,7 @@ public class SharedVector {
      * Both locks are read locks because we're only reading from both vectors, not modifying
      * them. This allows multiple threads to compute different dot products simultaneously,
      * improving parallelism. Lock ordering ('this' then 'other') prevents deadlock.
+     * A lock shared by both vectors is taken once, since stamped stripes are not reentrant.
      */
     public double dot(SharedVector other) {
         // TODO: compute dot product (row · column)
@@ -144,12 +313,20 @@ public class SharedVector {
             throw new IllegalArgumentException("Vectors must have different orientations to compute dot product.");
         }
         double result = 0;
+        if (this.lock == other.lock) {
+            // Taken directly rather than through readLock(), which would skip it if 'this' alone were frozen
+            lock.readLock().lock();
+            try {
+                result = dotUnlocked(other);
+            } finally {
+                lock.readLock().unlock();
+            }
+            return result;
+        }
         this.readLock();
         other.readLock();
         try {
-            for (int i = 0; i < this.length(); i++) {
-                result += this.vector[i] * other.vector[i];
-            }
+            result = dotUnlocked(other);
         } finally {
             this.readUnlock();
             other.readUnlock();
@@ -157,12 +334,26 @@ public class SharedVector {
         return result;
     }
 
+    private double dotUnlocked(SharedVector other) {
+        if (this.stride == 1 && other.stride == 1) {
+            return Kernels.get().dot(this.vector, this.offset, other.vector, other.offset, this.length);
+        }
+        double result = 0;
+        for (int i = 0; i < this.length(); i++) {
+            result += this.vector[this.offset + i * this.stride] * other.vector[other.offset + i * other.stride];
+        }
+        return result;
+    }
+
 
     /*
      * Uses WriteLock on 'this' vector because we're replacing its contents with the multiplication result.
      * 
      * We acquire the write lock after reading the matrix to minimize lock holding time
      * and avoid potential deadlock with matrix operations.
+     *
+     * The result is stored in a new array. If this vector was a view into a contiguous matrix,
+     * it is detached from that storage and owns its data from now on.
      */
     public void vecMatMul(SharedMatrix matrix) {
         // TODO: compute row-vector × matrix
@@ -176,14 +367,18 @@ public class SharedVector {
         double[] result = new double[rowMatrix[0].length];
         this.writeLock();
         try {
-            for (int j = 0; j < rowMatrix[0].length; j++) {
-                for (int i = 0; i < rowMatrix.length; i++) {
-                    result[j] += this.vector[i] * rowMatrix[i][j];
-                }
+            // result += v[i] * row i, for every i in order: each row is read contiguously,
+            // and every result[j] still sums its terms in the same order as a column-by-column loop
+            VectorKernels kernels = Kernels.get();
+            for (int i = 0; i < rowMatrix.length; i++) {
+                kernels.axpy(this.vector[this.offset + i * this.stride], rowMatrix[i], 0, result, 0, result.length);
             }
+            this.vector = result;
+            this.offset = 0;
+            this.stride = 1;
+            this.length = result.length;
         } finally {
             this.writeUnlock();
         }
-        this.vector = result;
     }
 }
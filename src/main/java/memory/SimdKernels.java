@@ -0,0 +1,80 @@
+package memory;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Kernels on the Vector API, using the widest double vectors the CPU supports and fused multiply-add
+ * for dot and axpy. The elements left over after the last full vector are handled by a scalar loop.
+ *
+ * Needs the jdk.incubator.vector module (--add-modules jdk.incubator.vector) at runtime.
+ * Only referenced by name from Kernels, so this class is never loaded when the module is missing.
+ */
+public class SimdKernels implements VectorKernels {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public void add(double[] dst, int dstOff, double[] src, int srcOff, int length) {
+        int i = 0;
+        int bound = SPECIES.loopBound(length);
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector a = DoubleVector.fromArray(SPECIES, dst, dstOff + i);
+            DoubleVector b = DoubleVector.fromArray(SPECIES, src, srcOff + i);
+            a.add(b).intoArray(dst, dstOff + i);
+        }
+        for (; i < length; i++) {
+            dst[dstOff + i] += src[srcOff + i];
+        }
+    }
+
+    @Override
+    public void negate(double[] a, int off, int length) {
+        int i = 0;
+        int bound = SPECIES.loopBound(length);
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, a, off + i).neg().intoArray(a, off + i);
+        }
+        for (; i < length; i++) {
+            a[off + i] = -a[off + i];
+        }
+    }
+
+    @Override
+    public double dot(double[] a, int aOff, double[] b, int bOff, int length) {
+        int i = 0;
+        int bound = SPECIES.loopBound(length);
+        DoubleVector sums = DoubleVector.zero(SPECIES);
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector x = DoubleVector.fromArray(SPECIES, a, aOff + i);
+            DoubleVector y = DoubleVector.fromArray(SPECIES, b, bOff + i);
+            sums = x.fma(y, sums);
+        }
+        double sum = sums.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            sum += a[aOff + i] * b[bOff + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public void axpy(double alpha, double[] x, int xOff, double[] y, int yOff, int length) {
+        int i = 0;
+        int bound = SPECIES.loopBound(length);
+        DoubleVector scale = DoubleVector.broadcast(SPECIES, alpha);
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector xs = DoubleVector.fromArray(SPECIES, x, xOff + i);
+            DoubleVector ys = DoubleVector.fromArray(SPECIES, y, yOff + i);
+            xs.fma(scale, ys).intoArray(y, yOff + i);
+        }
+        for (; i < length; i++) {
+            y[yOff + i] += alpha * x[xOff + i];
+        }
+    }
+
+    @Override
+    public String name() {
+        return "simd(" + SPECIES.length() + " x double)";
+    }
+}
@@ -0,0 +1,420 @@
+package memory;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable matrix that stores only its non-zero elements, as compressed sparse vectors:
+ * CSR (compressed sparse rows) when ROW_MAJOR, CSC (compressed sparse columns) when COLUMN_MAJOR.
+ *
+ * Vector v owns the entries [pointers[v], pointers[v + 1]) of indices and values, sorted by index.
+ * An entry's index is its position inside the vector: its column in CSR, its row in CSC.
+ * Every operation costs time proportional to the non-zeros involved instead of rows x columns.
+ *
+ * Nothing is modified after construction, so threads share a SparseMatrix without any locking,
+ * like a frozen SharedMatrix. Operations return new matrices. The multiply methods working on a range
+ * of rows write only those rows of their result, so row ranges can be computed by parallel tasks.
+ */
+public final class SparseMatrix {
+
+    public static final double DEFAULT_DENSITY_THRESHOLD = 0.05; // At most 5% non-zeros
+
+    private final int rows;
+    private final int cols;
+    private final VectorOrientation orientation;
+    private final int[] pointers; // vectorCount() + 1 entries
+    private final int[] indices;
+    private final double[] values;
+
+    /**
+     * Wraps compressed arrays as they are (not copied). Indices must be sorted inside each vector.
+     */
+    public SparseMatrix(int rows, int cols, VectorOrientation orientation, int[] pointers, int[] indices,
+            double[] values) {
+        if (rows <= 0 || cols <= 0) {
+            throw new IllegalArgumentException("A sparse matrix must have at least one row and one column.");
+        }
+        int vectorCount = orientation == VectorOrientation.ROW_MAJOR ? rows : cols;
+        if (pointers.length != vectorCount + 1 || pointers[0] != 0 || indices.length != values.length
+                || pointers[vectorCount] > indices.length) {
+            throw new IllegalArgumentException("Compressed arrays do not match the matrix dimensions.");
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.orientation = orientation;
+        this.pointers = pointers;
+        this.indices = indices;
+        this.values = values;
+    }
+
+    public static SparseMatrix fromDense(double[][] matrix) {
+        return fromDense(matrix, VectorOrientation.ROW_MAJOR);
+    }
+
+    /**
+     * Compresses a row-major dense matrix, as CSR or CSC depending on orientation.
+     */
+    public static SparseMatrix fromDense(double[][] matrix, VectorOrientation orientation) {
+        if (matrix == null || matrix.length == 0 || matrix[0].length == 0) {
+            throw new IllegalArgumentException("Cannot compress an empty matrix.");
+        }
+        int cols = matrix[0].length;
+        for (double[] row : matrix) {
+            if (row.length != cols) {
+                throw new IllegalArgumentException("All rows of a matrix must have the same length.");
+            }
+        }
+        long nonZeros = countNonZeros(matrix);
+        if (nonZeros > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many non-zero elements for a sparse matrix.");
+        }
+        int[] pointers = new int[matrix.length + 1];
+        int[] indices = new int[(int) nonZeros];
+        double[] values = new double[(int) nonZeros];
+        int next = 0;
+        for (int i = 0; i < matrix.length; i++) {
+            double[] row = matrix[i];
+            for (int j = 0; j < cols; j++) {
+                if (row[j] != 0) {
+                    indices[next] = j;
+                    values[next] = row[j];
+                    next++;
+                }
+            }
+            pointers[i + 1] = next;
+        }
+        SparseMatrix csr = new SparseMatrix(matrix.length, cols, VectorOrientation.ROW_MAJOR, pointers, indices, values);
+        return csr.toOrientation(orientation);
+    }
+
+    public static long countNonZeros(double[][] matrix) {
+        long nonZeros = 0;
+        for (double[] row : matrix) {
+            for (double value : row) {
+                if (value != 0) {
+                    nonZeros++;
+                }
+            }
+        }
+        return nonZeros;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return cols;
+    }
+
+    public VectorOrientation getOrientation() {
+        return orientation;
+    }
+
+    public int getNonZeroCount() {
+        return pointers[vectorCount()];
+    }
+
+    public double getDensity() {
+        return getNonZeroCount() / ((double) rows * cols);
+    }
+
+    private int vectorCount() {
+        return orientation == VectorOrientation.ROW_MAJOR ? rows : cols;
+    }
+
+    private int vectorLength() {
+        return orientation == VectorOrientation.ROW_MAJOR ? cols : rows;
+    }
+
+    public double get(int row, int col) {
+        if (row < 0 || row >= rows || col < 0 || col >= cols) {
+            throw new IndexOutOfBoundsException("Element (" + row + ", " + col + ") is out of bounds.");
+        }
+        int vector = orientation == VectorOrientation.ROW_MAJOR ? row : col;
+        int index = orientation == VectorOrientation.ROW_MAJOR ? col : row;
+        int found = Arrays.binarySearch(indices, pointers[vector], pointers[vector + 1], index);
+        return found >= 0 ? values[found] : 0;
+    }
+
+    /**
+     * Writes row i, zeros included, into dst[0 .. getColumns()).
+     */
+    public void copyRowInto(int row, double[] dst) {
+        if (orientation == VectorOrientation.ROW_MAJOR) {
+            Arrays.fill(dst, 0, cols, 0);
+            for (int p = pointers[row]; p < pointers[row + 1]; p++) {
+                dst[indices[p]] = values[p];
+            }
+        } else {
+            for (int j = 0; j < cols; j++) {
+                dst[j] = get(row, j);
+            }
+        }
+    }
+
+    public double[][] toDense() {
+        double[][] dense = new double[rows][cols];
+        for (int v = 0; v < vectorCount(); v++) {
+            for (int p = pointers[v]; p < pointers[v + 1]; p++) {
+                if (orientation == VectorOrientation.ROW_MAJOR) {
+                    dense[v][indices[p]] = values[p];
+                } else {
+                    dense[indices[p]][v] = values[p];
+                }
+            }
+        }
+        return dense;
+    }
+
+    /**
+     * Returns the same matrix stored in the given orientation: CSR to CSC or back, with a counting sort
+     * over the indices. Returns this matrix if it is already stored that way.
+     */
+    public SparseMatrix toOrientation(VectorOrientation target) {
+        if (target == orientation) {
+            return this;
+        }
+        int nonZeros = getNonZeroCount();
+        int targetCount = vectorLength();
+        int[] targetPointers = new int[targetCount + 1];
+        for (int p = 0; p < nonZeros; p++) {
+            targetPointers[indices[p] + 1]++;
+        }
+        for (int v = 0; v < targetCount; v++) {
+            targetPointers[v + 1] += targetPointers[v];
+        }
+        int[] next = Arrays.copyOf(targetPointers, targetCount);
+        int[] targetIndices = new int[nonZeros];
+        double[] targetValues = new double[nonZeros];
+        // Vectors are visited in order, so every target vector receives its indices already sorted
+        for (int v = 0; v < vectorCount(); v++) {
+            for (int p = pointers[v]; p < pointers[v + 1]; p++) {
+                int slot = next[indices[p]]++;
+                targetIndices[slot] = v;
+                targetValues[slot] = values[p];
+            }
+        }
+        return new SparseMatrix(rows, cols, target, targetPointers, targetIndices, targetValues);
+    }
+
+    /**
+     * The CSR form of a matrix is the CSC form of its transpose, so this shares all arrays with this matrix.
+     */
+    public SparseMatrix transpose() {
+        VectorOrientation flipped = orientation == VectorOrientation.ROW_MAJOR ? VectorOrientation.COLUMN_MAJOR
+                : VectorOrientation.ROW_MAJOR;
+        return new SparseMatrix(cols, rows, flipped, pointers, indices, values);
+    }
+
+    public SparseMatrix negate() {
+        double[] negated = new double[values.length]; // Same length as indices, which is shared
+        for (int p = 0; p < negated.length; p++) {
+            negated[p] = -values[p];
+        }
+        return new SparseMatrix(rows, cols, orientation, pointers, indices, negated);
+    }
+
+    /**
+     * Returns this + other, in this matrix's orientation. Each pair of vectors is merged by index;
+     * elements that cancel out are dropped.
+     */
+    public SparseMatrix add(SparseMatrix other) {
+        if (rows != other.rows || cols != other.cols) {
+            throw new IllegalArgumentException("Matrices must have the same dimensions to add.");
+        }
+        SparseMatrix b = other.toOrientation(orientation);
+        int count = vectorCount();
+        int[] sumPointers = new int[count + 1];
+        int capacity = (int) Math.min(Integer.MAX_VALUE - 8, (long) getNonZeroCount() + b.getNonZeroCount());
+        int[] sumIndices = new int[capacity];
+        double[] sumValues = new double[capacity];
+        int next = 0;
+        for (int v = 0; v < count; v++) {
+            int p = pointers[v];
+            int q = b.pointers[v];
+            while (p < pointers[v + 1] || q < b.pointers[v + 1]) {
+                int index;
+                double value;
+                if (q == b.pointers[v + 1] || (p < pointers[v + 1] && indices[p] < b.indices[q])) {
+                    index = indices[p];
+                    value = values[p++];
+                } else if (p == pointers[v + 1] || b.indices[q] < indices[p]) {
+                    index = b.indices[q];
+                    value = b.values[q++];
+                } else {
+                    index = indices[p];
+                    value = values[p++] + b.values[q++];
+                }
+                if (value != 0) {
+                    sumIndices[next] = index;
+                    sumValues[next] = value;
+                    next++;
+                }
+            }
+            sumPointers[v + 1] = next;
+        }
+        // Cancelled and overlapping elements leave the arrays longer than the non-zeros
+        return new SparseMatrix(rows, cols, orientation, sumPointers, Arrays.copyOf(sumIndices, next),
+                Arrays.copyOf(sumValues, next));
+    }
+
+    private void checkProduct(int leftCols, int rightRows) {
+        if (leftCols != rightRows) {
+            throw new IllegalArgumentException(
+                    "Number of columns in left matrix must equal number of rows in right matrix for multiplication.");
+        }
+    }
+
+    private void requireRowMajor() {
+        if (orientation != VectorOrientation.ROW_MAJOR) {
+            throw new IllegalStateException("Row-wise products need CSR storage; call toOrientation(ROW_MAJOR) first.");
+        }
+    }
+
+    /**
+     * Sparse x dense: fills rows [rowStart, rowEnd) of result with this * right.
+     * Each row is the sum of the right rows picked by its non-zeros, scaled by them. Needs CSR storage.
+     */
+    public void multiplyRows(double[][] right, double[][] result, int rowStart, int rowEnd) {
+        requireRowMajor();
+        checkProduct(cols, right.length);
+        int resultCols = right[0].length;
+        VectorKernels kernels = Kernels.get();
+        for (int i = rowStart; i < rowEnd; i++) {
+            double[] row = new double[resultCols];
+            for (int p = pointers[i]; p < pointers[i + 1]; p++) {
+                kernels.axpy(values[p], right[indices[p]], 0, row, 0, resultCols);
+            }
+            result[i] = row;
+        }
+    }
+
+    /**
+     * Dense x sparse: fills rows [rowStart, rowEnd) of result with left * this.
+     * Zero elements of the left rows are skipped, and each non-zero one scatters a sparse row. Needs CSR storage.
+     */
+    public void multiplyLeftRows(double[][] left, double[][] result, int rowStart, int rowEnd) {
+        requireRowMajor();
+        checkProduct(left[0].length, rows);
+        for (int i = rowStart; i < rowEnd; i++) {
+            double[] leftRow = left[i];
+            double[] row = new double[cols];
+            for (int k = 0; k < rows; k++) {
+                double scale = leftRow[k];
+                if (scale == 0) {
+                    continue;
+                }
+                for (int p = pointers[k]; p < pointers[k + 1]; p++) {
+                    row[indices[p]] += scale * values[p];
+                }
+            }
+            result[i] = row;
+        }
+    }
+
+    /**
+     * Sparse x sparse (Gustavson): returns rows [rowStart, rowEnd) of this * right as a CSR matrix.
+     * Each result row accumulates the right rows picked by its non-zeros in a dense scratch row,
+     * touching only the columns that receive a value. Both operands need CSR storage.
+     * Use concatRows to put the row blocks back together.
+     */
+    public SparseMatrix multiplyRows(SparseMatrix right, int rowStart, int rowEnd) {
+        requireRowMajor();
+        right.requireRowMajor();
+        checkProduct(cols, right.rows);
+        int resultCols = right.cols;
+        double[] accumulator = new double[resultCols];
+        int[] lastRow = new int[resultCols]; // Row that last touched each column, -1 for none
+        Arrays.fill(lastRow, -1);
+        int[] touched = new int[resultCols];
+        int[] blockPointers = new int[rowEnd - rowStart + 1];
+        int[] blockIndices = new int[16];
+        double[] blockValues = new double[16];
+        int next = 0;
+        for (int i = rowStart; i < rowEnd; i++) {
+            int touchedCount = 0;
+            for (int p = pointers[i]; p < pointers[i + 1]; p++) {
+                int k = indices[p];
+                double scale = values[p];
+                for (int q = right.pointers[k]; q < right.pointers[k + 1]; q++) {
+                    int j = right.indices[q];
+                    if (lastRow[j] != i) {
+                        lastRow[j] = i;
+                        accumulator[j] = 0;
+                        touched[touchedCount++] = j;
+                    }
+                    accumulator[j] += scale * right.values[q];
+                }
+            }
+            Arrays.sort(touched, 0, touchedCount);
+            if (next + touchedCount > blockIndices.length) {
+                int capacity = Math.max(blockIndices.length * 2, next + touchedCount);
+                blockIndices = Arrays.copyOf(blockIndices, capacity);
+                blockValues = Arrays.copyOf(blockValues, capacity);
+            }
+            for (int t = 0; t < touchedCount; t++) {
+                int j = touched[t];
+                if (accumulator[j] != 0) {
+                    blockIndices[next] = j;
+                    blockValues[next] = accumulator[j];
+                    next++;
+                }
+            }
+            blockPointers[i - rowStart + 1] = next;
+        }
+        return new SparseMatrix(rowEnd - rowStart, resultCols, VectorOrientation.ROW_MAJOR, blockPointers,
+                Arrays.copyOf(blockIndices, next), Arrays.copyOf(blockValues, next));
+    }
+
+    public double[][] multiply(double[][] right) {
+        SparseMatrix csr = toOrientation(VectorOrientation.ROW_MAJOR);
+        double[][] result = new double[rows][];
+        csr.multiplyRows(right, result, 0, rows);
+        return result;
+    }
+
+    public SparseMatrix multiply(SparseMatrix right) {
+        return toOrientation(VectorOrientation.ROW_MAJOR)
+                .multiplyRows(right.toOrientation(VectorOrientation.ROW_MAJOR), 0, rows);
+    }
+
+    /**
+     * Stacks CSR row blocks with the same number of columns on top of each other.
+     */
+    public static SparseMatrix concatRows(List<SparseMatrix> blocks) {
+        if (blocks.isEmpty()) {
+            throw new IllegalArgumentException("Nothing to concatenate.");
+        }
+        int cols = blocks.get(0).cols;
+        int rows = 0;
+        long nonZeros = 0;
+        for (SparseMatrix block : blocks) {
+            block.requireRowMajor();
+            if (block.cols != cols) {
+                throw new IllegalArgumentException("Row blocks must have the same number of columns.");
+            }
+            rows += block.rows;
+            nonZeros += block.getNonZeroCount();
+        }
+        if (nonZeros > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many non-zero elements for a sparse matrix.");
+        }
+        int[] pointers = new int[rows + 1];
+        int[] indices = new int[(int) nonZeros];
+        double[] values = new double[(int) nonZeros];
+        int row = 0;
+        int next = 0;
+        for (SparseMatrix block : blocks) {
+            int blockNonZeros = block.getNonZeroCount();
+            System.arraycopy(block.indices, 0, indices, next, blockNonZeros);
+            System.arraycopy(block.values, 0, values, next, blockNonZeros);
+            for (int i = 0; i < block.rows; i++) {
+                pointers[row + i + 1] = next + block.pointers[i + 1];
+            }
+            row += block.rows;
+            next += blockNonZeros;
+        }
+        return new SparseMatrix(rows, cols, VectorOrientation.ROW_MAJOR, pointers, indices, values);
+    }
+}
@@ -0,0 +1,352 @@
+package memory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Strassen multiplication of large square matrices: every level of recursion replaces the 8 products
+ * of half-size blocks with 7 products and a few block additions, so the work drops to about
+ * n^2.81 multiplications. Blocks of at most leafSize (or at maxDepth) are multiplied by a cache-blocked
+ * kernel instead, where the additions would cost more than the saved product.
+ *
+ * The operands are copied once into row-major arrays, padded with zeros to a multiple of 2^depth
+ * so that every level splits evenly. The top levels of the recursion run as a fork-join tree of
+ * task batches: one batch per level forms the operands of the 7 products of every node, one batch
+ * computes the products (each continuing the recursion sequentially below), and one batch per level
+ * adds the products back together, one task per result quadrant. Only as many levels are forked as it takes
+ * to give every worker a product. Each forked level keeps its operands and products alive until
+ * it is joined, about 3 * (7/4)^levels times the size of the operands.
+ *
+ * Strassen's additions lose a little more precision than the plain product: results match the
+ * other multipliers up to floating-point rounding, which grows slowly with the depth.
+ */
+public class StrassenMultiplier {
+
+    public static final String MIN_SIZE_PROPERTY = "lae.strassen.min";
+    public static final String LEAF_SIZE_PROPERTY = "lae.strassen.leaf";
+    public static final String DEPTH_PROPERTY = "lae.strassen.depth";
+
+    public static final int DEFAULT_MIN_SIZE = 2048; // Smaller products are left to TiledMultiplier
+    public static final int DEFAULT_LEAF_SIZE = 256;
+    public static final int DEFAULT_MAX_DEPTH = 3;
+    private static final int INNER_BLOCK_SIZE = 256; // Rows of the right block kept hot in cache
+
+    /*
+     * The 7 products, on quadrants numbered 0 = (1,1), 1 = (1,2), 2 = (2,1), 3 = (2,2).
+     * An operand is {q} for a quadrant as is, or {q1, q2, sign} for q1 + sign * q2.
+     * RESULT lists the (quadrant, sign) pairs each product is added into; the first product
+     * added into a quadrant overwrites it, so the result needs no clearing.
+     */
+    private static final int[][] PRODUCT_LEFT = {
+            { 0, 3, 1 }, { 2, 3, 1 }, { 0 }, { 3 }, { 0, 1, 1 }, { 2, 0, -1 }, { 1, 3, -1 } };
+    private static final int[][] PRODUCT_RIGHT = {
+            { 0, 3, 1 }, { 0 }, { 1, 3, -1 }, { 2, 0, -1 }, { 3 }, { 0, 1, 1 }, { 2, 3, 1 } };
+    private static final int[][] RESULT = {
+            { 0, 1, 3, 1 }, { 2, 1, 3, -1 }, { 1, 1, 3, 1 }, { 0, 1, 2, 1 }, { 0, -1, 1, 1 }, { 3, 1 }, { 0, 1 } };
+
+    private final int minSize;
+    private final int leafSize;
+    private final int maxDepth;
+
+    public StrassenMultiplier() {
+        this(DEFAULT_MIN_SIZE, DEFAULT_LEAF_SIZE, DEFAULT_MAX_DEPTH);
+    }
+
+    /**
+     * Square products of at least minSize rows are multiplied recursively, until blocks have at most
+     * leafSize rows or maxDepth levels are reached. A maxDepth of 0 turns Strassen off.
+     */
+    public StrassenMultiplier(int minSize, int leafSize, int maxDepth) {
+        if (leafSize <= 0) {
+            throw new IllegalArgumentException("Leaf size must be positive.");
+        }
+        if (minSize <= leafSize) {
+            throw new IllegalArgumentException("Minimum size must be larger than the leaf size.");
+        }
+        if (maxDepth < 0) {
+            throw new IllegalArgumentException("Recursion depth cannot be negative.");
+        }
+        this.minSize = minSize;
+        this.leafSize = leafSize;
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Reads the limits from the lae.strassen.min, lae.strassen.leaf and lae.strassen.depth
+     * system properties, falling back to the defaults for the ones not set.
+     * Settings that do not fit together (e.g. a minimum size below the leaf size) are replaced
+     * by the defaults, with a warning, so a bad property never stops an engine from starting.
+     */
+    public static StrassenMultiplier fromProperties() {
+        int minSize = Integer.getInteger(MIN_SIZE_PROPERTY, DEFAULT_MIN_SIZE);
+        int leafSize = Integer.getInteger(LEAF_SIZE_PROPERTY, DEFAULT_LEAF_SIZE);
+        int maxDepth = Integer.getInteger(DEPTH_PROPERTY, DEFAULT_MAX_DEPTH);
+        try {
+            return new StrassenMultiplier(minSize, leafSize, maxDepth);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Warning: invalid Strassen settings " + MIN_SIZE_PROPERTY + "=" + minSize + ", "
+                    + LEAF_SIZE_PROPERTY + "=" + leafSize + ", " + DEPTH_PROPERTY + "=" + maxDepth + " ("
+                    + e.getMessage() + "); using the defaults.");
+            return new StrassenMultiplier();
+        }
+    }
+
+    public boolean appliesTo(double[][] left, double[][] right) {
+        return maxDepth > 0 && left.length >= minSize && left.length == right.length
+                && left[0].length == right.length && right[0].length == right.length;
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    public int getLeafSize() {
+        return leafSize;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    // Levels of recursion for an n x n product
+    int depthFor(int n) {
+        int depth = 0;
+        for (int size = n; depth < maxDepth && size > leafSize; size = (size + 1) / 2) {
+            depth++;
+        }
+        return depth;
+    }
+
+    /**
+     * Writes left * right into target, overwriting whatever it held. All three must be n x n.
+     * Every batch of tasks is handed to runBatch, which must return only once all of them have finished,
+     * e.g. ComputeExecutor.submitAll; parallelism is the number of workers behind it.
+     */
+    public void multiply(double[][] left, double[][] right, double[][] target, int parallelism,
+            Consumer<List<Runnable>> runBatch) {
+        int n = left.length;
+        if (n == 0 || right.length != n || target.length != n) {
+            throw new IllegalArgumentException("Strassen multiplication needs square matrices of the same size.");
+        }
+        int depth = depthFor(n);
+        int padded = ((n + (1 << depth) - 1) >> depth) << depth;
+        Problem root = new Problem(new View(pad(left, n, padded), 0, padded),
+                new View(pad(right, n, padded), 0, padded), padded);
+
+        int forkDepth = 0;
+        for (long products = 1; forkDepth < depth && products < parallelism; products *= 7) {
+            forkDepth++;
+        }
+
+        // Fork: form the operands of every product, level by level
+        List<List<Problem>> levels = new ArrayList<>();
+        levels.add(List.of(root));
+        for (int level = 0; level < forkDepth; level++) {
+            List<Problem> children = new ArrayList<>();
+            List<Runnable> tasks = new ArrayList<>();
+            for (Problem parent : levels.get(level)) {
+                parent.children = new Problem[7];
+                for (int p = 0; p < 7; p++) {
+                    final int product = p;
+                    tasks.add(() -> parent.fork(product));
+                }
+            }
+            runBatch.accept(tasks);
+            for (Problem parent : levels.get(level)) {
+                children.addAll(List.of(parent.children));
+            }
+            levels.add(children);
+        }
+
+        // Products below the forked levels are computed sequentially, one task each
+        final int remainingDepth = depth - forkDepth;
+        List<Runnable> products = new ArrayList<>();
+        for (Problem leaf : levels.get(forkDepth)) {
+            products.add(() -> multiplyRecursive(leaf.a, leaf.b, new View(leaf.c, 0, leaf.size), leaf.size,
+                    remainingDepth, workspace(leaf.size, remainingDepth)));
+        }
+        runBatch.accept(products);
+
+        // Join: add the products back into their parent's quadrants, deepest level first
+        for (int level = forkDepth - 1; level >= 0; level--) {
+            List<Runnable> tasks = new ArrayList<>();
+            for (Problem parent : levels.get(level)) {
+                for (int q = 0; q < 4; q++) {
+                    final int quadrant = q;
+                    tasks.add(() -> parent.join(quadrant));
+                }
+            }
+            runBatch.accept(tasks);
+            for (Problem parent : levels.get(level)) {
+                parent.children = null;
+            }
+        }
+
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(root.c, i * padded, target[i], 0, n);
+        }
+    }
+
+    // Row-major copy of an n x n matrix in the top-left corner of a padded x padded array
+    private static double[] pad(double[][] matrix, int n, int padded) {
+        double[] data = new double[padded * padded];
+        for (int i = 0; i < n; i++) {
+            if (matrix[i].length != n) {
+                throw new IllegalArgumentException("Strassen multiplication needs square matrices of the same size.");
+            }
+            System.arraycopy(matrix[i], 0, data, i * padded, n);
+        }
+        return data;
+    }
+
+    // Scratch blocks for every level below a size x size product: two operands and one product per level
+    private static double[][][] workspace(int size, int depth) {
+        double[][][] workspace = new double[depth][][];
+        for (int level = depth; level >= 1; level--) {
+            size /= 2;
+            workspace[level - 1] = new double[][] {
+                    new double[size * size], new double[size * size], new double[size * size] };
+        }
+        return workspace;
+    }
+
+    // c = a * b, all size x size; workspace[depth - 1] belongs to this level
+    private void multiplyRecursive(View a, View b, View c, int size, int depth, double[][][] workspace) {
+        if (depth == 0) {
+            multiplyLeaf(a, b, c, size);
+            return;
+        }
+        int half = size / 2;
+        double[][] scratch = workspace[depth - 1];
+        View product = new View(scratch[2], 0, half);
+        boolean[] written = new boolean[4];
+        for (int p = 0; p < 7; p++) {
+            View left = operand(a, PRODUCT_LEFT[p], half, scratch[0]);
+            View right = operand(b, PRODUCT_RIGHT[p], half, scratch[1]);
+            multiplyRecursive(left, right, product, half, depth - 1, workspace);
+            for (int k = 0; k < RESULT[p].length; k += 2) {
+                int quadrant = RESULT[p][k];
+                addInto(product, c.quadrant(quadrant, half), RESULT[p][k + 1], !written[quadrant], half);
+                written[quadrant] = true;
+            }
+        }
+    }
+
+    /*
+     * Cache-blocked c = a * b: c's rows are built up by axpy over a slice of b's rows at a time,
+     * so the slice stays in cache while every row of a walks it.
+     */
+    private static void multiplyLeaf(View a, View b, View c, int size) {
+        VectorKernels kernels = Kernels.get();
+        for (int i = 0; i < size; i++) {
+            Arrays.fill(c.data, c.row(i), c.row(i) + size, 0);
+        }
+        for (int kStart = 0; kStart < size; kStart += INNER_BLOCK_SIZE) {
+            int kEnd = Math.min(kStart + INNER_BLOCK_SIZE, size);
+            for (int i = 0; i < size; i++) {
+                int aRow = a.row(i);
+                int cRow = c.row(i);
+                for (int k = kStart; k < kEnd; k++) {
+                    kernels.axpy(a.data[aRow + k], b.data, b.row(k), c.data, cRow, size);
+                }
+            }
+        }
+    }
+
+    // The quadrant itself, or the sum of two quadrants written into scratch
+    private static View operand(View matrix, int[] spec, int half, double[] scratch) {
+        if (spec.length == 1) {
+            return matrix.quadrant(spec[0], half);
+        }
+        View sum = new View(scratch, 0, half);
+        View first = matrix.quadrant(spec[0], half);
+        View second = matrix.quadrant(spec[1], half);
+        VectorKernels kernels = Kernels.get();
+        for (int i = 0; i < half; i++) {
+            System.arraycopy(first.data, first.row(i), sum.data, sum.row(i), half);
+            kernels.axpy(spec[2], second.data, second.row(i), sum.data, sum.row(i), half);
+        }
+        return sum;
+    }
+
+    // Only sums need a block of their own, single quadrants are used in place
+    private static double[] scratchFor(int[] spec, int half) {
+        return spec.length == 1 ? null : new double[half * half];
+    }
+
+    // dst = sign * src when overwriting, dst += sign * src otherwise
+    private static void addInto(View src, View dst, int sign, boolean overwrite, int size) {
+        VectorKernels kernels = Kernels.get();
+        for (int i = 0; i < size; i++) {
+            if (overwrite) {
+                System.arraycopy(src.data, src.row(i), dst.data, dst.row(i), size);
+                if (sign < 0) {
+                    kernels.negate(dst.data, dst.row(i), size);
+                }
+            } else {
+                kernels.axpy(sign, src.data, src.row(i), dst.data, dst.row(i), size);
+            }
+        }
+    }
+
+    // A square block inside a row-major array: row i starts at data[offset + i * stride]
+    private static final class View {
+        final double[] data;
+        final int offset;
+        final int stride;
+
+        View(double[] data, int offset, int stride) {
+            this.data = data;
+            this.offset = offset;
+            this.stride = stride;
+        }
+
+        int row(int i) {
+            return offset + i * stride;
+        }
+
+        View quadrant(int quadrant, int half) {
+            return new View(data, offset + (quadrant >> 1) * half * stride + (quadrant & 1) * half, stride);
+        }
+    }
+
+    // One node of the forked part of the recursion: c = a * b, all size x size
+    private static final class Problem {
+        final View a;
+        final View b;
+        final int size;
+        final double[] c;
+        Problem[] children;
+
+        Problem(View a, View b, int size) {
+            this.a = a;
+            this.b = b;
+            this.size = size;
+            this.c = new double[size * size];
+        }
+
+        void fork(int p) {
+            int half = size / 2;
+            View left = operand(a, PRODUCT_LEFT[p], half, scratchFor(PRODUCT_LEFT[p], half));
+            View right = operand(b, PRODUCT_RIGHT[p], half, scratchFor(PRODUCT_RIGHT[p], half));
+            children[p] = new Problem(left, right, half);
+        }
+
+        // Adds every product that contributes to the given quadrant of c
+        void join(int quadrant) {
+            int half = size / 2;
+            View dst = new View(c, 0, size).quadrant(quadrant, half);
+            boolean written = false;
+            for (int p = 0; p < 7; p++) {
+                for (int k = 0; k < RESULT[p].length; k += 2) {
+                    if (RESULT[p][k] == quadrant) {
+                        addInto(new View(children[p].c, 0, half), dst, RESULT[p][k + 1], !written, half);
+                        written = true;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package memory;
+
+import java.util.concurrent.locks.StampedLock;
+
+import metrics.EngineMetrics;
+
+/**
+ * A fixed, power-of-two number of StampedLocks shared by the vectors of a SharedMatrix.
+ * Vector i uses stripeFor(i); indices are hashed, so neighbouring rows (which the engine hands to
+ * the same or to consecutive tasks) land on unrelated stripes.
+ *
+ * StampedLocks are not reentrant: a thread must never lock the same stripe twice.
+ * The whole-matrix operations below therefore lock every stripe exactly once, in index order,
+ * instead of going through the vectors.
+ */
+public class StripedLocks {
+
+    private static final int MAX_DEFAULT_STRIPES = 64;
+
+    private final StampedLock[] stripes;
+    private final int mask;
+
+    public StripedLocks(int stripeCount) {
+        if (stripeCount <= 0 || Integer.bitCount(stripeCount) != 1) {
+            throw new IllegalArgumentException("The number of stripes must be a positive power of two.");
+        }
+        this.stripes = new StampedLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new StampedLock();
+        }
+        this.mask = stripeCount - 1;
+    }
+
+    /**
+     * Four stripes per processor, so a stripe is rarely wanted by two workers at once, capped at 64.
+     */
+    public static int defaultStripeCount() {
+        int wanted = Math.min(MAX_DEFAULT_STRIPES, 4 * Runtime.getRuntime().availableProcessors());
+        return Integer.highestOneBit(Math.max(1, wanted - 1)) << 1;
+    }
+
+    public int stripeCount() {
+        return stripes.length;
+    }
+
+    public StampedLock stripeFor(int vectorIndex) {
+        int h = vectorIndex * 0x9E3779B9;
+        return stripes[(h ^ (h >>> 16)) & mask];
+    }
+
+    /**
+     * Returns one optimistic stamp per stripe, or null if a stripe is write-locked right now
+     * (an optimistic read could not succeed anyway).
+     */
+    long[] tryOptimisticReadAll() {
+        long[] stamps = new long[stripes.length];
+        for (int i = 0; i < stripes.length; i++) {
+            stamps[i] = stripes[i].tryOptimisticRead();
+            if (stamps[i] == 0L) {
+                return null;
+            }
+        }
+        return stamps;
+    }
+
+    // True if no stripe has been write-locked since the stamps were taken
+    boolean validateAll(long[] stamps) {
+        for (int i = 0; i < stripes.length; i++) {
+            if (!stripes[i].validate(stamps[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long[] readLockAll() {
+        long[] stamps = new long[stripes.length];
+        for (int i = 0; i < stripes.length; i++) {
+            stamps[i] = stripes[i].tryReadLock();
+            if (stamps[i] == 0L) {
+                long start = System.nanoTime();
+                stamps[i] = stripes[i].readLock();
+                EngineMetrics.global().recordLockWait(System.nanoTime() - start);
+            }
+        }
+        return stamps;
+    }
+
+    void unlockReadAll(long[] stamps) {
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i].unlockRead(stamps[i]);
+        }
+    }
+
+    long[] writeLockAll() {
+        long[] stamps = new long[stripes.length];
+        for (int i = 0; i < stripes.length; i++) {
+            stamps[i] = stripes[i].tryWriteLock();
+            if (stamps[i] == 0L) {
+                long start = System.nanoTime();
+                stamps[i] = stripes[i].writeLock();
+                EngineMetrics.global().recordLockWait(System.nanoTime() - start);
+            }
+        }
+        return stamps;
+    }
+
+    void unlockWriteAll(long[] stamps) {
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i].unlockWrite(stamps[i]);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package memory;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Bounds how many tiles of TiledMatrices are held in the heap at once.
+ * Tile tasks take all the buffers they need in one acquire() call and give them back when done;
+ * a task that would go over the budget waits until enough buffers are returned.
+ * Taking them all at once means two tasks never hold part of their buffers while waiting
+ * for the rest, so a budget of at least MAX_TILES_PER_TASK can never deadlock.
+ *
+ * Returned buffers are reused, so acquired buffers have unspecified contents.
+ */
+public class TileBudget {
+
+    public static final int MAX_TILES_PER_TASK = 3; // A multiply task holds two operand tiles and its result
+
+    private final int maxTiles;
+    private final int tileSize;
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<double[]> free = new ConcurrentLinkedDeque<>();
+
+    public TileBudget(int maxTiles, int tileSize) {
+        if (maxTiles < MAX_TILES_PER_TASK) {
+            throw new IllegalArgumentException("The tile budget must allow at least " + MAX_TILES_PER_TASK + " tiles.");
+        }
+        if (tileSize <= 0 || tileSize > TiledMatrix.MAX_TILE_SIZE) {
+            throw new IllegalArgumentException("Tile size must be between 1 and " + TiledMatrix.MAX_TILE_SIZE + ".");
+        }
+        this.maxTiles = maxTiles;
+        this.tileSize = tileSize;
+        this.permits = new Semaphore(maxTiles, true);
+    }
+
+    /**
+     * Waits until count tile buffers fit in the budget and returns them.
+     */
+    public double[][] acquire(int count) {
+        if (count <= 0 || count > MAX_TILES_PER_TASK) {
+            throw new IllegalArgumentException("A task may hold between 1 and " + MAX_TILES_PER_TASK + " tiles.");
+        }
+        try {
+            permits.acquire(count);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for tile memory.");
+        }
+        double[][] tiles = new double[count][];
+        for (int i = 0; i < count; i++) {
+            double[] tile = free.poll();
+            tiles[i] = tile != null ? tile : new double[tileSize * tileSize];
+        }
+        return tiles;
+    }
+
+    public void release(double[][] tiles) {
+        for (double[] tile : tiles) {
+            free.push(tile);
+        }
+        permits.release(tiles.length);
+    }
+
+    public int getMaxTiles() {
+        return maxTiles;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    // Buffers allocated so far and not in use
+    public int freeTiles() {
+        return free.size();
+    }
+}
@@ -0,0 +1,153 @@
+package memory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Add, negate, transpose and multiply over TiledMatrices, as one task per result tile.
+ * Every task takes its tile buffers from a TileBudget, streams the tiles it needs through them,
+ * writes its result tile and gives the buffers back, so the heap never holds more tiles than the
+ * budget allows, however large the matrices are.
+ *
+ * Every task writes a different tile of the result, so the tasks may run in any order and in parallel.
+ * The result must be a different matrix from the operands, with the same tile size.
+ */
+public final class TileOperations {
+
+    private TileOperations() {}
+
+    public static List<Runnable> addTasks(TiledMatrix left, TiledMatrix right, TiledMatrix result, TileBudget budget) {
+        if (left.getRows() != right.getRows() || left.getColumns() != right.getColumns()) {
+            throw new IllegalArgumentException("Matrices must have the same dimensions for addition.");
+        }
+        checkResult(left, result, left.getRows(), left.getColumns(), budget);
+        checkResult(right, result, left.getRows(), left.getColumns(), budget);
+        List<Runnable> tasks = new ArrayList<>();
+        for (int ti = 0; ti < result.getTileRows(); ti++) {
+            for (int tj = 0; tj < result.getTileColumns(); tj++) {
+                final int row = ti;
+                final int col = tj;
+                tasks.add(() -> {
+                    double[][] tiles = budget.acquire(2);
+                    try {
+                        left.readTile(row, col, tiles[0]);
+                        right.readTile(row, col, tiles[1]);
+                        Kernels.get().add(tiles[0], 0, tiles[1], 0, result.tileElements());
+                        result.writeTile(row, col, tiles[0]);
+                    } finally {
+                        budget.release(tiles);
+                    }
+                });
+            }
+        }
+        return tasks;
+    }
+
+    public static List<Runnable> negateTasks(TiledMatrix operand, TiledMatrix result, TileBudget budget) {
+        checkResult(operand, result, operand.getRows(), operand.getColumns(), budget);
+        List<Runnable> tasks = new ArrayList<>();
+        for (int ti = 0; ti < result.getTileRows(); ti++) {
+            for (int tj = 0; tj < result.getTileColumns(); tj++) {
+                final int row = ti;
+                final int col = tj;
+                tasks.add(() -> {
+                    double[][] tiles = budget.acquire(1);
+                    try {
+                        operand.readTile(row, col, tiles[0]);
+                        Kernels.get().negate(tiles[0], 0, result.tileElements());
+                        result.writeTile(row, col, tiles[0]);
+                    } finally {
+                        budget.release(tiles);
+                    }
+                });
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * Tile (ti, tj) of the operand, transposed, becomes tile (tj, ti) of the result.
+     */
+    public static List<Runnable> transposeTasks(TiledMatrix operand, TiledMatrix result, TileBudget budget) {
+        checkResult(operand, result, operand.getColumns(), operand.getRows(), budget);
+        int size = operand.getTileSize();
+        List<Runnable> tasks = new ArrayList<>();
+        for (int ti = 0; ti < operand.getTileRows(); ti++) {
+            for (int tj = 0; tj < operand.getTileColumns(); tj++) {
+                final int row = ti;
+                final int col = tj;
+                tasks.add(() -> {
+                    double[][] tiles = budget.acquire(2);
+                    try {
+                        operand.readTile(row, col, tiles[0]);
+                        for (int i = 0; i < size; i++) {
+                            for (int j = 0; j < size; j++) {
+                                tiles[1][j * size + i] = tiles[0][i * size + j];
+                            }
+                        }
+                        result.writeTile(col, row, tiles[1]);
+                    } finally {
+                        budget.release(tiles);
+                    }
+                });
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * Result tile (ti, tj) is the sum over k of left tile (ti, k) times right tile (k, tj),
+     * accumulated in place one pair of operand tiles at a time.
+     */
+    public static List<Runnable> multiplyTasks(TiledMatrix left, TiledMatrix right, TiledMatrix result,
+            TileBudget budget) {
+        if (left.getColumns() != right.getRows()) {
+            throw new IllegalArgumentException(
+                    "Number of columns in left matrix must equal number of rows in right matrix for multiplication.");
+        }
+        checkResult(left, result, left.getRows(), right.getColumns(), budget);
+        checkResult(right, result, left.getRows(), right.getColumns(), budget);
+        int size = result.getTileSize();
+        List<Runnable> tasks = new ArrayList<>();
+        for (int ti = 0; ti < result.getTileRows(); ti++) {
+            for (int tj = 0; tj < result.getTileColumns(); tj++) {
+                final int row = ti;
+                final int col = tj;
+                tasks.add(() -> {
+                    double[][] tiles = budget.acquire(3);
+                    double[] sum = tiles[2];
+                    try {
+                        Arrays.fill(sum, 0);
+                        VectorKernels kernels = Kernels.get();
+                        for (int k = 0; k < left.getTileColumns(); k++) {
+                            left.readTile(row, k, tiles[0]);
+                            right.readTile(k, col, tiles[1]);
+                            for (int i = 0; i < size; i++) {
+                                for (int kk = 0; kk < size; kk++) {
+                                    kernels.axpy(tiles[0][i * size + kk], tiles[1], kk * size, sum, i * size, size);
+                                }
+                            }
+                        }
+                        result.writeTile(row, col, sum);
+                    } finally {
+                        budget.release(tiles);
+                    }
+                });
+            }
+        }
+        return tasks;
+    }
+
+    private static void checkResult(TiledMatrix operand, TiledMatrix result, int rows, int cols, TileBudget budget) {
+        if (operand == result) {
+            throw new IllegalArgumentException("The result must not be one of the operands.");
+        }
+        if (result.getRows() != rows || result.getColumns() != cols) {
+            throw new IllegalArgumentException("Result matrix does not have the shape of the result.");
+        }
+        if (operand.getTileSize() != result.getTileSize() || budget.getTileSize() != result.getTileSize()) {
+            throw new IllegalArgumentException("All tiled matrices and the budget must use the same tile size.");
+        }
+    }
+}
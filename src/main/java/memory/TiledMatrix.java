@@ -0,0 +1,270 @@
+package memory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A matrix kept outside the heap, as square tiles in a memory-mapped scratch file.
+ * It is meant for operands and results too large to hold as double[][]; only the tiles being
+ * worked on are copied into the heap, see TileBudget and TileOperations.
+ *
+ * Tile (ti, tj) holds rows [ti * tileSize, (ti + 1) * tileSize) and the same range of columns,
+ * row-major. Tiles on the bottom and right edges are stored at full size, padded with zeros,
+ * so every tile operation works on whole tiles; padding stays zero through add, negate,
+ * transpose and multiply. The file is mapped in windows of whole tiles, created on first use.
+ *
+ * Tiles can be read and written from several threads at once, as long as no tile is written
+ * by one thread while another reads or writes it. close() deletes the scratch file; the matrix
+ * cannot be used afterwards.
+ */
+public class TiledMatrix implements AutoCloseable {
+
+    public static final int DEFAULT_TILE_SIZE = 1024;
+    public static final int MAX_TILE_SIZE = 8192; // A tile must fit in one mapping window
+    private static final long MAX_WINDOW_BYTES = 1L << 30;
+    static final String FILE_PREFIX = "lae-tiles-";
+    static final String FILE_SUFFIX = ".tmp";
+
+    private final Path file;
+    private final FileChannel channel;
+    private final int rows;
+    private final int cols;
+    private final int tileSize;
+    private final int tileRows;
+    private final int tileCols;
+    private final int tilesPerWindow;
+    private final AtomicReferenceArray<DoubleBuffer> windows;
+    private volatile boolean closed = false;
+
+    private TiledMatrix(Path file, FileChannel channel, int rows, int cols, int tileSize) {
+        this.file = file;
+        this.channel = channel;
+        this.rows = rows;
+        this.cols = cols;
+        this.tileSize = tileSize;
+        this.tileRows = (rows + tileSize - 1) / tileSize;
+        this.tileCols = (cols + tileSize - 1) / tileSize;
+        this.tilesPerWindow = (int) Math.max(1, MAX_WINDOW_BYTES / tileBytes());
+        long tiles = (long) tileRows * tileCols;
+        this.windows = new AtomicReferenceArray<>((int) ((tiles + tilesPerWindow - 1) / tilesPerWindow));
+    }
+
+    /**
+     * Creates a zero-filled rows x cols matrix in a new scratch file inside directory.
+     * The file is sparse on file systems that support it, so untouched tiles take no disk space.
+     */
+    public static TiledMatrix create(int rows, int cols, int tileSize, Path directory) throws IOException {
+        if (rows <= 0 || cols <= 0) {
+            throw new IllegalArgumentException("A tiled matrix needs at least one row and one column.");
+        }
+        if (tileSize <= 0 || tileSize > MAX_TILE_SIZE) {
+            throw new IllegalArgumentException("Tile size must be between 1 and " + MAX_TILE_SIZE + ".");
+        }
+        Path file = Files.createTempFile(directory, FILE_PREFIX, FILE_SUFFIX);
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            // Held until close, so a scratch file still in use is never mistaken for a stale one
+            channel.lock();
+            TiledMatrix matrix = new TiledMatrix(file, channel, rows, cols, tileSize);
+            long size = (long) matrix.tileRows * matrix.tileCols * matrix.tileBytes();
+            channel.write(ByteBuffer.allocate(1), size - 1);
+            return matrix;
+        } catch (IOException | RuntimeException e) {
+            if (channel != null) {
+                channel.close();
+            }
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    /**
+     * Deletes file if no live TiledMatrix holds it, i.e. it was left behind by a process that died
+     * before closing its matrices. Returns whether the file was deleted.
+     */
+    static boolean deleteIfStale(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            FileLock lock = channel.tryLock();
+            if (lock == null) {
+                return false; // Locked by another process
+            }
+            Files.delete(file);
+            return true;
+        } catch (OverlappingFileLockException e) {
+            return false; // Locked by a matrix of this process
+        }
+    }
+
+    /**
+     * Copies a dense row-major matrix into a new tiled matrix, one tile at a time.
+     */
+    public static TiledMatrix fromDense(double[][] matrix, int tileSize, Path directory) throws IOException {
+        if (matrix.length == 0 || matrix[0].length == 0) {
+            throw new IllegalArgumentException("Cannot tile an empty matrix.");
+        }
+        TiledMatrix tiled = create(matrix.length, matrix[0].length, tileSize, directory);
+        double[] tile = new double[tiled.tileElements()];
+        for (int ti = 0; ti < tiled.tileRows; ti++) {
+            for (int tj = 0; tj < tiled.tileCols; tj++) {
+                Arrays.fill(tile, 0);
+                int r0 = ti * tileSize;
+                int c0 = tj * tileSize;
+                int width = Math.min(tileSize, tiled.cols - c0);
+                for (int r = 0; r < tileSize && r0 + r < tiled.rows; r++) {
+                    if (matrix[r0 + r].length != tiled.cols) {
+                        tiled.close();
+                        throw new IllegalArgumentException("All rows of a matrix must have the same length.");
+                    }
+                    System.arraycopy(matrix[r0 + r], c0, tile, r * tileSize, width);
+                }
+                tiled.writeTile(ti, tj, tile);
+            }
+        }
+        return tiled;
+    }
+
+    /**
+     * Copies the whole matrix into the heap as a row-major double[][].
+     */
+    public double[][] toDense() {
+        double[][] matrix = new double[rows][cols];
+        double[] tile = new double[tileElements()];
+        for (int ti = 0; ti < tileRows; ti++) {
+            for (int tj = 0; tj < tileCols; tj++) {
+                readTile(ti, tj, tile);
+                int r0 = ti * tileSize;
+                int c0 = tj * tileSize;
+                int width = Math.min(tileSize, cols - c0);
+                for (int r = 0; r < tileSize && r0 + r < rows; r++) {
+                    System.arraycopy(tile, r * tileSize, matrix[r0 + r], c0, width);
+                }
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * Copies tile (ti, tj) into dst, which must hold at least tileElements() doubles.
+     */
+    public void readTile(int ti, int tj, double[] dst) {
+        long index = tileIndex(ti, tj);
+        window(index).get(offsetInWindow(index), dst, 0, tileElements());
+    }
+
+    /**
+     * Overwrites tile (ti, tj) with the first tileElements() doubles of src.
+     * Padding elements (outside the matrix) must be zero.
+     */
+    public void writeTile(int ti, int tj, double[] src) {
+        long index = tileIndex(ti, tj);
+        window(index).put(offsetInWindow(index), src, 0, tileElements());
+    }
+
+    private long tileIndex(int ti, int tj) {
+        if (closed) {
+            throw new IllegalStateException("The tiled matrix has been closed.");
+        }
+        if (ti < 0 || ti >= tileRows || tj < 0 || tj >= tileCols) {
+            throw new IndexOutOfBoundsException("Tile (" + ti + ", " + tj + ") is out of bounds for "
+                    + tileRows + "x" + tileCols + " tiles");
+        }
+        return (long) ti * tileCols + tj;
+    }
+
+    private int offsetInWindow(long tileIndex) {
+        return (int) (tileIndex % tilesPerWindow) * tileElements();
+    }
+
+    // Maps the window holding the tile on first use; the mapping stays until the matrix is closed
+    private DoubleBuffer window(long tileIndex) {
+        int w = (int) (tileIndex / tilesPerWindow);
+        DoubleBuffer window = windows.get(w);
+        if (window != null) {
+            return window;
+        }
+        synchronized (windows) {
+            if (windows.get(w) == null) {
+                long start = (long) w * tilesPerWindow * tileBytes();
+                long tiles = Math.min(tilesPerWindow, (long) tileRows * tileCols - (long) w * tilesPerWindow);
+                try {
+                    windows.set(w, channel.map(FileChannel.MapMode.READ_WRITE, start, tiles * tileBytes())
+                            .order(ByteOrder.nativeOrder()).asDoubleBuffer());
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Cannot map the scratch file " + file, e);
+                }
+            }
+            return windows.get(w);
+        }
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return cols;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    public int getTileRows() {
+        return tileRows;
+    }
+
+    public int getTileColumns() {
+        return tileCols;
+    }
+
+    public int tileElements() {
+        return tileSize * tileSize;
+    }
+
+    private long tileBytes() {
+        return (long) tileElements() * Double.BYTES;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Releases the file and deletes it. Closing twice does nothing.
+     * The mappings themselves are dropped by the garbage collector.
+     */
+    @Override
+    public void close() {
+        synchronized (windows) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (int w = 0; w < windows.length(); w++) {
+                windows.set(w, null);
+            }
+        }
+        try {
+            channel.close();
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot delete the scratch file " + file, e);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package memory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cache-blocked matrix multiplication of two row-major arrays.
+ * The result is split into square blocks and every block is computed by its own task.
+ *
+ * The right operand is packed column-major into a single array when the multiplier is created,
+ * so computing one result element walks a contiguous row of the left operand against a contiguous
+ * column of the right operand. After construction the operands are only read, so the block tasks
+ * can share them without locks. Every block task writes to its own region of the caller's target
+ * matrix, e.g. one taken from a MatrixPool, so blocks never interfere.
+ */
+public class TiledMultiplier {
+
+    public static final int DEFAULT_BLOCK_SIZE = 64; // Rows and columns of result per block
+    private static final int INNER_BLOCK_SIZE = 256; // Inner dimension slice kept hot in cache
+
+    private final double[][] left; // Row-major, not copied
+    private final double[] packedRight; // Column j of the right operand is at [j * inner, (j + 1) * inner)
+    private final double[][] target; // Element (i, j) is at target[i][j]
+    private final MatrixPool pool; // Where packedRight came from
+    private final int rows;
+    private final int inner;
+    private final int cols;
+    private final int blockSize;
+
+    /**
+     * Multiplies row-major arrays without copying the left operand, and writes the product into
+     * target (rows x cols), overwriting whatever it held. The packing buffer for the right operand
+     * comes from pool; call release() once every block task has finished to give it back.
+     * The operands must not change while the multiplier is in use.
+     */
+    public TiledMultiplier(double[][] left, double[][] right, double[][] target, int blockSize, MatrixPool pool) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive.");
+        }
+        if (left == null || right == null || left.length == 0 || right.length == 0 || right[0].length == 0) {
+            throw new IllegalArgumentException("Cannot multiply an empty matrix.");
+        }
+        if (left[0].length != right.length) {
+            throw new IllegalArgumentException(
+                    "Number of columns in left matrix must equal number of rows in right matrix for multiplication.");
+        }
+        for (double[] row : left) {
+            if (row.length != right.length) {
+                throw new IllegalArgumentException("All rows of a matrix must have the same length.");
+            }
+        }
+        for (double[] row : right) {
+            if (row.length != right[0].length) {
+                throw new IllegalArgumentException("All rows of a matrix must have the same length.");
+            }
+        }
+        if (target.length != left.length || target[0].length != right[0].length) {
+            throw new IllegalArgumentException("Target matrix does not have the shape of the product.");
+        }
+        this.left = left;
+        this.rows = left.length;
+        this.inner = right.length;
+        this.cols = right[0].length;
+        this.blockSize = blockSize;
+        this.pool = pool;
+        this.packedRight = packColumnMajor(right, pool.acquireFlat(flatLength(inner, cols)));
+        this.target = target;
+    }
+
+    // Length of a flat array holding a rows x cols matrix, rejected if no array can be that long
+    private static int flatLength(int rows, int cols) {
+        long length = (long) rows * cols;
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many elements for a tiled multiplication.");
+        }
+        return (int) length;
+    }
+
+    private double[] packColumnMajor(double[][] rowMajor, double[] packed) {
+        for (int k = 0; k < inner; k++) {
+            double[] row = rowMajor[k];
+            for (int j = 0; j < cols; j++) {
+                packed[j * inner + k] = row[j];
+            }
+        }
+        return packed;
+    }
+
+    /**
+     * Returns one task per result block. The tasks may run in any order and in parallel.
+     */
+    public List<Runnable> createBlockTasks() {
+        List<Runnable> tasks = new ArrayList<>();
+        for (int rowStart = 0; rowStart < rows; rowStart += blockSize) {
+            for (int colStart = 0; colStart < cols; colStart += blockSize) {
+                final int r0 = rowStart;
+                final int c0 = colStart;
+                final int r1 = Math.min(rowStart + blockSize, rows);
+                final int c1 = Math.min(colStart + blockSize, cols);
+                tasks.add(() -> multiplyBlock(r0, r1, c0, c1));
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * Computes result[rowStart..rowEnd) x [colStart..colEnd).
+     * The inner dimension is walked in slices so the touched parts of both operands stay in cache.
+     */
+    public void multiplyBlock(int rowStart, int rowEnd, int colStart, int colEnd) {
+        VectorKernels kernels = Kernels.get();
+        for (int kStart = 0; kStart < inner; kStart += INNER_BLOCK_SIZE) {
+            int kLength = Math.min(kStart + INNER_BLOCK_SIZE, inner) - kStart;
+            for (int i = rowStart; i < rowEnd; i++) {
+                double[] leftRow = left[i];
+                double[] out = target[i];
+                for (int j = colStart; j < colEnd; j++) {
+                    double partial = kernels.dot(leftRow, kStart, packedRight, j * inner + kStart, kLength);
+                    // The first slice overwrites, so the output needs no clearing beforehand
+                    out[j] = kStart == 0 ? partial : out[j] + partial;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gives the packing buffer back to the pool it came from. The multiplier cannot be used afterwards.
+     */
+    public void release() {
+        pool.releaseFlat(packedRight);
+    }
+
+    /**
+     * Returns the target matrix. Only complete once every block task has finished.
+     */
+    public double[][] getResult() {
+        return target;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return cols;
+    }
+}
@@ -0,0 +1,23 @@
+package memory;
+
+/**
+ * The inner loops of the vector and matrix operations, over contiguous slices of double arrays.
+ * Implementations must give the same results as ScalarKernels up to floating-point rounding.
+ * Use Kernels.get() to obtain the implementation selected for this JVM.
+ */
+public interface VectorKernels {
+
+    // dst[dstOff + i] += src[srcOff + i]
+    void add(double[] dst, int dstOff, double[] src, int srcOff, int length);
+
+    // a[off + i] = -a[off + i]
+    void negate(double[] a, int off, int length);
+
+    // sum of a[aOff + i] * b[bOff + i]
+    double dot(double[] a, int aOff, double[] b, int bOff, int length);
+
+    // y[yOff + i] += alpha * x[xOff + i]
+    void axpy(double alpha, double[] x, int xOff, double[] y, int yOff, int length);
+
+    String name();
+}
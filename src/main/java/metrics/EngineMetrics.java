@@ -0,0 +1,258 @@
+package metrics;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Process-wide counters and histograms for the executor, the engine and the shared memory classes.
+ *
+ * Everything is recorded with lock-free adders, so instrumented code pays a few atomic increments
+ * and, for timed sections, two System.nanoTime() calls. Lock waits are only timed when a lock
+ * is actually contended.
+ * The numbers can be read through JMX (see EngineMetricsMXBean) or dumped as JSON.
+ */
+public final class EngineMetrics implements EngineMetricsMXBean {
+
+    public static final String OBJECT_NAME = "spl.lae:type=EngineMetrics";
+
+    private static final EngineMetrics GLOBAL = new EngineMetrics();
+    private static boolean registered = false;
+
+    private final Histogram taskQueueWait = new Histogram();
+    private final Histogram taskHandoff = new Histogram();
+    private final Histogram taskDuration = new Histogram();
+    private final Histogram lockWait = new Histogram();
+    private final Map<String, Histogram> nodeTimes = new ConcurrentHashMap<>();
+    private final LongAdder bytesLoaded = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+
+    private EngineMetrics() {}
+
+    public static EngineMetrics global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Registers the global metrics with the platform MBean server. Does nothing if already registered
+     * or if JMX is not available.
+     */
+    public static synchronized void registerMBean() {
+        if (registered) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(GLOBAL, name);
+            }
+            registered = true;
+        } catch (JMException | SecurityException e) {
+            System.err.println("Warning: could not register metrics MBean: " + e.getMessage());
+            registered = true;
+        }
+    }
+
+    public void recordTaskQueueWait(long nanos) {
+        taskQueueWait.record(nanos);
+    }
+
+    public void recordTaskHandoff(long nanos) {
+        taskHandoff.record(nanos);
+    }
+
+    public void recordTaskDuration(long nanos) {
+        taskDuration.record(nanos);
+    }
+
+    public void recordLockWait(long nanos) {
+        lockWait.record(nanos);
+    }
+
+    public void recordNode(String nodeType, long nanos) {
+        nodeTimes.computeIfAbsent(nodeType, k -> new Histogram()).record(nanos);
+    }
+
+    public void addBytesLoaded(long bytes) {
+        bytesLoaded.add(bytes);
+    }
+
+    public void addBytesRead(long bytes) {
+        bytesRead.add(bytes);
+    }
+
+    public Histogram taskQueueWait() {
+        return taskQueueWait;
+    }
+
+    public Histogram taskHandoff() {
+        return taskHandoff;
+    }
+
+    public Histogram taskDuration() {
+        return taskDuration;
+    }
+
+    public Histogram lockWait() {
+        return lockWait;
+    }
+
+    // Histogram of evaluation times for one node type, or null if none was evaluated
+    public Histogram nodeTime(String nodeType) {
+        return nodeTimes.get(nodeType);
+    }
+
+    @Override
+    public long getTasksCompleted() {
+        return taskDuration.getCount();
+    }
+
+    @Override
+    public long getTaskQueueWaitMean() {
+        return taskQueueWait.getMean();
+    }
+
+    @Override
+    public long getTaskQueueWaitP99() {
+        return taskQueueWait.percentile(0.99);
+    }
+
+    @Override
+    public long getTaskHandoffMean() {
+        return taskHandoff.getMean();
+    }
+
+    @Override
+    public long getTaskHandoffP99() {
+        return taskHandoff.percentile(0.99);
+    }
+
+    @Override
+    public long getTaskDurationMean() {
+        return taskDuration.getMean();
+    }
+
+    @Override
+    public long getTaskDurationP50() {
+        return taskDuration.percentile(0.5);
+    }
+
+    @Override
+    public long getTaskDurationP99() {
+        return taskDuration.percentile(0.99);
+    }
+
+    @Override
+    public long getTaskDurationMax() {
+        return taskDuration.getMax();
+    }
+
+    @Override
+    public Map<String, Long> getNodeTimeTotals() {
+        Map<String, Long> totals = new TreeMap<>();
+        for (Map.Entry<String, Histogram> entry : nodeTimes.entrySet()) {
+            totals.put(entry.getKey(), entry.getValue().getSum());
+        }
+        return totals;
+    }
+
+    @Override
+    public long getBytesLoaded() {
+        return bytesLoaded.sum();
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    @Override
+    public long getContendedLockCount() {
+        return lockWait.getCount();
+    }
+
+    @Override
+    public long getLockWaitTotal() {
+        return lockWait.getSum();
+    }
+
+    @Override
+    public long getLockWaitP99() {
+        return lockWait.percentile(0.99);
+    }
+
+    @Override
+    public void reset() {
+        taskQueueWait.reset();
+        taskHandoff.reset();
+        taskDuration.reset();
+        lockWait.reset();
+        nodeTimes.clear();
+        bytesLoaded.reset();
+        bytesRead.reset();
+    }
+
+    @Override
+    public String getJson() {
+        StringWriter out = new StringWriter();
+        try (JsonGenerator generator = new JsonFactory().createGenerator(out)) {
+            writeJson(generator);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Writes a snapshot of every metric to filePath as pretty-printed JSON. Times are in nanoseconds.
+     */
+    public void writeJson(String filePath) throws IOException {
+        try (JsonGenerator generator = new JsonFactory().createGenerator(new File(filePath), JsonEncoding.UTF8)) {
+            generator.useDefaultPrettyPrinter();
+            writeJson(generator);
+        }
+    }
+
+    private void writeJson(JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        writeHistogram(generator, "taskQueueWait", taskQueueWait);
+        writeHistogram(generator, "taskHandoff", taskHandoff);
+        writeHistogram(generator, "taskDuration", taskDuration);
+        writeHistogram(generator, "lockWait", lockWait);
+        generator.writeObjectFieldStart("nodeTime");
+        for (Map.Entry<String, Histogram> entry : new TreeMap<>(nodeTimes).entrySet()) {
+            writeHistogram(generator, entry.getKey(), entry.getValue());
+        }
+        generator.writeEndObject();
+        generator.writeNumberField("bytesLoaded", getBytesLoaded());
+        generator.writeNumberField("bytesRead", getBytesRead());
+        generator.writeEndObject();
+    }
+
+    private static void writeHistogram(JsonGenerator generator, String name, Histogram histogram)
+            throws IOException {
+        generator.writeObjectFieldStart(name);
+        generator.writeNumberField("count", histogram.getCount());
+        generator.writeNumberField("total", histogram.getSum());
+        generator.writeNumberField("mean", histogram.getMean());
+        generator.writeNumberField("p50", histogram.percentile(0.5));
+        generator.writeNumberField("p99", histogram.percentile(0.99));
+        generator.writeNumberField("max", histogram.getMax());
+        generator.writeEndObject();
+    }
+}
@@ -0,0 +1,47 @@
+package metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of EngineMetrics, registered as spl.lae:type=EngineMetrics. All times are in nanoseconds.
+ */
+public interface EngineMetricsMXBean {
+
+    long getTasksCompleted();
+
+    // From submission until a worker starts the task
+    long getTaskQueueWaitMean();
+
+    long getTaskQueueWaitP99();
+
+    // Time submit() spends finding a worker and handing the task over
+    long getTaskHandoffMean();
+
+    long getTaskHandoffP99();
+
+    long getTaskDurationMean();
+
+    long getTaskDurationP50();
+
+    long getTaskDurationP99();
+
+    long getTaskDurationMax();
+
+    // Total evaluation time per node type (fused chains count under their top node)
+    Map<String, Long> getNodeTimeTotals();
+
+    long getBytesLoaded();
+
+    long getBytesRead();
+
+    // SharedVector lock acquisitions that had to wait, and how long they waited in total
+    long getContendedLockCount();
+
+    long getLockWaitTotal();
+
+    long getLockWaitP99();
+
+    String getJson();
+
+    void reset();
+}
@@ -0,0 +1,328 @@
+package parser;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.util.Arrays;
+
+import memory.MatrixStorage;
+import memory.ScratchSpace;
+import memory.SharedMatrix;
+import memory.TiledMatrix;
+import memory.VectorOrientation;
+import metrics.EngineMetrics;
+
+/**
+ * Reads and writes matrices in a compact binary format through memory-mapped files.
+ *
+ * Layout (all little-endian):
+ *   bytes 0-3    magic "LAEM"
+ *   bytes 4-7    format version (1)
+ *   bytes 8-11   orientation: 0 = row-major, 1 = column-major
+ *   bytes 12-15  number of rows
+ *   bytes 16-19  number of columns
+ *   bytes 20-23  reserved, 0
+ *   bytes 24-    the elements as doubles, vector after vector in the stored orientation
+ *
+ * Files larger than one mapping (2 GB) are mapped window by window. Files too large for the heap
+ * can be loaded into, and written from, a TiledMatrix instead.
+ */
+public class BinaryMatrixIO {
+
+    public static final String FILE_EXTENSION = ".bin";
+    private static final int MAGIC = 0x4D45414C; // "LAEM" read as a little-endian int
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+    private static final long MAX_WINDOW_BYTES = (Integer.MAX_VALUE / Double.BYTES) * (long) Double.BYTES;
+
+    public BinaryMatrixIO() {}
+
+    /**
+     * Loads a binary matrix file straight into contiguous SharedMatrix storage,
+     * keeping the orientation it was stored in.
+     */
+    public static SharedMatrix load(String filePath) throws IOException, ParseException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            int[] header = readHeader(channel, filePath);
+            VectorOrientation orientation = header[0] == 0 ? VectorOrientation.ROW_MAJOR
+                    : VectorOrientation.COLUMN_MAJOR;
+            int rows = header[1];
+            int cols = header[2];
+            long elements = (long) rows * cols;
+            if (elements > Integer.MAX_VALUE - 8) {
+                throw new ParseException("Binary matrix is too large to load into memory: " + rows + "x" + cols, 12);
+            }
+
+            double[] data = new double[(int) elements];
+            int copied = 0;
+            while (copied < data.length) {
+                long position = HEADER_SIZE + (long) copied * Double.BYTES;
+                long windowBytes = Math.min(MAX_WINDOW_BYTES, (long) (data.length - copied) * Double.BYTES);
+                DoubleBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, windowBytes)
+                        .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+                int count = window.remaining();
+                window.get(data, copied, count);
+                copied += count;
+            }
+
+            SharedMatrix matrix = new SharedMatrix(MatrixStorage.CONTIGUOUS);
+            if (orientation == VectorOrientation.ROW_MAJOR) {
+                matrix.loadFlat(data, rows, cols, orientation);
+            } else {
+                matrix.loadFlat(data, cols, rows, orientation);
+            }
+            return matrix;
+        }
+    }
+
+    // Validates the header and returns {orientation code, rows, cols}
+    private static int[] readHeader(FileChannel channel, String filePath) throws IOException, ParseException {
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(HEADER_SIZE, channel.size()));
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        if (header.remaining() < HEADER_SIZE || header.getInt(0) != MAGIC) {
+            throw new ParseException("Not a binary matrix file: " + filePath, 0);
+        }
+        if (header.getInt(4) != VERSION) {
+            throw new ParseException("Unsupported binary matrix version: " + header.getInt(4), 4);
+        }
+        int orientationCode = header.getInt(8);
+        if (orientationCode != 0 && orientationCode != 1) {
+            throw new ParseException("Invalid orientation in binary matrix file: " + orientationCode, 8);
+        }
+        int rows = header.getInt(12);
+        int cols = header.getInt(16);
+        if (rows <= 0 || cols <= 0) {
+            throw new ParseException("Invalid dimensions in binary matrix file: " + rows + "x" + cols, 12);
+        }
+        if (channel.size() < HEADER_SIZE + (long) rows * cols * Double.BYTES) {
+            throw new ParseException("Binary matrix file is truncated: " + filePath, HEADER_SIZE);
+        }
+        return new int[] { orientationCode, rows, cols };
+    }
+
+    /**
+     * Returns {rows, cols} of a binary matrix file, reading only its header.
+     */
+    public static int[] readDimensions(String filePath) throws IOException, ParseException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            int[] header = readHeader(channel, filePath);
+            return new int[] { header[1], header[2] };
+        }
+    }
+
+    /**
+     * Loads a binary matrix file of any size into a TiledMatrix in scratch, one tile at a time,
+     * so at most one tile of it is in the heap at once.
+     */
+    public static TiledMatrix loadTiled(String filePath, ScratchSpace scratch) throws IOException, ParseException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            int[] header = readHeader(channel, filePath);
+            boolean rowMajor = header[0] == 0;
+            int rows = header[1];
+            int cols = header[2];
+            ElementWindow elements = new ElementWindow(channel, FileChannel.MapMode.READ_ONLY, (long) rows * cols);
+            TiledMatrix tiled = scratch.allocate(rows, cols);
+            try {
+                int size = tiled.getTileSize();
+                double[] tile = new double[tiled.tileElements()];
+                double[] column = new double[size];
+                for (int ti = 0; ti < tiled.getTileRows(); ti++) {
+                    for (int tj = 0; tj < tiled.getTileColumns(); tj++) {
+                        Arrays.fill(tile, 0);
+                        int r0 = ti * size;
+                        int c0 = tj * size;
+                        int height = Math.min(size, rows - r0);
+                        int width = Math.min(size, cols - c0);
+                        if (rowMajor) {
+                            for (int r = 0; r < height; r++) {
+                                int index = elements.locate((long) (r0 + r) * cols + c0, width);
+                                elements.window().get(index, tile, r * size, width);
+                            }
+                        } else {
+                            // Stored column by column: each column of the tile is a contiguous run
+                            for (int c = 0; c < width; c++) {
+                                int index = elements.locate((long) (c0 + c) * rows + r0, height);
+                                elements.window().get(index, column, 0, height);
+                                for (int r = 0; r < height; r++) {
+                                    tile[r * size + c] = column[r];
+                                }
+                            }
+                        }
+                        tiled.writeTile(ti, tj, tile);
+                    }
+                }
+            } catch (RuntimeException | IOException e) {
+                tiled.close();
+                throw e;
+            }
+            EngineMetrics.global().addBytesLoaded((long) rows * cols * Double.BYTES);
+            return tiled;
+        }
+    }
+
+    /**
+     * Loads a binary matrix file as a row-major double[][], the form ComputationNode holds.
+     * Elements are copied from the mapped file straight into the rows, without a SharedMatrix in between.
+     */
+    public static double[][] loadRowMajor(String filePath) throws IOException, ParseException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            int[] header = readHeader(channel, filePath);
+            int rows = header[1];
+            int cols = header[2];
+            ElementWindow elements = new ElementWindow(channel, FileChannel.MapMode.READ_ONLY, (long) rows * cols);
+            double[][] matrix = new double[rows][cols];
+            if (header[0] == 0) {
+                for (int r = 0; r < rows; r++) {
+                    elements.read((long) r * cols, matrix[r], 0, cols);
+                }
+            } else {
+                // Stored column by column: each column is read as one run and scattered over the rows
+                double[] column = new double[rows];
+                for (int c = 0; c < cols; c++) {
+                    elements.read((long) c * rows, column, 0, rows);
+                    for (int r = 0; r < rows; r++) {
+                        matrix[r][c] = column[r];
+                    }
+                }
+            }
+            EngineMetrics.global().addBytesLoaded((long) rows * cols * Double.BYTES);
+            return matrix;
+        }
+    }
+
+    public static void write(double[][] matrix, String filePath) throws IOException {
+        write(new SharedMatrix(matrix), filePath);
+    }
+
+    /**
+     * Writes the matrix in its current orientation, one vector at a time, through a mapped file.
+     */
+    public static void write(SharedMatrix matrix, String filePath) throws IOException {
+        if (matrix.length() == 0) {
+            throw new IllegalArgumentException("Cannot write an empty matrix.");
+        }
+        VectorOrientation orientation = matrix.getOrientation();
+        int vectorCount = matrix.length();
+        int vectorLength = matrix.get(0).length();
+        int rows = orientation == VectorOrientation.ROW_MAJOR ? vectorCount : vectorLength;
+        int cols = orientation == VectorOrientation.ROW_MAJOR ? vectorLength : vectorCount;
+        long dataBytes = (long) vectorCount * vectorLength * Double.BYTES;
+
+        Path path = Paths.get(filePath);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(orientation == VectorOrientation.ROW_MAJOR ? 0 : 1)
+                    .putInt(rows).putInt(cols).putInt(0);
+
+            // A vector may straddle two mapping windows, so it is written in as many pieces as needed
+            double[] vector = new double[vectorLength];
+            DoubleBuffer window = null;
+            long position = HEADER_SIZE;
+            long remainingBytes = dataBytes;
+            for (int v = 0; v < vectorCount; v++) {
+                matrix.get(v).copyInto(vector, 0);
+                int done = 0;
+                while (done < vectorLength) {
+                    if (window == null || !window.hasRemaining()) {
+                        long windowBytes = Math.min(MAX_WINDOW_BYTES, remainingBytes);
+                        window = channel.map(FileChannel.MapMode.READ_WRITE, position, windowBytes)
+                                .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+                        position += windowBytes;
+                        remainingBytes -= windowBytes;
+                    }
+                    int count = Math.min(window.remaining(), vectorLength - done);
+                    window.put(vector, done, count);
+                    done += count;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a tiled matrix row-major, one tile at a time, so it never has to fit in the heap.
+     */
+    public static void write(TiledMatrix matrix, String filePath) throws IOException {
+        int rows = matrix.getRows();
+        int cols = matrix.getColumns();
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(0).putInt(rows).putInt(cols).putInt(0);
+
+            ElementWindow elements = new ElementWindow(channel, FileChannel.MapMode.READ_WRITE, (long) rows * cols);
+            int size = matrix.getTileSize();
+            double[] tile = new double[matrix.tileElements()];
+            for (int ti = 0; ti < matrix.getTileRows(); ti++) {
+                for (int tj = 0; tj < matrix.getTileColumns(); tj++) {
+                    matrix.readTile(ti, tj, tile);
+                    int r0 = ti * size;
+                    int c0 = tj * size;
+                    int width = Math.min(size, cols - c0);
+                    for (int r = 0; r < size && r0 + r < rows; r++) {
+                        int index = elements.locate((long) (r0 + r) * cols + c0, width);
+                        elements.window().put(index, tile, r * size, width);
+                    }
+                }
+            }
+        }
+    }
+
+    /*
+     * Element-addressed access to the data section of a file. The mapped window is moved
+     * whenever a run of elements does not fit in it, so files of any size can be walked
+     * in any order, as long as a single run fits in one window.
+     */
+    private static final class ElementWindow {
+        private final FileChannel channel;
+        private final FileChannel.MapMode mode;
+        private final long elementCount;
+        private DoubleBuffer window;
+        private long first; // Element held at window index 0
+
+        ElementWindow(FileChannel channel, FileChannel.MapMode mode, long elementCount) {
+            this.channel = channel;
+            this.mode = mode;
+            this.elementCount = elementCount;
+        }
+
+        // Returns the index in window() of element, with count elements mapped from there on
+        int locate(long element, int count) throws IOException {
+            if (window == null || element < first || element + count > first + window.capacity()) {
+                long length = Math.min(MAX_WINDOW_BYTES / Double.BYTES, elementCount - element);
+                window = channel.map(mode, HEADER_SIZE + element * Double.BYTES, length * Double.BYTES)
+                        .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+                first = element;
+            }
+            return (int) (element - first);
+        }
+
+        DoubleBuffer window() {
+            return window;
+        }
+
+        // Copies count elements from element on into dst[off..], in as many windows as it takes
+        void read(long element, double[] dst, int off, int count) throws IOException {
+            int maxRun = (int) (MAX_WINDOW_BYTES / Double.BYTES);
+            int done = 0;
+            while (done < count) {
+                int run = Math.min(maxRun, count - done);
+                int index = locate(element + done, run);
+                window.get(index, dst, off + done, run);
+                done += run;
+            }
+        }
+    }
+
+    public static boolean isBinaryMatrixPath(String filePath) {
+        return filePath.toLowerCase().endsWith(FILE_EXTENSION);
+    }
+}
@@ -2,11 +2,16 @@ package parser;
 
 import java.util.List;
 
+import memory.SparseMatrix;
+import memory.TiledMatrix;
+
 public class ComputationNode {
 
     private ComputationNodeType nodeType;
     private List<ComputationNode> children = null;
     private double[][] matrix = null; // only used for MATRIX nodes
+    private SparseMatrix sparseMatrix = null; // MATRIX nodes kept in sparse form instead of matrix
+    private TiledMatrix tiledMatrix = null; // MATRIX nodes kept out of core instead of matrix
 
     public ComputationNode(String operatorStr, List<ComputationNode> children) throws IllegalArgumentException {
         this.nodeType = mapOperator(operatorStr);
@@ -38,6 +43,16 @@ public class ComputationNode {
         this.matrix = matrix;
     }
 
+    public ComputationNode(SparseMatrix sparseMatrix) {
+        this.nodeType = ComputationNodeType.MATRIX;
+        this.sparseMatrix = sparseMatrix;
+    }
+
+    public ComputationNode(TiledMatrix tiledMatrix) {
+        this.nodeType = ComputationNodeType.MATRIX;
+        this.tiledMatrix = tiledMatrix;
+    }
+
     public ComputationNodeType getNodeType() {
         return nodeType;
     }
@@ -88,14 +103,80 @@ public class ComputationNode {
         this.nodeType = ComputationNodeType.MATRIX;
         this.children = null;
         this.matrix = matrix;
+        this.sparseMatrix = null;
+        this.tiledMatrix = null;
+    }
+
+    /**
+     * Same as resolve(double[][]), keeping the result in sparse form.
+     */
+    public void resolve(SparseMatrix sparseMatrix) {
+        this.nodeType = ComputationNodeType.MATRIX;
+        this.children = null;
+        this.matrix = null;
+        this.sparseMatrix = sparseMatrix;
+        this.tiledMatrix = null;
+    }
+
+    /**
+     * Same as resolve(double[][]), keeping the result out of core.
+     */
+    public void resolve(TiledMatrix tiledMatrix) {
+        this.nodeType = ComputationNodeType.MATRIX;
+        this.children = null;
+        this.matrix = null;
+        this.sparseMatrix = null;
+        this.tiledMatrix = tiledMatrix;
     }
 
+    /**
+     * Returns the matrix in dense row-major form. Sparse and out-of-core nodes are expanded on every call,
+     * so callers that can work on those forms should check isSparse() and isTiled() first.
+     */
     public double[][] getMatrix() {
+        if (sparseMatrix != null) {
+            return sparseMatrix.toDense();
+        }
+        if (tiledMatrix != null) {
+            return tiledMatrix.toDense();
+        }
         if (matrix == null) {
             throw new IllegalStateException("This node does not contain a matrix.");
         }
         return matrix;
     }
 
+    /**
+     * Hands this node's dense matrix over to the caller, for example to recycle its arrays,
+     * and leaves the node without a matrix: getMatrix() throws from now on.
+     * Returns null if the node holds no dense matrix.
+     */
+    public double[][] releaseMatrix() {
+        double[][] released = matrix;
+        matrix = null;
+        return released;
+    }
+
+    public boolean isSparse() {
+        return sparseMatrix != null;
+    }
+
+    public SparseMatrix getSparseMatrix() {
+        if (sparseMatrix == null) {
+            throw new IllegalStateException("This node does not contain a sparse matrix.");
+        }
+        return sparseMatrix;
+    }
+
+    public boolean isTiled() {
+        return tiledMatrix != null;
+    }
+
+    public TiledMatrix getTiledMatrix() {
+        if (tiledMatrix == null) {
+            throw new IllegalStateException("This node does not contain a tiled matrix.");
+        }
+        return tiledMatrix;
+    }
 
 }
\ No newline at end of file
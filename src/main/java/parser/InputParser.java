@@ -1,39 +1,118 @@
 package parser;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.text.ParseException;
 import java.util.*;
 
+import memory.ScratchSpace;
+import memory.SparseMatrix;
+
 public class InputParser {
 
+    public static final String SPARSE_THRESHOLD_PROPERTY = "lae.sparse.threshold";
+
     private final ObjectMapper mapper = new ObjectMapper();
+    private final boolean streaming;
+    private final double sparseThreshold;
+    private final ScratchSpace scratch; // null when every operand is loaded into the heap
+
+    public InputParser() {
+        this(false);
+    }
+
+    /**
+     * In streaming mode the input is read token by token, and numbers go straight into the
+     * matrix arrays without building a JsonNode tree of the whole document first.
+     */
+    public InputParser(boolean streaming) {
+        this(streaming, 0);
+    }
+
+    /**
+     * Non-zero elements are counted while each operand matrix is read. Matrices with a density
+     * (non-zeros / elements) of at most sparseThreshold are stored as SparseMatrix, so the engine
+     * uses sparse kernels for them. A threshold of 0 (the default) keeps every matrix dense.
+     *
+     * Sparse kernels skip zero elements, so their results may differ from the dense path on
+     * signed zeros and non-finite values: -Z of an all-zero Z gives 0.0 instead of -0.0,
+     * and 0 * Infinity or 0 * NaN contributes nothing instead of NaN.
+     */
+    public InputParser(boolean streaming, double sparseThreshold) {
+        this(streaming, sparseThreshold, null);
+    }
+
+    /**
+     * Binary matrix files large enough to spill into scratch are loaded straight into a TiledMatrix
+     * there, without ever being held in the heap. Inline JSON matrices are always loaded into the heap.
+     */
+    public InputParser(boolean streaming, double sparseThreshold, ScratchSpace scratch) {
+        if (sparseThreshold < 0 || sparseThreshold > 1) {
+            throw new IllegalArgumentException("Sparse threshold must be between 0 and 1.");
+        }
+        this.streaming = streaming;
+        this.sparseThreshold = sparseThreshold;
+        this.scratch = scratch;
+    }
+
+    /**
+     * Reads the lae.sparse.threshold system property, e.g. 0.05 to store matrices with at most 5%
+     * non-zeros as SparseMatrix. Sparse storage is off (0) unless the property is set;
+     * values outside [0, 1] are ignored with a warning.
+     */
+    public static double sparseThresholdFromProperties() {
+        String value = System.getProperty(SPARSE_THRESHOLD_PROPERTY);
+        if (value == null || value.isEmpty()) {
+            return 0;
+        }
+        try {
+            double threshold = Double.parseDouble(value);
+            if (threshold >= 0 && threshold <= 1) {
+                return threshold;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        System.err.println("Warning: " + SPARSE_THRESHOLD_PROPERTY + " must be between 0 and 1, got '" + value
+                + "'; keeping every matrix dense.");
+        return 0;
+    }
 
     public ComputationNode parse(String inputPath) throws ParseException {
+        if (streaming) {
+            return parseStreaming(inputPath);
+        }
         try {
             File inputFile = new File(inputPath);
             JsonNode rootJsonNode = mapper.readTree(inputFile);
-            ComputationNode root = parseJsonNode(rootJsonNode);
+            ComputationNode root = parseJsonNode(rootJsonNode, baseDirectoryOf(inputFile));
             return root;
         } catch (IOException e) {
             throw new ParseException("Failed to read the input JSON file: " + e.getMessage(), 0);
         }
     }
 
-    private ComputationNode parseJsonNode(JsonNode jsonNode) throws ParseException {
+    private ComputationNode parseJsonNode(JsonNode jsonNode, Path baseDirectory) throws ParseException {
         if (jsonNode.has("operator") && jsonNode.has("operands")) {
             String operatorStr = jsonNode.get("operator").asText();
             ArrayNode operandJsonNodes = (ArrayNode) jsonNode.get("operands");
             List<ComputationNode> operands = new ArrayList<>();
             for (int i = 0; i < operandJsonNodes.size(); i++) {
-                operands.add(parseJsonNode(operandJsonNodes.get(i)));
+                operands.add(parseJsonNode(operandJsonNodes.get(i), baseDirectory));
             }
             return new ComputationNode(operatorStr, operands);
         }
+        else if (jsonNode.has("file")) {
+            return loadMatrixFile(jsonNode.get("file").asText(), baseDirectory);
+        }
         else if (jsonNode.isArray()) {
             if (jsonNode.size() == 0) {
                 throw new ParseException("Empty array cannot be parsed as DataNode.", 0);
@@ -46,6 +125,7 @@ public class InputParser {
             else {
                 double[][] matrix = new double[jsonNode.size()][];
                 int width = jsonNode.get(0).size();
+                long nonZeros = 0;
                 for (int i = 0; i < jsonNode.size(); i++) {
                     JsonNode rowJsonNode = jsonNode.get(i);
                     if (rowJsonNode.size() != width) {
@@ -57,12 +137,198 @@ public class InputParser {
                     matrix[i] = new double[rowJsonNode.size()];
                     for (int j = 0; j < rowJsonNode.size(); j++) {
                         matrix[i][j] = rowJsonNode.get(j).asDouble();
+                        if (matrix[i][j] != 0) {
+                            nonZeros++;
+                        }
                     }
                 }
-                return new ComputationNode(matrix);
+                return matrixNode(matrix, nonZeros);
             }
         }
         else { throw new ParseException("Invalid node structure: " + jsonNode.toString(), 0); }
     }
 
-}
\ No newline at end of file
+    /**
+     * Builds the ComputationNode tree in a single pass over the token stream.
+     * Accepts the same documents as the tree-based parser.
+     */
+    public ComputationNode parseStreaming(String inputPath) throws ParseException {
+        JsonFactory factory = mapper.getFactory();
+        File inputFile = new File(inputPath);
+        try (JsonParser jsonParser = factory.createParser(inputFile)) {
+            if (jsonParser.nextToken() == null) {
+                throw new ParseException("Input JSON file is empty.", 0);
+            }
+            return parseStreamingNode(jsonParser, baseDirectoryOf(inputFile));
+        } catch (IOException e) {
+            throw new ParseException("Failed to read the input JSON file: " + e.getMessage(), 0);
+        }
+    }
+
+    // Expects the parser to be positioned on the first token of the node
+    private ComputationNode parseStreamingNode(JsonParser jsonParser, Path baseDirectory)
+            throws IOException, ParseException {
+        JsonToken token = jsonParser.currentToken();
+        if (token == JsonToken.START_OBJECT) {
+            return parseStreamingObject(jsonParser, baseDirectory);
+        }
+        if (token == JsonToken.START_ARRAY) {
+            return parseStreamingMatrix(jsonParser);
+        }
+        throw new ParseException("Invalid node structure: " + jsonParser.getText(), offsetOf(jsonParser));
+    }
+
+    // An object is either an operator with its operands, or a reference to a binary matrix file
+    private ComputationNode parseStreamingObject(JsonParser jsonParser, Path baseDirectory)
+            throws IOException, ParseException {
+        int startOffset = offsetOf(jsonParser);
+        String operatorStr = null;
+        String matrixFile = null;
+        List<ComputationNode> operands = null;
+        while (jsonParser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = jsonParser.currentName();
+            JsonToken valueToken = jsonParser.nextToken();
+            if (field.equals("operator")) {
+                operatorStr = jsonParser.getValueAsString();
+                if (operatorStr == null) {
+                    throw new ParseException("Operator must be a string.", offsetOf(jsonParser));
+                }
+            } else if (field.equals("operands")) {
+                if (valueToken != JsonToken.START_ARRAY) {
+                    throw new ParseException("Operands must be an array.", offsetOf(jsonParser));
+                }
+                operands = new ArrayList<>();
+                while (jsonParser.nextToken() != JsonToken.END_ARRAY) {
+                    operands.add(parseStreamingNode(jsonParser, baseDirectory));
+                }
+            } else if (field.equals("file")) {
+                matrixFile = jsonParser.getValueAsString();
+                if (matrixFile == null) {
+                    throw new ParseException("Matrix file name must be a string.", offsetOf(jsonParser));
+                }
+            } else {
+                jsonParser.skipChildren();
+            }
+        }
+        if ((operatorStr == null || operands == null) && matrixFile != null) {
+            return loadMatrixFile(matrixFile, baseDirectory);
+        }
+        if (operatorStr == null || operands == null) {
+            throw new ParseException("Invalid node structure: object needs both \"operator\" and \"operands\".",
+                    startOffset);
+        }
+        return new ComputationNode(operatorStr, operands);
+    }
+
+    /*
+     * The first row is collected into a growing buffer to learn the width.
+     * Every following row is allocated at that width up front and filled in place.
+     */
+    private ComputationNode parseStreamingMatrix(JsonParser jsonParser) throws IOException, ParseException {
+        JsonToken token = jsonParser.nextToken();
+        if (token == JsonToken.END_ARRAY) {
+            throw new ParseException("Empty array cannot be parsed as DataNode.", offsetOf(jsonParser));
+        }
+        if (token != null && token.isNumeric()) {
+            throw new ParseException("Vectors (1D arrays) are not supported as standalone nodes.", offsetOf(jsonParser));
+        }
+        List<double[]> rows = new ArrayList<>();
+        int width = -1;
+        long nonZeros = 0;
+        while (token != JsonToken.END_ARRAY) {
+            if (token != JsonToken.START_ARRAY) {
+                throw new ParseException("Invalid matrix row: " + jsonParser.getText(), offsetOf(jsonParser));
+            }
+            double[] row;
+            if (width < 0) {
+                row = readFirstRow(jsonParser);
+                width = row.length;
+                for (double value : row) {
+                    if (value != 0) {
+                        nonZeros++;
+                    }
+                }
+            } else {
+                row = new double[width];
+                int j = 0;
+                while ((token = jsonParser.nextToken()) != JsonToken.END_ARRAY) {
+                    if (j == width) {
+                        throw new ParseException("Inconsistent row sizes in matrix.", offsetOf(jsonParser));
+                    }
+                    double value = readNumber(jsonParser, token);
+                    if (value != 0) {
+                        nonZeros++;
+                    }
+                    row[j++] = value;
+                }
+                if (j != width) {
+                    throw new ParseException("Inconsistent row sizes in matrix.", offsetOf(jsonParser));
+                }
+            }
+            rows.add(row);
+            token = jsonParser.nextToken();
+        }
+        return matrixNode(rows.toArray(new double[rows.size()][]), nonZeros);
+    }
+
+    // Picks the storage for a parsed matrix from its measured density
+    private ComputationNode matrixNode(double[][] matrix, long nonZeros) {
+        double elements = (double) matrix.length * matrix[0].length;
+        if (sparseThreshold > 0 && elements > 0 && nonZeros <= sparseThreshold * elements) {
+            return new ComputationNode(SparseMatrix.fromDense(matrix));
+        }
+        return new ComputationNode(matrix);
+    }
+
+    private double[] readFirstRow(JsonParser jsonParser) throws IOException, ParseException {
+        double[] buffer = new double[16];
+        int size = 0;
+        JsonToken token;
+        while ((token = jsonParser.nextToken()) != JsonToken.END_ARRAY) {
+            if (size == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            buffer[size++] = readNumber(jsonParser, token);
+        }
+        return Arrays.copyOf(buffer, size);
+    }
+
+    private double readNumber(JsonParser jsonParser, JsonToken token) throws IOException, ParseException {
+        if (token == null || !token.isNumeric()) {
+            throw new ParseException("Invalid matrix element: " + jsonParser.getText(), offsetOf(jsonParser));
+        }
+        return jsonParser.getDoubleValue();
+    }
+
+    private Path baseDirectoryOf(File inputFile) {
+        File parent = inputFile.getAbsoluteFile().getParentFile();
+        return parent == null ? null : parent.toPath();
+    }
+
+    /**
+     * Loads a {"file": ...} operand. Relative paths are resolved against the input file's directory.
+     */
+    private ComputationNode loadMatrixFile(String fileName, Path baseDirectory) throws ParseException {
+        Path path = Path.of(fileName);
+        if (!path.isAbsolute() && baseDirectory != null) {
+            path = baseDirectory.resolve(path);
+        }
+        try {
+            if (scratch != null) {
+                int[] dimensions = BinaryMatrixIO.readDimensions(path.toString());
+                if (scratch.shouldSpill((long) dimensions[0] * dimensions[1])) {
+                    return new ComputationNode(BinaryMatrixIO.loadTiled(path.toString(), scratch));
+                }
+            }
+            double[][] matrix = BinaryMatrixIO.loadRowMajor(path.toString());
+            return matrixNode(matrix, SparseMatrix.countNonZeros(matrix));
+        } catch (IOException e) {
+            throw new ParseException("Failed to read matrix file " + fileName + ": " + e.getMessage(), 0);
+        }
+    }
+
+    private int offsetOf(JsonParser jsonParser) {
+        long offset = jsonParser.currentTokenLocation().getCharOffset();
+        return offset < 0 || offset > Integer.MAX_VALUE ? 0 : (int) offset;
+    }
+}
@@ -1,13 +1,27 @@
 package parser;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 
+import memory.SharedMatrix;
+import memory.SharedVector;
+import memory.VectorOrientation;
+
 public class OutputWriter {
 
     private static final ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+    public static final String COMPACT_PROPERTY = "lae.output.compact";
 
     public static class ResultMatrix {
         public double[][] result;
@@ -22,8 +36,68 @@ public class OutputWriter {
     public OutputWriter() {}
 
     public static void write(double[][] matrix, String filePath) throws IOException {
-        File file = new File(filePath);
-        mapper.writerWithDefaultPrettyPrinter().writeValue(file, new ResultMatrix(matrix));
+        write(matrix, filePath, true);
+    }
+
+    /**
+     * Reads the lae.output.compact system property. Results are pretty-printed unless it is true,
+     * e.g. -Dlae.output.compact=true to write large results without indentation or line breaks.
+     */
+    public static boolean prettyFromProperties() {
+        return !Boolean.parseBoolean(System.getProperty(COMPACT_PROPERTY));
+    }
+
+    /**
+     * Streams the result row by row instead of serializing one ResultMatrix object.
+     * With pretty == false the output has no indentation or line breaks.
+     */
+    public static void write(double[][] matrix, String filePath, boolean pretty) throws IOException {
+        try (JsonGenerator generator = openResultGenerator(filePath, pretty)) {
+            for (double[] row : matrix) {
+                generator.writeArray(row, 0, row.length);
+            }
+            closeResult(generator);
+        }
+    }
+
+    /**
+     * Streams a SharedMatrix straight to the file. A row-major matrix is copied out one row at a time
+     * into a single reused buffer, so the first rows are written before the rest has been read.
+     */
+    public static void write(SharedMatrix matrix, String filePath, boolean pretty) throws IOException {
+        if (matrix.getOrientation() != VectorOrientation.ROW_MAJOR) {
+            write(matrix.readRowMajor(), filePath, pretty);
+            return;
+        }
+        try (JsonGenerator generator = openResultGenerator(filePath, pretty)) {
+            double[] row = new double[matrix.length() == 0 ? 0 : matrix.get(0).length()];
+            for (int i = 0; i < matrix.length(); i++) {
+                SharedVector vector = matrix.get(i);
+                vector.copyInto(row, 0);
+                generator.writeArray(row, 0, vector.length());
+            }
+            closeResult(generator);
+        }
+    }
+
+    // Opens {"result": [ on a buffered channel; the caller writes the rows
+    private static JsonGenerator openResultGenerator(String filePath, boolean pretty) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), OUTPUT_BUFFER_SIZE);
+        JsonGenerator generator = mapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+        if (pretty) {
+            generator.useDefaultPrettyPrinter();
+        }
+        generator.writeStartObject();
+        generator.writeFieldName("result");
+        generator.writeStartArray();
+        return generator;
+    }
+
+    private static void closeResult(JsonGenerator generator) throws IOException {
+        generator.writeEndArray();
+        generator.writeEndObject();
     }
 
     public static void write(String error, String filePath) throws IOException {
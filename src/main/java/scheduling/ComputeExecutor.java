@@ -0,0 +1,50 @@
+package scheduling;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * What LinearAlgebraEngine needs from an executor: a pool of workers for CPU-bound kernel tasks,
+ * and threads for orchestration and I/O (work that mostly waits on latches, files and sockets).
+ *
+ * The system property lae.executor selects the implementation used by create():
+ * "platform" (the default) for TiredExecutor, "virtual" for VirtualThreadExecutor.
+ */
+public interface ComputeExecutor {
+
+    String PROPERTY = "lae.executor";
+
+    static ComputeExecutor create(int numThreads, DispatchMode mode) {
+        String choice = System.getProperty(PROPERTY, "platform");
+        switch (choice) {
+            case "virtual":
+                return new VirtualThreadExecutor(numThreads, mode);
+            case "platform":
+                return new TiredExecutor(numThreads, mode);
+            default:
+                System.err.println("Warning: unknown " + PROPERTY + " value '" + choice + "'; using platform.");
+                return new TiredExecutor(numThreads, mode);
+        }
+    }
+
+    // Number of workers running kernel tasks
+    int getWorkerCount();
+
+    void submit(Runnable task);
+
+    // Submits the tasks and waits until all of them finished
+    void submitAll(Iterable<Runnable> tasks);
+
+    TaskBatch submitBatch(Iterable<Runnable> tasks);
+
+    long getDispatchCostNanos();
+
+    /**
+     * Creates threads for orchestration and I/O. They never run kernel tasks themselves,
+     * and they do not keep the JVM alive.
+     */
+    ThreadFactory getThreadFactory();
+
+    void shutdown() throws InterruptedException;
+
+    String getWorkerReport();
+}
@@ -0,0 +1,10 @@
+package scheduling;
+/**
+ * How a TiredExecutor hands tasks to its workers.
+ * HANDOFF blocks the submitter until a worker is idle and passes it exactly one task.
+ * WORK_STEALING queues tasks on the workers' own deques without blocking, and idle workers steal from busy ones.
+ */
+public enum DispatchMode {
+    HANDOFF,
+    WORK_STEALING
+}
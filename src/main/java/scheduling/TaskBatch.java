@@ -0,0 +1,67 @@
+package scheduling;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Completion handle for a group of tasks submitted together.
+ * Each batch counts only its own tasks, so callers submitting batches concurrently
+ * never wait for each other, and a waiting caller wakes up as soon as its last task finishes.
+ * The first failure thrown by any task of the batch is kept and rethrown to the waiting caller.
+ */
+public class TaskBatch {
+
+    private final CountDownLatch remaining;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>(null);
+
+    public TaskBatch(int size) {
+        this.remaining = new CountDownLatch(size);
+    }
+
+    /**
+     * Called by the executor once per task, after the task finished (failed tasks pass their exception).
+     */
+    void taskFinished(Throwable taskFailure) {
+        if (taskFailure != null) {
+            failure.compareAndSet(null, taskFailure);
+        }
+        remaining.countDown();
+    }
+
+    public boolean isDone() {
+        return remaining.getCount() == 0;
+    }
+
+    /**
+     * Blocks until every task of the batch has finished, then rethrows the first task failure, if any.
+     */
+    public void await() throws InterruptedException {
+        remaining.await();
+        rethrowFailure();
+    }
+
+    /**
+     * Same as await(), giving up after the timeout. Returns whether the batch finished in time.
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        if (!remaining.await(timeout, unit)) {
+            return false;
+        }
+        rethrowFailure();
+        return true;
+    }
+
+    private void rethrowFailure() {
+        Throwable t = failure.get();
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        if (t != null) {
+            throw new IllegalStateException(t);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package scheduling;
+
+/**
+ * Decides how to cut a rows x cols grid of work into tasks.
+ *
+ * Every task pays a fixed dispatch cost (taking a worker from the heap, wrapping the task, the handoff),
+ * so a task should do many times that much work, but there should still be a few tasks per worker
+ * so that a slow (tired) worker does not hold up the whole batch. Batches get at least one task per worker
+ * only when each worker's share pays for its dispatch; smaller batches get fewer tasks, down to a single one.
+ * Rows are grouped into chunks when there are many short rows; when there are fewer rows than tasks
+ * and the caller allows it, rows are split into column ranges instead.
+ *
+ * Work is counted in units of roughly one nanosecond, about one multiply-add on one element.
+ */
+public class TaskPartitioner {
+
+    public static final long DEFAULT_DISPATCH_COST_NANOS = 5_000;
+    private static final long MIN_DISPATCH_COST_NANOS = 500;
+    private static final long MAX_DISPATCH_COST_NANOS = 200_000;
+    private static final int OVERHEAD_RATIO = 16; // A task does at least this many times its dispatch cost
+    private static final int TASKS_PER_WORKER = 4;
+    private static final int COLUMN_ALIGNMENT = 8; // Column ranges start on (roughly) cache line boundaries
+
+    private final int workers;
+    private final long dispatchCostNanos;
+
+    /**
+     * A uniform grid of tasks: each task covers rowsPerTask rows and colsPerTask columns
+     * (the last ones in each direction may be smaller).
+     */
+    public static class Grid {
+        private final int rowsPerTask;
+        private final int colsPerTask;
+
+        Grid(int rowsPerTask, int colsPerTask) {
+            this.rowsPerTask = rowsPerTask;
+            this.colsPerTask = colsPerTask;
+        }
+
+        public int getRowsPerTask() {
+            return rowsPerTask;
+        }
+
+        public int getColsPerTask() {
+            return colsPerTask;
+        }
+
+        public int taskCount(int rows, int cols) {
+            return ((rows + rowsPerTask - 1) / rowsPerTask) * ((cols + colsPerTask - 1) / colsPerTask);
+        }
+    }
+
+    public TaskPartitioner(int workers) {
+        this(workers, DEFAULT_DISPATCH_COST_NANOS);
+    }
+
+    /**
+     * dispatchCostNanos is the measured cost of handing one task to a worker, see
+     * TiredExecutor.getDispatchCostNanos(). It is clamped to a sane range so one odd measurement
+     * cannot collapse everything into a single task or explode it into millions.
+     */
+    public TaskPartitioner(int workers, long dispatchCostNanos) {
+        if (workers <= 0) {
+            throw new IllegalArgumentException("At least one worker is required.");
+        }
+        this.workers = workers;
+        this.dispatchCostNanos = Math.max(MIN_DISPATCH_COST_NANOS, Math.min(MAX_DISPATCH_COST_NANOS, dispatchCostNanos));
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public long getDispatchCostNanos() {
+        return dispatchCostNanos;
+    }
+
+    /**
+     * Returns the grid for rows x cols elements costing workPerElement units each.
+     * If splitRows is false every task covers whole rows.
+     */
+    public Grid partition(int rows, int cols, long workPerElement, boolean splitRows) {
+        if (rows <= 0 || cols <= 0 || workPerElement <= 0) {
+            throw new IllegalArgumentException("Dimensions and work per element must be positive.");
+        }
+        long totalWork = (long) rows * cols * workPerElement;
+        long minTaskWork = dispatchCostNanos * OVERHEAD_RATIO;
+        long affordable = totalWork / minTaskWork;
+        // Only spread over every worker when each of them gets enough work to pay for its dispatch
+        long tasks = totalWork >= workers * minTaskWork
+                ? Math.max(workers, Math.min((long) workers * TASKS_PER_WORKER, affordable))
+                : Math.max(1, affordable);
+        if (tasks <= rows || !splitRows) {
+            tasks = Math.min(tasks, rows);
+            return new Grid((int) ((rows + tasks - 1) / tasks), cols);
+        }
+        long piecesPerRow = Math.min(cols, (tasks + rows - 1) / rows);
+        int colsPerTask = (int) ((cols + piecesPerRow - 1) / piecesPerRow);
+        if (colsPerTask > COLUMN_ALIGNMENT) {
+            colsPerTask = Math.min(cols, (colsPerTask + COLUMN_ALIGNMENT - 1) / COLUMN_ALIGNMENT * COLUMN_ALIGNMENT);
+        }
+        return new Grid(1, colsPerTask);
+    }
+}
@@ -3,34 +3,80 @@ package scheduling;
 import java.util.concurrent.PriorityBlockingQueue;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ThreadFactory;
 
-public class TiredExecutor {
+import metrics.EngineMetrics;
+
+public class TiredExecutor implements ComputeExecutor {
 
     private final TiredThread[] workers;
     private final PriorityBlockingQueue<TiredThread> idleMinHeap = new PriorityBlockingQueue<>();
-    private final AtomicInteger inFlight = new AtomicInteger(0);
+    private final DispatchMode mode;
+    // Moving average of the time submit() takes per task; unsynchronized, a lost update only delays the estimate
+    private volatile long dispatchCostNanos = TaskPartitioner.DEFAULT_DISPATCH_COST_NANOS;
 
     public TiredExecutor(int numThreads) {
         // TODO
+        this(numThreads, DispatchMode.HANDOFF);
+    }
+
+    public TiredExecutor(int numThreads, DispatchMode mode) {
+        this.mode = mode;
         workers = new TiredThread[numThreads];
         for (int i = 0; i < numThreads; i++) {
             workers[i] = new TiredThread(i, 0.5 + Math.random());
-            workers[i].start();
-            idleMinHeap.add(workers[i]);
         }
+        for (TiredThread worker : workers) {
+            if (mode == DispatchMode.WORK_STEALING) {
+                worker.enableWorkStealing(workers);
+            }
+            worker.start();
+            idleMinHeap.add(worker);
+        }
+    }
+
+    public DispatchMode getMode() {
+        return mode;
+    }
+
+    @Override
+    public int getWorkerCount() {
+        return workers.length;
+    }
+
+    // Orchestration runs on plain daemon platform threads, next to the workers
+    @Override
+    public ThreadFactory getThreadFactory() {
+        return task -> {
+            Thread thread = new Thread(task);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
 
+    /**
+     * Recent average time to hand one task to a worker, as measured by submitBatch.
+     * When every worker is busy this includes waiting for one to free up, so it grows under load.
+     */
+    @Override
+    public long getDispatchCostNanos() {
+        return dispatchCostNanos;
     }
 
+    @Override
     public void submit(Runnable task) {
         // TODO
+        if (mode == DispatchMode.WORK_STEALING) {
+            submitToDeque(task);
+            return;
+        }
         while (true) {
             TiredThread worker;
             try {
                 worker = idleMinHeap.take();
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
-                return;
+                throw new IllegalStateException("Interrupted while waiting for an idle worker.", e);
             }
 
             try {
@@ -38,14 +84,11 @@ public class TiredExecutor {
                     try {
                         task.run();
                     } finally {
-                       
-                        inFlight.decrementAndGet();
                         idleMinHeap.put(worker);
                     }
                 };
 
                 worker.newTask(wrappedTask);
-                inFlight.incrementAndGet();
                 return;
             } catch (IllegalStateException e) {
                 idleMinHeap.put(worker);
@@ -54,21 +97,85 @@ public class TiredExecutor {
 
     }
 
+    /*
+     * Work-stealing submission never blocks. The task goes to the least tired idle worker,
+     * or to the least tired worker overall when everyone is busy. Workers that run dry steal
+     * from the most tired busy worker, so the "least tired first" policy still decides who works.
+     */
+    private void submitToDeque(Runnable task) {
+        TiredThread target = null;
+        for (TiredThread worker : workers) {
+            if (target == null
+                    || (!worker.isBusy() && target.isBusy())
+                    || (worker.isBusy() == target.isBusy() && worker.compareTo(target) < 0)) {
+                target = worker;
+            }
+        }
+        target.pushTask(task);
+        // The target may be busy, or about to start a long task queued ahead of this one.
+        // Wake one parked worker so it can steal; it passes the wake-up on while tasks remain queued.
+        TiredThread.wakeParkedPeer(workers, target);
+    }
+
+    @Override
     public void submitAll(Iterable<Runnable> tasks) {
         // TODO: submit tasks one by one and wait until all finish
+        TaskBatch batch = submitBatch(tasks);
+        try {
+            batch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for tasks to finish.", e);
+        }
+    }
+
+    /**
+     * Submits the tasks and returns at once with a handle tracking only these tasks.
+     * A task that throws does not kill its worker; the exception is handed to the batch instead.
+     * If a task cannot be handed over, e.g. because the caller is interrupted while waiting for a worker,
+     * it and the tasks after it are never run and finish the batch with that failure.
+     * Each task's queue wait, run time, and the time submit() took to hand it over are recorded in EngineMetrics.
+     */
+    @Override
+    public TaskBatch submitBatch(Iterable<Runnable> tasks) {
+        List<Runnable> taskList = new ArrayList<>();
         for (Runnable task : tasks) {
-            submit(task);
+            taskList.add(task);
         }
-        while (inFlight.get() > 0) {
+        TaskBatch batch = new TaskBatch(taskList.size());
+        EngineMetrics metrics = EngineMetrics.global();
+        for (int i = 0; i < taskList.size(); i++) {
+            Runnable task = taskList.get(i);
+            long submitted = System.nanoTime();
+            Runnable wrappedTask = () -> {
+                long started = System.nanoTime();
+                metrics.recordTaskQueueWait(started - submitted);
+                Throwable failure = null;
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    failure = t;
+                } finally {
+                    metrics.recordTaskDuration(System.nanoTime() - started);
+                    batch.taskFinished(failure);
+                }
+            };
             try {
-                Thread.sleep(10);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
+                submit(wrappedTask);
+            } catch (IllegalStateException e) {
+                for (int j = i; j < taskList.size(); j++) {
+                    batch.taskFinished(e);
+                }
+                return batch;
             }
+            long handoff = System.nanoTime() - submitted;
+            metrics.recordTaskHandoff(handoff);
+            dispatchCostNanos += (handoff - dispatchCostNanos) / 8;
         }
+        return batch;
     }
 
+    @Override
     public void shutdown() throws InterruptedException {
         // TODO
         for (TiredThread worker : workers) {
@@ -76,6 +183,7 @@ public class TiredExecutor {
         }
     }
 
+    @Override
     public synchronized String getWorkerReport() {
         // TODO: return readable statistics for each worker
         String report = "";
@@ -1,9 +1,12 @@
 package scheduling;
 
+import java.util.Deque;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 public class TiredThread extends Thread implements Comparable<TiredThread> {
 
@@ -18,6 +21,11 @@ public class TiredThread extends Thread implements Comparable<TiredThread> {
     // Single-slot handoff queue; executor will put tasks here
     private final BlockingQueue<Runnable> handoff = new ArrayBlockingQueue<>(1);
 
+    // Work-stealing mode only: this worker's own tasks, and every worker it may steal from
+    private final Deque<Runnable> localTasks = new ConcurrentLinkedDeque<>();
+    private TiredThread[] peers = null;
+    private final AtomicBoolean parked = new AtomicBoolean(false); // Waiting for work; cleared by whoever wakes it
+
     private final AtomicBoolean busy = new AtomicBoolean(false); // Indicates if the worker is currently executing a
                                                                  // task
 
@@ -75,6 +83,29 @@ public class TiredThread extends Thread implements Comparable<TiredThread> {
         }
     }
 
+    /**
+     * Switches this worker to work-stealing mode. Must be called before the thread is started.
+     * peers may include this worker itself; it is skipped when stealing.
+     */
+    void enableWorkStealing(TiredThread[] peers) {
+        if (isAlive()) {
+            throw new IllegalStateException("Work stealing must be enabled before the worker starts");
+        }
+        this.peers = peers;
+    }
+
+    /**
+     * Work-stealing mode: queues a task on this worker's own deque and wakes the worker if it is parked.
+     * Never blocks.
+     */
+    public void pushTask(Runnable task) {
+        if (!alive.get()) {
+            throw new IllegalStateException("Worker is not alive");
+        }
+        localTasks.addLast(task);
+        LockSupport.unpark(this);
+    }
+
     /**
      * Request this worker to stop after finishing current task.
      * Inserts a poison pill so the worker wakes up and exits.
@@ -82,6 +113,11 @@ public class TiredThread extends Thread implements Comparable<TiredThread> {
     public void shutdown() {
         // TODO
         alive.set(false);
+        if (peers != null) {
+            // Work-stealing workers drain their deque and exit once they find no more work
+            LockSupport.unpark(this);
+            return;
+        }
         try {
             handoff.put(POISON_PILL);
         } catch (InterruptedException e) {
@@ -92,6 +128,10 @@ public class TiredThread extends Thread implements Comparable<TiredThread> {
     @Override
     public void run() {
         // TODO
+        if (peers != null) {
+            runWorkStealing();
+            return;
+        }
         while (true) {
             try {
                 Runnable task = handoff.take();
@@ -110,6 +150,97 @@ public class TiredThread extends Thread implements Comparable<TiredThread> {
         }
     }
 
+    /*
+     * Own tasks are taken oldest first; when the deque is empty the worker steals the newest task
+     * of the most tired peer. If nothing is found anywhere it parks until a task is pushed to it
+     * or a peer wakes it. A task pushed between the last check and park() leaves an unpark permit,
+     * so it is never missed.
+     *
+     * A worker that finds a task while more are queued wakes one parked peer before running it,
+     * and that peer does the same, so a burst of submissions spreads over every idle worker
+     * even though the executor only wakes one of them per task.
+     */
+    private void runWorkStealing() {
+        while (true) {
+            Runnable task = findTask();
+            if (task == null) {
+                if (!alive.get()) {
+                    break;
+                }
+                parked.set(true);
+                // Look once more: a peer that found this worker not yet parked may have woken no one
+                task = findTask();
+                if (task == null) {
+                    LockSupport.park(this);
+                    parked.set(false);
+                    continue;
+                }
+                parked.set(false);
+            }
+            if (hasQueuedWork()) {
+                wakeParkedPeer(peers, this);
+            }
+            busy.set(true);
+            long startTime = System.nanoTime();
+            timeIdle.addAndGet(startTime - idleStartTime.get());
+            try {
+                task.run();
+            } finally {
+                long endTime = System.nanoTime();
+                timeUsed.addAndGet(endTime - startTime);
+                busy.set(false);
+                idleStartTime.set(endTime);
+            }
+        }
+    }
+
+    private Runnable findTask() {
+        Runnable task = localTasks.pollFirst();
+        return task != null ? task : steal();
+    }
+
+    private boolean hasQueuedWork() {
+        for (TiredThread peer : peers) {
+            if (!peer.localTasks.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Wakes one parked worker of workers other than except, if there is one.
+     * Clearing the parked flag first means two wakers never pick the same worker.
+     */
+    static void wakeParkedPeer(TiredThread[] workers, TiredThread except) {
+        for (TiredThread worker : workers) {
+            if (worker != except && worker.parked.compareAndSet(true, false)) {
+                LockSupport.unpark(worker);
+                return;
+            }
+        }
+    }
+
+    private Runnable steal() {
+        while (true) {
+            TiredThread victim = null;
+            for (TiredThread peer : peers) {
+                if (peer != this && !peer.localTasks.isEmpty()
+                        && (victim == null || peer.compareTo(victim) > 0)) {
+                    victim = peer;
+                }
+            }
+            if (victim == null) {
+                return null;
+            }
+            Runnable task = victim.localTasks.pollLast();
+            if (task != null) {
+                return task;
+            }
+            // Someone else emptied the victim's deque first; look again
+        }
+    }
+
     @Override
     public int compareTo(TiredThread o) {
         // TODO
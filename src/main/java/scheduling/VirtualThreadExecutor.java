@@ -0,0 +1,67 @@
+package scheduling;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs orchestration and I/O on virtual threads, and kernel tasks on a bounded pool of TiredThreads.
+ *
+ * Waiting is cheap on a virtual thread: while an evaluator waits for its batch, or a batch runner
+ * waits on a file, its carrier thread is free to run other virtual threads. Kernel tasks are CPU-bound
+ * and gain nothing from that, so they still go to the fixed TiredExecutor pool, which keeps
+ * the least-tired-first dispatch, the fatigue accounting and the worker report unchanged.
+ * All the waiting done on the submitting side (the idle worker heap, the batch latch)
+ * uses java.util.concurrent locks, which do not pin a virtual thread to its carrier.
+ */
+public class VirtualThreadExecutor implements ComputeExecutor {
+
+    private final TiredExecutor workers;
+    private final ThreadFactory threadFactory = Thread.ofVirtual().name("lae-virtual-", 0).factory();
+
+    public VirtualThreadExecutor(int numThreads) {
+        this(numThreads, DispatchMode.HANDOFF);
+    }
+
+    public VirtualThreadExecutor(int numThreads, DispatchMode mode) {
+        workers = new TiredExecutor(numThreads, mode);
+    }
+
+    @Override
+    public int getWorkerCount() {
+        return workers.getWorkerCount();
+    }
+
+    @Override
+    public void submit(Runnable task) {
+        workers.submit(task);
+    }
+
+    @Override
+    public void submitAll(Iterable<Runnable> tasks) {
+        workers.submitAll(tasks);
+    }
+
+    @Override
+    public TaskBatch submitBatch(Iterable<Runnable> tasks) {
+        return workers.submitBatch(tasks);
+    }
+
+    @Override
+    public long getDispatchCostNanos() {
+        return workers.getDispatchCostNanos();
+    }
+
+    @Override
+    public ThreadFactory getThreadFactory() {
+        return threadFactory;
+    }
+
+    @Override
+    public void shutdown() throws InterruptedException {
+        workers.shutdown();
+    }
+
+    @Override
+    public String getWorkerReport() {
+        return workers.getWorkerReport();
+    }
+}
@@ -0,0 +1,193 @@
+package spl.lae;
+
+import parser.OutputWriter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Evaluates many expression files with one shared engine, so its workers and warmed-up code
+ * are reused for the whole batch.
+ *
+ * At most maxInFlight expressions are evaluated at the same time; each of them spreads its own
+ * work over the engine's workers. Expressions are taken in order, but may finish in any order.
+ */
+public class BatchRunner {
+
+    public static final String RESULT_SUFFIX = ".result.json";
+
+    /**
+     * One input file and where its result goes.
+     */
+    public static class Job {
+        final String inputFilePath;
+        final String outputFilePath;
+
+        public Job(String inputFilePath, String outputFilePath) {
+            this.inputFilePath = inputFilePath;
+            this.outputFilePath = outputFilePath;
+        }
+
+        public String getInputFilePath() {
+            return inputFilePath;
+        }
+
+        public String getOutputFilePath() {
+            return outputFilePath;
+        }
+    }
+
+    /**
+     * Totals for a finished batch.
+     */
+    public static class Summary {
+        int expressions;
+        int failed;
+        long flops; // Successful expressions only
+        long wallNanos;
+        final List<String> failures = new ArrayList<>();
+
+        public int getExpressions() {
+            return expressions;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        // One "<input>: <error>" line per failed expression
+        public List<String> getFailures() {
+            return failures;
+        }
+
+        public double expressionsPerSecond() {
+            return wallNanos == 0 ? 0 : expressions / (wallNanos / 1e9);
+        }
+
+        public double gflopsPerSecond() {
+            return wallNanos == 0 ? 0 : flops / (double) wallNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Evaluated %d expressions (%d failed) in %.3f s: %.1f expressions/s, %.3f GFLOP/s",
+                    expressions, failed, wallNanos / 1e9, expressionsPerSecond(), gflopsPerSecond());
+        }
+    }
+
+    private final LinearAlgebraEngine engine;
+    private final EngineServer server;
+    private final int maxInFlight;
+
+    public BatchRunner(LinearAlgebraEngine engine, int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("At least one expression must be allowed in flight.");
+        }
+        this.engine = engine;
+        this.server = new EngineServer(engine, OutputWriter.prettyFromProperties());
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Reads jobs from a directory or a manifest file, see jobsFromDirectory and jobsFromManifest.
+     */
+    public static List<Job> loadJobs(String path) throws IOException {
+        Path source = Paths.get(path);
+        return Files.isDirectory(source) ? jobsFromDirectory(source) : jobsFromManifest(source);
+    }
+
+    /**
+     * One job per .json file in the directory (not its subdirectories), in name order.
+     * The result of name.json goes to name.result.json next to it; existing result files are not inputs.
+     */
+    public static List<Job> jobsFromDirectory(Path directory) throws IOException {
+        List<Job> jobs = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.sorted().toList()) {
+                String name = file.getFileName().toString();
+                if (!Files.isRegularFile(file) || !name.endsWith(".json") || name.endsWith(RESULT_SUFFIX)) {
+                    continue;
+                }
+                String base = name.substring(0, name.length() - ".json".length());
+                jobs.add(new Job(file.toString(), file.resolveSibling(base + RESULT_SUFFIX).toString()));
+            }
+        }
+        return jobs;
+    }
+
+    /**
+     * One job per line of the form {@code <input_file> <output_file>}. Blank lines and lines starting
+     * with # are skipped. Relative paths are relative to the manifest's directory.
+     */
+    public static List<Job> jobsFromManifest(Path manifest) throws IOException {
+        Path baseDirectory = manifest.toAbsolutePath().getParent();
+        List<Job> jobs = new ArrayList<>();
+        List<String> lines = Files.readAllLines(manifest);
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] paths = line.split("\\s+");
+            if (paths.length != 2) {
+                throw new IllegalArgumentException(
+                        "Manifest line " + (i + 1) + " should be: <input_file> <output_file>");
+            }
+            jobs.add(new Job(baseDirectory.resolve(paths[0]).toString(), baseDirectory.resolve(paths[1]).toString()));
+        }
+        return jobs;
+    }
+
+    /**
+     * Evaluates every job and returns the totals. Each failure is also written to its output file.
+     */
+    public Summary run(List<Job> jobs) {
+        Summary summary = new Summary();
+        AtomicInteger next = new AtomicInteger();
+        List<Thread> runners = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int r = 0; r < Math.min(maxInFlight, jobs.size()); r++) {
+            Thread runner = engine.getThreadFactory().newThread(() -> {
+                int index;
+                while ((index = next.getAndIncrement()) < jobs.size()) {
+                    Job job = jobs.get(index);
+                    EngineServer.Outcome outcome = server.process(job.inputFilePath, job.outputFilePath);
+                    synchronized (summary) {
+                        summary.expressions++;
+                        if (outcome.succeeded()) {
+                            summary.flops += outcome.getFlops();
+                        } else {
+                            summary.failed++;
+                            summary.failures.add(job.inputFilePath + ": " + outcome.getError());
+                        }
+                    }
+                }
+            });
+            runner.setName("batch-runner-" + r);
+            runners.add(runner);
+            runner.start();
+        }
+        for (Thread runner : runners) {
+            try {
+                runner.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the batch to finish.");
+            }
+        }
+        synchronized (summary) {
+            summary.wallNanos = System.nanoTime() - start;
+        }
+        return summary;
+    }
+
+    public LatencyStats getLatencies() {
+        return server.getLatencies();
+    }
+}
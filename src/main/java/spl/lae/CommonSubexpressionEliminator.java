@@ -0,0 +1,100 @@
+package spl.lae;
+
+import parser.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns a ComputationNode tree into a DAG where every distinct sub-expression appears once.
+ *
+ * Every node is given an ExpressionKey, bottom-up. The first node seen with a given key becomes
+ * the canonical one and every later occurrence is replaced by it, so identical literal matrices
+ * and identical sub-expressions are parsed into one node and computed once.
+ * A node is only copied if one of its operands was replaced; other nodes are reused as they are.
+ *
+ * Digesting a leaf reads all of it, about as much work as a single elementwise operator on it.
+ * Without digests, leaves are keyed by their matrix object, so only leaves holding the very same
+ * matrix are shared; sub-expressions over shared leaves are still merged.
+ */
+public class CommonSubexpressionEliminator {
+
+    private final boolean digestLeaves;
+    private final Map<ComputationNode, ExpressionKey> keys = new IdentityHashMap<>();
+    private final Map<ExpressionKey, ComputationNode> canonical = new HashMap<>();
+    private final Map<Object, ExpressionKey> leafKeys = new IdentityHashMap<>(); // Matrix object to key, without digests
+
+    public CommonSubexpressionEliminator() {
+        this(true);
+    }
+
+    public CommonSubexpressionEliminator(boolean digestLeaves) {
+        this.digestLeaves = digestLeaves;
+    }
+
+    /**
+     * Returns the canonical version of root. Its shared nodes have several parents.
+     */
+    public ComputationNode share(ComputationNode root) {
+        ExpressionKey existing = keys.get(root);
+        if (existing != null) {
+            return canonical.get(existing);
+        }
+        if (root.getNodeType() == ComputationNodeType.MATRIX) {
+            if (root.isTiled()) {
+                return register(root, ExpressionKey.ofTiled(root.getTiledMatrix()));
+            }
+            if (!digestLeaves) {
+                Object matrix = root.isSparse() ? root.getSparseMatrix() : root.getMatrix();
+                int rows = root.isSparse() ? root.getSparseMatrix().getRows() : root.getMatrix().length;
+                return register(root, leafKeys.computeIfAbsent(matrix, m -> ExpressionKey.unique(rows)));
+            }
+            return register(root, root.isSparse() ? ExpressionKey.ofSparse(root.getSparseMatrix())
+                    : ExpressionKey.ofMatrix(root.getMatrix()));
+        }
+        List<ComputationNode> children = new ArrayList<>();
+        List<ExpressionKey> childKeys = new ArrayList<>();
+        boolean changed = false;
+        for (ComputationNode child : root.getChildren()) {
+            ComputationNode sharedChild = share(child);
+            changed |= sharedChild != child;
+            children.add(sharedChild);
+            childKeys.add(keys.get(sharedChild));
+        }
+        ExpressionKey key = ExpressionKey.ofOperator(root.getNodeType(), childKeys);
+        if (canonical.containsKey(key)) {
+            keys.put(root, key);
+            return canonical.get(key);
+        }
+        return register(changed ? new ComputationNode(root.getNodeType(), children) : root, key);
+    }
+
+    private ComputationNode register(ComputationNode node, ExpressionKey key) {
+        ComputationNode first = canonical.putIfAbsent(key, node);
+        keys.put(node, key);
+        return first == null ? node : first;
+    }
+
+    /**
+     * Returns the key of a node seen by share(), or null.
+     */
+    public ExpressionKey keyOf(ComputationNode node) {
+        return keys.get(node);
+    }
+
+    /**
+     * Returns every canonical operator node, i.e. every distinct computation, in no particular order.
+     */
+    public List<ComputationNode> operatorNodes() {
+        List<ComputationNode> nodes = new ArrayList<>();
+        for (Map.Entry<ExpressionKey, ComputationNode> entry : canonical.entrySet()) {
+            if (entry.getKey().getNodeType() != ComputationNodeType.MATRIX) {
+                nodes.add(entry.getValue());
+            }
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,223 @@
+package spl.lae;
+
+import parser.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Consumer;
+
+/**
+ * Resolves a ComputationNode tree as a dependency graph.
+ * Every operator node waits only for its own operands, so independent subtrees
+ * (for example both operands of a multiplication) are evaluated at the same time.
+ *
+ * The calling thread acts as the dispatcher: it starts one evaluator thread per ready node,
+ * up to maxConcurrentNodes at a time, and releases parents as their operands complete.
+ * Evaluator threads are daemon platform threads unless another ThreadFactory is given.
+ * The evaluator is expected to resolve the node it is given.
+ *
+ * With elementwise fusion enabled, a chain of ADD / NEGATE / TRANSPOSE nodes is scheduled as one unit:
+ * only the top node of the chain is handed to the evaluator, once every non-elementwise operand below
+ * the chain is resolved, and the evaluator resolves the whole chain in one go.
+ * Nodes shared by several parents always form their own unit, so their result is computed once.
+ */
+public class ComputationScheduler {
+
+    private final Consumer<ComputationNode> evaluator;
+    private final int maxConcurrentNodes;
+    private final boolean fuseElementwise;
+    private final ThreadFactory threadFactory;
+
+    // Message sent from an evaluator thread back to the dispatcher
+    private static class Completion {
+        final ComputationNode node;
+        final Throwable failure;
+
+        Completion(ComputationNode node, Throwable failure) {
+            this.node = node;
+            this.failure = failure;
+        }
+    }
+
+    public ComputationScheduler(Consumer<ComputationNode> evaluator, int maxConcurrentNodes) {
+        this(evaluator, maxConcurrentNodes, false);
+    }
+
+    public ComputationScheduler(Consumer<ComputationNode> evaluator, int maxConcurrentNodes,
+            boolean fuseElementwise) {
+        this(evaluator, maxConcurrentNodes, fuseElementwise, task -> {
+            Thread thread = new Thread(task);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Evaluator threads are created by threadFactory, e.g. virtual threads: they spend most of
+     * their time waiting for the tasks they submitted.
+     */
+    public ComputationScheduler(Consumer<ComputationNode> evaluator, int maxConcurrentNodes,
+            boolean fuseElementwise, ThreadFactory threadFactory) {
+        if (maxConcurrentNodes <= 0) {
+            throw new IllegalArgumentException("At least one node must be allowed to run at a time.");
+        }
+        this.evaluator = evaluator;
+        this.maxConcurrentNodes = maxConcurrentNodes;
+        this.fuseElementwise = fuseElementwise;
+        this.threadFactory = threadFactory;
+    }
+
+    public static boolean isElementwise(ComputationNode node) {
+        ComputationNodeType type = node.getNodeType();
+        return type == ComputationNodeType.ADD || type == ComputationNodeType.NEGATE
+                || type == ComputationNodeType.TRANSPOSE;
+    }
+
+    /**
+     * Evaluates every operator node below (and including) root. Returns once root is resolved.
+     * If any node fails, no new nodes are started, the running ones are waited for,
+     * and the first failure is rethrown.
+     */
+    public void run(ComputationNode root) {
+        if (root.getNodeType() == ComputationNodeType.MATRIX) {
+            return;
+        }
+
+        // Build the graph: how many unresolved operands each node waits for, and who waits for each node.
+        // A node can have several parents when identical subtrees are shared.
+        Map<ComputationNode, Integer> pendingOperands = new IdentityHashMap<>();
+        Map<ComputationNode, List<ComputationNode>> parents = new IdentityHashMap<>();
+        Deque<ComputationNode> ready = new ArrayDeque<>();
+        Map<ComputationNode, Integer> parentCounts = new IdentityHashMap<>();
+        if (fuseElementwise) {
+            countParents(root, parentCounts);
+        }
+        buildGraph(root, pendingOperands, parents, ready, parentCounts);
+
+        BlockingQueue<Completion> completions = new LinkedBlockingQueue<>();
+        Throwable failure = null;
+        int running = 0;
+        while (running > 0 || (failure == null && !ready.isEmpty())) {
+            while (failure == null && !ready.isEmpty() && running < maxConcurrentNodes) {
+                start(ready.poll(), completions);
+                running++;
+            }
+
+            Completion completion;
+            try {
+                completion = completions.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the computation to finish.");
+            }
+            running--;
+
+            if (completion.failure != null) {
+                if (failure == null) {
+                    failure = completion.failure;
+                }
+                continue;
+            }
+            for (ComputationNode parent : parents.getOrDefault(completion.node, List.of())) {
+                int remaining = pendingOperands.get(parent) - 1;
+                pendingOperands.put(parent, remaining);
+                if (remaining == 0) {
+                    ready.add(parent);
+                }
+            }
+        }
+
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure != null) {
+            throw new IllegalStateException(failure);
+        }
+    }
+
+    /*
+     * Counts, for every operator node, how many operand slots refer to it.
+     * Each distinct node is descended into only once.
+     */
+    private void countParents(ComputationNode node, Map<ComputationNode, Integer> parentCounts) {
+        for (ComputationNode child : node.getChildren()) {
+            if (child.getNodeType() == ComputationNodeType.MATRIX) {
+                continue;
+            }
+            Integer count = parentCounts.merge(child, 1, Integer::sum);
+            if (count == 1) {
+                countParents(child, parentCounts);
+            }
+        }
+    }
+
+    /*
+     * Post-order walk over the unresolved operator nodes. N-ary operators are nested into
+     * binary ones first, so every node has at most two operands when it is evaluated.
+     * Nodes fused into their parent's unit are walked through, and their operands become the unit's operands.
+     */
+    private void buildGraph(ComputationNode node, Map<ComputationNode, Integer> pendingOperands,
+            Map<ComputationNode, List<ComputationNode>> parents, Deque<ComputationNode> ready,
+            Map<ComputationNode, Integer> parentCounts) {
+        if (pendingOperands.containsKey(node)) {
+            return;
+        }
+        node.associativeNesting();
+        int pending = addOperands(node, node, pendingOperands, parents, ready, parentCounts);
+        pendingOperands.put(node, pending);
+        if (pending == 0) {
+            ready.add(node);
+        }
+    }
+
+    // Registers the operands of member (a node of unit) as dependencies of unit, returns how many there are
+    private int addOperands(ComputationNode unit, ComputationNode member, Map<ComputationNode, Integer> pendingOperands,
+            Map<ComputationNode, List<ComputationNode>> parents, Deque<ComputationNode> ready,
+            Map<ComputationNode, Integer> parentCounts) {
+        int pending = 0;
+        for (ComputationNode child : member.getChildren()) {
+            if (child.getNodeType() == ComputationNodeType.MATRIX) {
+                continue;
+            }
+            if (isFused(member, child, parentCounts)) {
+                child.associativeNesting();
+                pending += addOperands(unit, child, pendingOperands, parents, ready, parentCounts);
+                continue;
+            }
+            pending++;
+            parents.computeIfAbsent(child, k -> new ArrayList<>()).add(unit);
+            buildGraph(child, pendingOperands, parents, ready, parentCounts);
+        }
+        return pending;
+    }
+
+    // Nodes created by associativeNesting are not counted, and always have a single parent
+    private boolean isFused(ComputationNode parent, ComputationNode child, Map<ComputationNode, Integer> parentCounts) {
+        return fuseElementwise && isElementwise(parent) && isElementwise(child)
+                && parentCounts.getOrDefault(child, 1) == 1;
+    }
+
+    private void start(ComputationNode node, BlockingQueue<Completion> completions) {
+        Thread evaluatorThread = threadFactory.newThread(() -> {
+            Throwable failure = null;
+            try {
+                evaluator.accept(node);
+            } catch (Throwable t) {
+                failure = t;
+            }
+            completions.add(new Completion(node, failure));
+        });
+        evaluatorThread.setName("evaluator-" + node.getNodeType());
+        evaluatorThread.start();
+    }
+}
@@ -0,0 +1,224 @@
+package spl.lae;
+
+import memory.TiledMatrix;
+import parser.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps one LinearAlgebraEngine alive and evaluates a stream of requests with it,
+ * so the workers, the JIT-compiled code and the JVM itself are paid for once instead of per expression.
+ *
+ * The protocol is line based. Each request line is one of:
+ *   {@code <input_file> <output_file>}  evaluate the expression in input_file and write the result like Main does
+ *   {@code STATS}                       report latency statistics over all requests so far
+ *   {@code QUIT}                        end this session
+ * Each request gets exactly one response line:
+ *   {@code OK <output_file> parse=<ms> compute=<ms> write=<ms> total=<ms>}
+ *   {@code ERROR <message>}
+ *   {@code STATS <summary>}
+ *
+ * Requests can come from stdin or from clients of a socket bound to the loopback address.
+ * Every socket client is served on its own thread, so requests from different clients run concurrently.
+ */
+public class EngineServer {
+
+    private final LinearAlgebraEngine engine;
+    private final LatencyStats latencies = new LatencyStats();
+    private final double sparseThreshold = InputParser.sparseThresholdFromProperties();
+    private final boolean pretty; // False to write JSON results without indentation
+
+    public EngineServer(LinearAlgebraEngine engine) {
+        this(engine, OutputWriter.prettyFromProperties());
+    }
+
+    public EngineServer(LinearAlgebraEngine engine, boolean pretty) {
+        this.engine = engine;
+        this.pretty = pretty;
+    }
+
+    /**
+     * Serves requests read from in until QUIT or end of input. Responses are written to out.
+     */
+    public void serve(InputStream in, OutputStream out) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        PrintWriter writer = new PrintWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), true);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (line.equals("QUIT")) {
+                break;
+            }
+            writer.println(handle(line));
+        }
+        writer.flush();
+    }
+
+    /**
+     * Accepts clients on the given loopback port until the server socket is closed
+     * or the thread is interrupted. Each client gets its own session thread from the engine's thread factory.
+     */
+    public void serve(int port) throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            while (!Thread.currentThread().isInterrupted()) {
+                Socket client = serverSocket.accept();
+                Thread session = engine.getThreadFactory().newThread(() -> {
+                    try (Socket socket = client) {
+                        serve(socket.getInputStream(), socket.getOutputStream());
+                    } catch (IOException e) {
+                        System.err.println("Client session failed: " + e.getMessage());
+                    }
+                });
+                session.setName("engine-client-" + client.getPort());
+                session.start();
+            }
+        }
+    }
+
+    /**
+     * Handles one request line and returns its response line.
+     */
+    public String handle(String request) {
+        if (request.equals("STATS")) {
+            return "STATS " + latencies.summary();
+        }
+        String[] paths = request.split("\\s+");
+        if (paths.length != 2) {
+            return "ERROR Expected: <input_file> <output_file>";
+        }
+        Outcome outcome = process(paths[0], paths[1]);
+        if (outcome.error != null) {
+            return "ERROR " + outcome.error.replace('\n', ' ');
+        }
+        return String.format("OK %s parse=%.3fms compute=%.3fms write=%.3fms total=%.3fms", paths[1],
+                outcome.parseNanos / 1e6, outcome.computeNanos / 1e6, outcome.writeNanos / 1e6,
+                outcome.totalNanos() / 1e6);
+    }
+
+    /**
+     * What happened to one expression: its timings and nominal FLOP count, or the error it failed with.
+     */
+    public static class Outcome {
+        String error; // null on success
+        long flops;
+        long parseNanos;
+        long computeNanos;
+        long writeNanos;
+
+        public boolean succeeded() {
+            return error == null;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public long getFlops() {
+            return flops;
+        }
+
+        public long totalNanos() {
+            return parseNanos + computeNanos + writeNanos;
+        }
+    }
+
+    /**
+     * Parses inputFilePath, evaluates it on the shared engine and writes the result to outputFilePath,
+     * the same way Main does. Successful requests are added to the latency statistics.
+     * Safe to call from several threads at once.
+     */
+    public Outcome process(String inputFilePath, String outputFilePath) {
+        Outcome outcome = new Outcome();
+        long start = System.nanoTime();
+        ComputationNode computationRoot;
+        try {
+            computationRoot = new InputParser(true, sparseThreshold, engine.getScratchSpace()).parse(inputFilePath);
+        } catch (Exception e) {
+            return fail(outcome, outputFilePath, "Error parsing input file: " + e.getMessage());
+        }
+        long parsed = System.nanoTime();
+        outcome.parseNanos = parsed - start;
+        outcome.flops = ExpressionShapes.countFlops(computationRoot);
+
+        // Operands loaded into scratch files, collected now since evaluation drops the operand nodes
+        List<TiledMatrix> tiledOperands = new ArrayList<>();
+        collectTiledOperands(computationRoot, tiledOperands);
+        ComputationNode result = null;
+        try {
+            try {
+                result = engine.evaluate(computationRoot);
+            } catch (Exception e) {
+                return fail(outcome, outputFilePath, "Illegal operation: " + e.getMessage());
+            }
+            long computed = System.nanoTime();
+            outcome.computeNanos = computed - parsed;
+
+            try {
+                // Results computed out of core are streamed to binary outputs without loading them
+                if (result.isTiled() && BinaryMatrixIO.isBinaryMatrixPath(outputFilePath)) {
+                    BinaryMatrixIO.write(result.getTiledMatrix(), outputFilePath);
+                } else if (BinaryMatrixIO.isBinaryMatrixPath(outputFilePath)) {
+                    BinaryMatrixIO.write(result.getMatrix(), outputFilePath);
+                } else {
+                    OutputWriter.write(result.getMatrix(), outputFilePath, pretty);
+                }
+            } catch (Exception e) {
+                return fail(outcome, outputFilePath, "Error writing result: " + e.getMessage());
+            }
+            outcome.writeNanos = System.nanoTime() - computed;
+        } finally {
+            // A long-lived server must not leave scratch files behind until the JVM exits
+            if (result != null && result.isTiled()) {
+                result.getTiledMatrix().close();
+            }
+            for (TiledMatrix operand : tiledOperands) {
+                operand.close();
+            }
+        }
+
+        latencies.record(outcome.totalNanos());
+        return outcome;
+    }
+
+    private static void collectTiledOperands(ComputationNode node, List<TiledMatrix> tiledOperands) {
+        if (node.getNodeType() == ComputationNodeType.MATRIX) {
+            if (node.isTiled()) {
+                tiledOperands.add(node.getTiledMatrix());
+            }
+            return;
+        }
+        for (ComputationNode child : node.getChildren()) {
+            collectTiledOperands(child, tiledOperands);
+        }
+    }
+
+    // Failed requests get the error in their output file too, as in Main
+    private Outcome fail(Outcome outcome, String outputFilePath, String message) {
+        try {
+            OutputWriter.write(message, outputFilePath);
+        } catch (IOException e) {
+            System.err.println("Error writing error message to output file: " + e.getMessage());
+        }
+        outcome.error = message;
+        return outcome;
+    }
+
+    public LatencyStats getLatencies() {
+        return latencies;
+    }
+}
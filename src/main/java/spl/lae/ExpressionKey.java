@@ -0,0 +1,139 @@
+package spl.lae;
+
+import memory.SparseMatrix;
+import memory.TiledMatrix;
+import memory.VectorOrientation;
+import parser.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Identifies what a ComputationNode computes, independently of the node objects themselves.
+ *
+ * A MATRIX leaf is identified by its dimensions and a SHA-256 digest of its contents,
+ * an operator by its type and the keys of its operands, in order. Out-of-core leaves are too large
+ * to digest, and are identified by their scratch file instead.
+ * Leaves can also get a unique key instead, when digesting their contents is not worth it.
+ * Two nodes with equal keys compute the same matrix, so one can stand in for the other.
+ * Keys do not reference any matrix data, so they stay valid after the nodes are resolved
+ * and are cheap to keep in a cache.
+ */
+public final class ExpressionKey {
+
+    private static final AtomicLong uniqueKeys = new AtomicLong();
+
+    private final ComputationNodeType nodeType;
+    private final int rows; // MATRIX leaves only
+    private final byte[] digest; // MATRIX leaves only
+    private final List<ExpressionKey> operands; // Operators only
+    private final int hash;
+
+    private ExpressionKey(ComputationNodeType nodeType, int rows, byte[] digest, List<ExpressionKey> operands) {
+        this.nodeType = nodeType;
+        this.rows = rows;
+        this.digest = digest;
+        this.operands = operands;
+        this.hash = 31 * (31 * nodeType.hashCode() + Arrays.hashCode(digest)) + operands.hashCode();
+    }
+
+    public static ExpressionKey ofMatrix(double[][] matrix) {
+        MessageDigest sha = newDigest();
+        // Row lengths are digested too, so differently shaped matrices never share a digest
+        ByteBuffer buffer = ByteBuffer.allocate(0);
+        for (double[] row : matrix) {
+            buffer = digestRow(sha, row, buffer);
+        }
+        return new ExpressionKey(ComputationNodeType.MATRIX, matrix.length, sha.digest(), List.of());
+    }
+
+    /**
+     * Same key as ofMatrix(matrix.toDense()), expanding a single row at a time.
+     */
+    public static ExpressionKey ofSparse(SparseMatrix matrix) {
+        MessageDigest sha = newDigest();
+        SparseMatrix csr = matrix.toOrientation(VectorOrientation.ROW_MAJOR);
+        double[] row = new double[csr.getColumns()];
+        ByteBuffer buffer = ByteBuffer.allocate(0);
+        for (int i = 0; i < csr.getRows(); i++) {
+            csr.copyRowInto(i, row);
+            buffer = digestRow(sha, row, buffer);
+        }
+        return new ExpressionKey(ComputationNodeType.MATRIX, csr.getRows(), sha.digest(), List.of());
+    }
+
+    /**
+     * Two tiled leaves only share a key if they are backed by the same scratch file.
+     */
+    public static ExpressionKey ofTiled(TiledMatrix matrix) {
+        MessageDigest sha = newDigest();
+        sha.update(("tiled:" + matrix.getColumns() + ":" + matrix.getFile().toAbsolutePath())
+                .getBytes(StandardCharsets.UTF_8));
+        return new ExpressionKey(ComputationNodeType.MATRIX, matrix.getRows(), sha.digest(), List.of());
+    }
+
+    /**
+     * A MATRIX key equal to no other key, for a leaf identified by its matrix object instead of its contents.
+     */
+    public static ExpressionKey unique(int rows) {
+        byte[] serial = ByteBuffer.allocate(Long.BYTES).putLong(uniqueKeys.incrementAndGet()).array();
+        return new ExpressionKey(ComputationNodeType.MATRIX, rows, serial, List.of());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
+
+    // Returns the buffer, grown if the row did not fit, for the next row
+    private static ByteBuffer digestRow(MessageDigest sha, double[] row, ByteBuffer buffer) {
+        int bytes = Integer.BYTES + row.length * Double.BYTES;
+        if (buffer.capacity() < bytes) {
+            buffer = ByteBuffer.allocate(bytes);
+        }
+        buffer.clear();
+        buffer.putInt(row.length);
+        buffer.asDoubleBuffer().put(row);
+        buffer.position(bytes);
+        buffer.flip();
+        sha.update(buffer);
+        return buffer;
+    }
+
+    public static ExpressionKey ofOperator(ComputationNodeType nodeType, List<ExpressionKey> operands) {
+        if (nodeType == ComputationNodeType.MATRIX) {
+            throw new IllegalArgumentException("MATRIX keys are built from the matrix contents.");
+        }
+        return new ExpressionKey(nodeType, -1, null, List.copyOf(operands));
+    }
+
+    public ComputationNodeType getNodeType() {
+        return nodeType;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof ExpressionKey)) {
+            return false;
+        }
+        ExpressionKey key = (ExpressionKey) other;
+        return hash == key.hash && nodeType == key.nodeType && rows == key.rows
+                && Arrays.equals(digest, key.digest) && operands.equals(key.operands);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -0,0 +1,210 @@
+package spl.lae;
+
+import parser.*;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rewrites a ComputationNode tree into a cheaper equivalent before it is evaluated.
+ *
+ * Chains of multiplications (n-ary MULTIPLY nodes and MULTIPLY nodes nested directly inside each other)
+ * are re-parenthesized with the classic matrix-chain dynamic program, which minimizes the number of
+ * scalar multiplications given the operand dimensions. A 1000x10 * 10x1000 * 1000x10 chain costs
+ * 2 * 10^7 multiplications left to right, but only 2 * 10^5 as 1000x10 * (10x1000 * 1000x10).
+ *
+ * Transposes of products are pushed into the operands, (AB)^T = B^T A^T, when the transposes this adds
+ * to the operands move fewer elements than transposing the product itself. This pays off when the inner
+ * dimension is small, or when the operands are themselves transposes, which then cancel out.
+ *
+ * The input tree is not modified: rewritten nodes are new, untouched subtrees are reused as they are.
+ * A node shared by several parents is optimized once and stays shared.
+ * If any dimensions in a chain do not fit together, the chain is left as written,
+ * so the engine reports the error as usual.
+ */
+public class ExpressionOptimizer {
+
+    private final Map<ComputationNode, ComputationNode> optimized = new IdentityHashMap<>();
+    private final ExpressionShapes shapes = new ExpressionShapes();
+    private final Map<ComputationNode, Integer> parentCounts = new IdentityHashMap<>();
+    private final Map<ComputationNode, List<ComputationNode>> chainFactors = new IdentityHashMap<>(); // Products built here
+
+    public ExpressionOptimizer() {}
+
+    /**
+     * Returns an equivalent tree that is at most as expensive to evaluate as root.
+     * Subtrees without products or transposes are returned as they are.
+     */
+    public ComputationNode optimize(ComputationNode root) {
+        optimized.clear();
+        shapes.clear();
+        parentCounts.clear();
+        chainFactors.clear();
+        countParents(root);
+        return optimizeNode(root);
+    }
+
+    private void countParents(ComputationNode node) {
+        if (node.getNodeType() == ComputationNodeType.MATRIX) {
+            return;
+        }
+        for (ComputationNode child : node.getChildren()) {
+            if (parentCounts.merge(child, 1, Integer::sum) == 1) {
+                countParents(child);
+            }
+        }
+    }
+
+    private ComputationNode optimizeNode(ComputationNode node) {
+        if (node.getNodeType() == ComputationNodeType.MATRIX) {
+            return node;
+        }
+        ComputationNode result = optimized.get(node);
+        if (result != null) {
+            return result;
+        }
+        switch (node.getNodeType()) {
+            case MULTIPLY:
+                List<ComputationNode> factors = new ArrayList<>();
+                collectFactors(node, factors);
+                List<ComputationNode> optimizedFactors = new ArrayList<>();
+                for (ComputationNode factor : factors) {
+                    optimizedFactors.add(optimizeNode(factor));
+                }
+                result = orderChain(optimizedFactors);
+                if (result == null) {
+                    result = rebuild(node);
+                }
+                break;
+            case TRANSPOSE:
+                if (node.getChildren().size() != 1) {
+                    result = rebuild(node);
+                    break;
+                }
+                // A shared operand is computed once for all its parents, so the transpose is not pushed into it
+                ComputationNode operand = node.getChildren().get(0);
+                result = transposeOf(optimizeNode(operand), parentCounts.getOrDefault(operand, 1) == 1);
+                break;
+            default:
+                result = rebuild(node);
+        }
+        optimized.put(node, result);
+        return result;
+    }
+
+    // Same operator over optimized children; the node itself is reused if none of them changed
+    private ComputationNode rebuild(ComputationNode node) {
+        List<ComputationNode> children = new ArrayList<>();
+        boolean changed = false;
+        for (ComputationNode child : node.getChildren()) {
+            ComputationNode newChild = optimizeNode(child);
+            changed |= newChild != child;
+            children.add(newChild);
+        }
+        return changed ? new ComputationNode(node.getNodeType(), children) : node;
+    }
+
+    /*
+     * Flattens a product into its factors, left to right. Nested products are only flattened
+     * when they have no other parent, so shared products are still computed once.
+     */
+    private void collectFactors(ComputationNode node, List<ComputationNode> factors) {
+        for (ComputationNode child : node.getChildren()) {
+            if (child.getNodeType() == ComputationNodeType.MULTIPLY && parentCounts.getOrDefault(child, 1) == 1) {
+                collectFactors(child, factors);
+            } else {
+                factors.add(child);
+            }
+        }
+    }
+
+    /*
+     * Matrix-chain ordering. For factors with dimensions p[0] x p[1], p[1] x p[2], ..., p[n-1] x p[n],
+     * cost[i][j] is the cheapest way to multiply factors i..j, and split[i][j] where to split them.
+     * Returns null if the factors' dimensions do not chain.
+     */
+    private ComputationNode orderChain(List<ComputationNode> factors) {
+        int n = factors.size();
+        if (n < 2) {
+            return null;
+        }
+        long[] p = new long[n + 1];
+        for (int i = 0; i < n; i++) {
+            int[] shape = shapes.of(factors.get(i));
+            if (shape == null || (i > 0 && p[i] != shape[0])) {
+                return null;
+            }
+            p[i] = shape[0];
+            p[i + 1] = shape[1];
+        }
+        long[][] cost = new long[n][n];
+        int[][] split = new int[n][n];
+        for (int length = 2; length <= n; length++) {
+            for (int i = 0; i + length - 1 < n; i++) {
+                int j = i + length - 1;
+                cost[i][j] = Long.MAX_VALUE;
+                for (int k = i; k < j; k++) {
+                    long candidate = cost[i][k] + cost[k + 1][j] + p[i] * p[k + 1] * p[j + 1];
+                    if (candidate < cost[i][j]) {
+                        cost[i][j] = candidate;
+                        split[i][j] = k;
+                    }
+                }
+            }
+        }
+        ComputationNode chain = buildChain(factors, split, 0, n - 1);
+        chainFactors.put(chain, factors);
+        return chain;
+    }
+
+    private ComputationNode buildChain(List<ComputationNode> factors, int[][] split, int i, int j) {
+        if (i == j) {
+            return factors.get(i);
+        }
+        int k = split[i][j];
+        ComputationNode product = new ComputationNode(ComputationNodeType.MULTIPLY,
+                List.of(buildChain(factors, split, i, k), buildChain(factors, split, k + 1, j)));
+        int[] left = shapes.of(product.getChildren().get(0));
+        int[] right = shapes.of(product.getChildren().get(1));
+        shapes.put(product, new int[] { left[0], right[1] });
+        return product;
+    }
+
+    /*
+     * Returns the cheapest node computing the transpose of node (already optimized).
+     * Transposing a transpose cancels out. For a product built here, the transpose may be pushed into
+     * the factors if that moves fewer elements: each factor costs its size, except factors that are
+     * transposes themselves, which save their size instead.
+     */
+    private ComputationNode transposeOf(ComputationNode node, boolean mayPush) {
+        if (node.getNodeType() == ComputationNodeType.TRANSPOSE && node.getChildren().size() == 1) {
+            return node.getChildren().get(0);
+        }
+        List<ComputationNode> factors = chainFactors.get(node);
+        if (mayPush && factors != null) {
+            long pushedCost = 0;
+            for (ComputationNode factor : factors) {
+                long size = ExpressionShapes.size(shapes.of(factor));
+                pushedCost += factor.getNodeType() == ComputationNodeType.TRANSPOSE ? -size : size;
+            }
+            if (pushedCost < ExpressionShapes.size(shapes.of(node))) {
+                List<ComputationNode> transposedFactors = new ArrayList<>();
+                for (int i = factors.size() - 1; i >= 0; i--) {
+                    transposedFactors.add(transposeOf(factors.get(i), false));
+                }
+                ComputationNode chain = orderChain(transposedFactors);
+                if (chain != null) {
+                    return chain;
+                }
+            }
+        }
+        ComputationNode transpose = new ComputationNode(ComputationNodeType.TRANSPOSE, List.of(node));
+        int[] shape = shapes.of(node);
+        if (shape != null) {
+            shapes.put(transpose, new int[] { shape[1], shape[0] });
+        }
+        return transpose;
+    }
+}
@@ -0,0 +1,126 @@
+package spl.lae;
+
+import parser.*;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Infers the dimensions of the matrix each node of a ComputationNode tree evaluates to,
+ * without evaluating anything. Results are remembered per node.
+ */
+public class ExpressionShapes {
+
+    private final Map<ComputationNode, int[]> shapes = new IdentityHashMap<>();
+
+    public ExpressionShapes() {}
+
+    /**
+     * Returns {rows, cols} of the matrix node evaluates to, or null if it cannot be determined
+     * (an empty operand, or an operator without operands). Operand dimensions are not validated:
+     * an ADD reports the shape of its first operand, a MULTIPLY the rows of its first operand
+     * and the columns of its last.
+     */
+    public int[] of(ComputationNode node) {
+        if (shapes.containsKey(node)) {
+            return shapes.get(node);
+        }
+        int[] shape = null;
+        List<ComputationNode> children = node.getChildren();
+        switch (node.getNodeType()) {
+            case MATRIX:
+                if (node.isSparse()) {
+                    shape = new int[] { node.getSparseMatrix().getRows(), node.getSparseMatrix().getColumns() };
+                    break;
+                }
+                if (node.isTiled()) {
+                    shape = new int[] { node.getTiledMatrix().getRows(), node.getTiledMatrix().getColumns() };
+                    break;
+                }
+                double[][] matrix = node.getMatrix();
+                if (matrix.length > 0 && matrix[0].length > 0) {
+                    shape = new int[] { matrix.length, matrix[0].length };
+                }
+                break;
+            case ADD:
+            case NEGATE:
+                shape = children.isEmpty() ? null : of(children.get(0));
+                break;
+            case TRANSPOSE:
+                int[] inner = children.size() == 1 ? of(children.get(0)) : null;
+                shape = inner == null ? null : new int[] { inner[1], inner[0] };
+                break;
+            case MULTIPLY:
+                int[] first = children.isEmpty() ? null : of(children.get(0));
+                int[] last = children.isEmpty() ? null : of(children.get(children.size() - 1));
+                shape = first == null || last == null ? null : new int[] { first[0], last[1] };
+                break;
+            default:
+                break;
+        }
+        shapes.put(node, shape);
+        return shape;
+    }
+
+    // Records the shape of a node built by the caller, so it never has to be inferred
+    public void put(ComputationNode node, int[] shape) {
+        shapes.put(node, shape);
+    }
+
+    public void clear() {
+        shapes.clear();
+    }
+
+    public static long size(int[] shape) {
+        return (long) shape[0] * shape[1];
+    }
+
+    /**
+     * Counts the floating-point operations needed to evaluate root as written: 2mkn for every
+     * m x k by k x n product (operators with more operands are counted left to right),
+     * mn for every addition and negation of m x n matrices, nothing for transposes.
+     * Nodes whose shape cannot be determined count as 0. Shared nodes are counted once.
+     */
+    public static long countFlops(ComputationNode root) {
+        return countFlops(root, new ExpressionShapes(), new IdentityHashMap<>());
+    }
+
+    private static long countFlops(ComputationNode node, ExpressionShapes shapes,
+            Map<ComputationNode, Boolean> visited) {
+        if (node.getNodeType() == ComputationNodeType.MATRIX || visited.put(node, Boolean.TRUE) != null) {
+            return 0;
+        }
+        long flops = 0;
+        List<ComputationNode> children = node.getChildren();
+        for (ComputationNode child : children) {
+            flops += countFlops(child, shapes, visited);
+        }
+        int[] shape = shapes.of(node);
+        if (shape == null) {
+            return flops;
+        }
+        switch (node.getNodeType()) {
+            case ADD:
+                flops += (children.size() - 1) * size(shape);
+                break;
+            case NEGATE:
+                flops += size(shape);
+                break;
+            case MULTIPLY:
+                int[] product = shapes.of(children.get(0));
+                for (int i = 1; i < children.size() && product != null; i++) {
+                    int[] right = shapes.of(children.get(i));
+                    if (right == null) {
+                        break;
+                    }
+                    flops += 2L * product[0] * product[1] * right[1];
+                    product = new int[] { product[0], right[1] };
+                }
+                break;
+            default:
+                break;
+        }
+        return flops;
+    }
+}
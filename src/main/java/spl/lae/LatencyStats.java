@@ -0,0 +1,66 @@
+package spl.lae;
+
+import java.util.Arrays;
+
+/**
+ * Collects request latencies and summarizes them as count, mean and percentiles.
+ * Count, mean and max cover every request; percentiles cover the most recent WINDOW requests,
+ * so memory and the cost of a summary stay bounded however long the server runs.
+ * Safe to record into from several threads.
+ */
+public class LatencyStats {
+
+    public static final int WINDOW = 4096;
+
+    private final long[] recent = new long[WINDOW]; // Ring of the latest samples, in nanoseconds
+    private int next = 0; // Where the next sample goes in recent
+    private long count = 0;
+    private long total = 0;
+    private long max = 0;
+
+    public LatencyStats() {}
+
+    public synchronized void record(long nanos) {
+        recent[next] = nanos;
+        next = (next + 1) % WINDOW;
+        count++;
+        total += nanos;
+        max = Math.max(max, nanos);
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the latency below which the given fraction of the recent requests fall (nearest rank),
+     * in nanoseconds, or 0 if nothing was recorded.
+     */
+    public synchronized long percentile(double fraction) {
+        if (fraction < 0 || fraction > 1) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 1.");
+        }
+        if (count == 0) {
+            return 0;
+        }
+        int size = (int) Math.min(count, WINDOW);
+        long[] sorted = Arrays.copyOf(recent, size);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(fraction * size);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    public synchronized long mean() {
+        return count == 0 ? 0 : total / count;
+    }
+
+    public synchronized long max() {
+        return max;
+    }
+
+    public synchronized String summary() {
+        return String.format("count=%d mean=%.3fms p50=%.3fms p95=%.3fms p99=%.3fms max=%.3fms",
+                count, mean() / 1e6, percentile(0.5) / 1e6, percentile(0.95) / 1e6, percentile(0.99) / 1e6,
+                max / 1e6);
+    }
+}
@@ -3,158 +3,678 @@ package spl.lae;
 import parser.*;
 import memory.*;
 import scheduling.*;
+import metrics.EngineMetrics;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Function;
 
 public class LinearAlgebraEngine {
 
-    private SharedMatrix leftMatrix = new SharedMatrix();
-    private SharedMatrix rightMatrix = new SharedMatrix();
-    private TiredExecutor executor;
+    // Right operands with at least this many elements are multiplied block by block
+    private static final int TILED_MULTIPLY_THRESHOLD = TiledMultiplier.DEFAULT_BLOCK_SIZE * TiledMultiplier.DEFAULT_BLOCK_SIZE;
+
+    private ComputeExecutor executor;
+    private final int numThreads;
+    private final ResultCache resultCache; // null when results are not cached
+    private final MatrixPool matrixPool = new MatrixPool();
+    private final StrassenMultiplier strassen = StrassenMultiplier.fromProperties(); // Large square products
+    private final ScratchSpace scratch; // Where results too large for the heap go
+    private volatile boolean shutDown = false;
 
     public LinearAlgebraEngine(int numThreads) {
         // TODO: create executor with given thread count
-        executor = new TiredExecutor(numThreads);
+        this(numThreads, DispatchMode.HANDOFF);
+    }
+
+    public LinearAlgebraEngine(int numThreads, DispatchMode dispatchMode) {
+        this(numThreads, dispatchMode, null);
+    }
+
+    /**
+     * Results of every distinct sub-expression are looked up in, and stored to, resultCache.
+     * The cache may outlive the engine and be shared with other engines.
+     */
+    public LinearAlgebraEngine(int numThreads, DispatchMode dispatchMode, ResultCache resultCache) {
+        this(ComputeExecutor.create(numThreads, dispatchMode), resultCache);
+    }
+
+    /**
+     * Runs on the given executor, which the engine owns from now on and shuts down with itself.
+     */
+    public LinearAlgebraEngine(ComputeExecutor executor, ResultCache resultCache) {
+        this.executor = executor;
+        this.numThreads = executor.getWorkerCount();
+        this.resultCache = resultCache;
+        this.scratch = ScratchSpace.fromProperties(numThreads);
+        EngineMetrics.registerMBean();
     }
 
     public ComputationNode run(ComputationNode computationRoot) {
         // TODO: resolve computation tree step by step until final matrix is produced
-        try{
-        while (computationRoot.getNodeType() != ComputationNodeType.MATRIX) {
-            computationRoot.associativeNesting();
-            ComputationNode resolvableNode = computationRoot.findResolvable();
-            loadAndCompute(resolvableNode);
-            double[][] resultData = leftMatrix.readRowMajor();
-            if (resolvableNode == computationRoot) {
-                resolvableNode.resolve(resultData);
-                return computationRoot;
-            } else {
-                resolvableNode.resolve(resultData);
+        try {
+            return evaluate(computationRoot);
+        } finally {
+            shutdown();
+        }
+    }
+
+    /**
+     * Resolves computationRoot like run(), but keeps the executor alive afterwards,
+     * so one engine can evaluate many expressions; call shutdown() when done.
+     * Several expressions may be evaluated at the same time from different threads.
+     * Without a result cache, intermediate nodes consumed by a single parent give their matrices back
+     * to the engine's MatrixPool, so only the root of computationRoot is guaranteed to keep its matrix.
+     * Scratch files of intermediate results are deleted before this returns; a root computed out of core
+     * keeps its TiledMatrix, which the caller closes.
+     */
+    public ComputationNode evaluate(ComputationNode computationRoot) {
+        if (shutDown) {
+            throw new IllegalStateException("Engine has been shut down.");
+        }
+        // Independent subtrees are resolved concurrently, each node with its own operand matrices.
+        // Chains of elementwise operators are fused and resolved as a single node.
+        // Identical sub-expressions are merged first, and looked up in the result cache if there is one.
+        // Leaf contents are only digested for the cache; otherwise leaves are told apart by identity.
+        // Products are then reordered and transposes pushed down. Rewritten nodes are new,
+        // so the caller's root is resolved with the result of the rewritten tree at the end.
+        CommonSubexpressionEliminator subexpressions = new CommonSubexpressionEliminator(resultCache != null);
+        ComputationNode shared = subexpressions.share(computationRoot);
+        List<ComputationNode> computations = subexpressions.operatorNodes();
+        if (resultCache != null) {
+            resolveFromCache(shared, subexpressions, new IdentityHashMap<>());
+        }
+
+        ComputationNode plan = new ExpressionOptimizer().optimize(shared);
+        // Cached results are stored once the whole evaluation is done, so nothing is recycled before that
+        Set<ComputationNode> recyclable = resultCache == null ? recyclableResults(plan) : Set.of();
+        // Every result computed out of core, so that none of their scratch files outlives the evaluation
+        Set<TiledMatrix> tiledResults = ConcurrentHashMap.newKeySet();
+        TiledMatrix keptResult = null;
+        try {
+            new ComputationScheduler(node -> {
+                computeAndRecycle(node, recyclable);
+                if (node.isTiled()) {
+                    tiledResults.add(node.getTiledMatrix());
+                }
+            }, numThreads, true, executor.getThreadFactory()).run(plan);
+            if (plan != computationRoot) {
+                if (plan.isTiled()) {
+                    computationRoot.resolve(plan.getTiledMatrix());
+                } else if (plan.isSparse()) {
+                    computationRoot.resolve(plan.getSparseMatrix());
+                } else {
+                    computationRoot.resolve(plan.getMatrix());
+                }
+            }
+            keptResult = computationRoot.isTiled() ? computationRoot.getTiledMatrix() : null;
+        } finally {
+            // Shared intermediates are never recycled, and a failed evaluation keeps nothing.
+            // Closing a matrix that was already recycled does nothing.
+            for (TiledMatrix result : tiledResults) {
+                if (result != keptResult) {
+                    result.close();
+                }
+            }
+        }
+
+        if (resultCache != null) {
+            // Only nodes evaluated on their own have a result; nodes fused into a chain do not.
+            // The cache holds dense matrices, so sparse and out-of-core results are not cached.
+            for (ComputationNode node : computations) {
+                ExpressionKey key = subexpressions.keyOf(node);
+                if (node.getNodeType() == ComputationNodeType.MATRIX && !node.isSparse() && !node.isTiled()
+                        && !resultCache.contains(key)) {
+                    resultCache.put(key, node.getMatrix());
+                }
             }
         }
         return computationRoot;
     }
-    finally {
+
+    /*
+     * Intermediate results that exactly one parent consumes. Once that parent is computed
+     * they are never read again, so their buffers go back to the pool. The root is kept, and so are
+     * shared nodes and operand matrices, which belong to the caller.
+     * A plan that is already a matrix (a bare operand, or T(T(A)) once optimized) has nothing to recycle.
+     */
+    private Set<ComputationNode> recyclableResults(ComputationNode plan) {
+        if (plan.getNodeType() == ComputationNodeType.MATRIX) {
+            return Set.of();
+        }
+        Map<ComputationNode, Integer> parentCounts = new IdentityHashMap<>();
+        countParents(plan, parentCounts);
+        Set<ComputationNode> recyclable = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Map.Entry<ComputationNode, Integer> entry : parentCounts.entrySet()) {
+            if (entry.getValue() == 1 && entry.getKey() != plan) {
+                recyclable.add(entry.getKey());
+            }
+        }
+        return recyclable;
+    }
+
+    // Counts parents of operator nodes only; every distinct node is descended into once
+    private void countParents(ComputationNode node, Map<ComputationNode, Integer> parentCounts) {
+        for (ComputationNode child : node.getChildren()) {
+            if (child.getNodeType() != ComputationNodeType.MATRIX
+                    && parentCounts.merge(child, 1, Integer::sum) == 1) {
+                countParents(child, parentCounts);
+            }
+        }
+    }
+
+    /*
+     * Computes node, then hands the matrices of its recyclable operands to the pool, or deletes their
+     * scratch files if they were computed out of core. The operands
+     * are collected first, since resolving drops the node's children. Operands of a fused chain
+     * are reached through its unresolved members.
+     */
+    private void computeAndRecycle(ComputationNode node, Set<ComputationNode> recyclable) {
+        List<ComputationNode> consumed = new ArrayList<>();
+        collectRecyclableOperands(node, recyclable, consumed);
+        loadAndCompute(node);
+        for (ComputationNode operand : consumed) {
+            if (operand.isTiled()) {
+                operand.getTiledMatrix().close();
+            } else {
+                matrixPool.release(operand.releaseMatrix());
+            }
+        }
+    }
+
+    private void collectRecyclableOperands(ComputationNode node, Set<ComputationNode> recyclable,
+            List<ComputationNode> consumed) {
+        for (ComputationNode child : node.getChildren()) {
+            if (child.getNodeType() != ComputationNodeType.MATRIX) {
+                collectRecyclableOperands(child, recyclable, consumed);
+            } else if (recyclable.contains(child) && !child.isSparse()) {
+                consumed.add(child);
+            }
+        }
+    }
+
+    public MatrixPool getMatrixPool() {
+        return matrixPool;
+    }
+
+    public ScratchSpace getScratchSpace() {
+        return scratch;
+    }
+
+    /**
+     * Stops the worker threads. Expressions still being evaluated must finish first.
+     */
+    public void shutdown() {
+        shutDown = true;
         try {
             executor.shutdown();
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         }
     }
-}
 
+    // Resolves the topmost operator nodes that are cached; nothing below them needs computing
+    private void resolveFromCache(ComputationNode node, CommonSubexpressionEliminator subexpressions,
+            Map<ComputationNode, Boolean> visited) {
+        if (node.getNodeType() == ComputationNodeType.MATRIX || visited.put(node, Boolean.TRUE) != null) {
+            return;
+        }
+        double[][] cached = resultCache.get(subexpressions.keyOf(node));
+        if (cached != null) {
+            node.resolve(cached);
+            return;
+        }
+        for (ComputationNode child : node.getChildren()) {
+            resolveFromCache(child, subexpressions, visited);
+        }
+    }
+
+    public ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Loads the operands of node into fresh matrices, computes it on the executor and resolves it.
+     * Elementwise nodes are computed fused with the elementwise chain below them.
+     * All state is local, so several nodes can be computed at the same time.
+     */
     public void loadAndCompute(ComputationNode node) {
         // TODO: load operand matrices
         // TODO: create compute tasks & submit tasks to executor
+        // The type is read up front, resolving turns the node into a MATRIX
+        ComputationNodeType type = node.getNodeType();
+        long start = System.nanoTime();
+        try {
+            compute(node);
+        } finally {
+            EngineMetrics.global().recordNode(type.name(), System.nanoTime() - start);
+        }
+    }
+
+    private void compute(ComputationNode node) {
         if (node.getChildren() == null || node.getChildren().size() < 1) {
             throw new IllegalArgumentException("Node has no children: " + node.getNodeType());
         }
+        if (needsScratch(node)) {
+            computeOutOfCore(node);
+            return;
+        }
+        if (ComputationScheduler.isElementwise(node)) {
+            computeElementwise(node);
+            return;
+        }
 
-        double[][] leftData = node.getChildren().get(0).getMatrix();
-        leftMatrix.loadRowMajor(leftData);
+        if (node.getNodeType() != ComputationNodeType.MULTIPLY) {
+            throw new IllegalArgumentException("Unsupported operation: " + node.getNodeType());
+        }
+        if (node.getChildren().size() < 2) {
+            throw new IllegalArgumentException("Binary operation requires two operands: " + node.getNodeType());
+        }
+        if (node.getChildren().get(0).isSparse() || node.getChildren().get(1).isSparse()) {
+            computeSparseMultiply(node, node.getChildren().get(0), node.getChildren().get(1));
+            return;
+        }
+
+        double[][] left = node.getChildren().get(0).getMatrix();
+        double[][] right = node.getChildren().get(1).getMatrix();
+        if (left.length > 0 && right.length > 0 && strassen.appliesTo(left, right)) {
+            multiplyStrassen(node, left, right);
+            return;
+        }
+        if (right.length > 0 && (long) right.length * right[0].length >= TILED_MULTIPLY_THRESHOLD) {
+            multiplyPooled(node, left, right);
+            return;
+        }
+
+        // Every row task writes one row of leftMatrix, which is then read back whole
+        SharedMatrix leftMatrix = new SharedMatrix(MatrixStorage.CONTIGUOUS, MatrixLocking.STRIPED);
+        SharedMatrix rightMatrix = new SharedMatrix(MatrixStorage.CONTIGUOUS);
+        leftMatrix.loadRowMajor(left);
+        rightMatrix.loadRowMajor(right);
+        // The right operand is only read from now on, so its reads can skip locking
+        rightMatrix.freeze();
 
-        if (node.getNodeType() == ComputationNodeType.ADD ||
-                node.getNodeType() == ComputationNodeType.MULTIPLY) {
+        List<Runnable> tasks = createMultiplyTasks(leftMatrix, rightMatrix);
+        executor.submitAll(tasks);
+        node.resolve(leftMatrix.readRowMajor());
+    }
 
-            if (node.getChildren().size() < 2) {
-                throw new IllegalArgumentException("Binary operation requires two operands: " + node.getNodeType());
+    /*
+     * Large products skip the SharedMatrix copies: the operands are read where they are, and the product
+     * and the packed right operand live in buffers from the pool.
+     */
+    private void multiplyPooled(ComputationNode node, double[][] left, double[][] right) {
+        if (left.length == 0 || left[0].length == 0) {
+            throw new IllegalArgumentException("Cannot multiply an empty matrix.");
+        }
+        if (left[0].length != right.length) {
+            throw new IllegalArgumentException(
+                    "Number of columns in left matrix must equal number of rows in right matrix for multiplication.");
+        }
+        int rowsPerWorker = (left.length + numThreads - 1) / numThreads;
+        int blockSize = Math.max(1, Math.min(TiledMultiplier.DEFAULT_BLOCK_SIZE, rowsPerWorker));
+        double[][] target = matrixPool.acquire(left.length, right[0].length);
+        try {
+            TiledMultiplier multiplier = new TiledMultiplier(left, right, target, blockSize, matrixPool);
+            try {
+                executor.submitAll(multiplier.createBlockTasks());
+            } finally {
+                if (!Thread.currentThread().isInterrupted()) {
+                    multiplier.release();
+                }
             }
+        } catch (RuntimeException e) {
+            releaseAfterFailure(target);
+            throw e;
+        }
+        node.resolve(target);
+    }
 
-            double[][] rightData = node.getChildren().get(1).getMatrix();
-            rightMatrix.loadRowMajor(rightData);
+    /*
+     * Gives a pooled product buffer back after its multiply failed. If waiting for the tasks was interrupted,
+     * some of them may still be writing into it, so it is left to the garbage collector instead.
+     */
+    private void releaseAfterFailure(double[][] target) {
+        if (!Thread.currentThread().isInterrupted()) {
+            matrixPool.release(target);
         }
+    }
 
-        if (node.getNodeType() == ComputationNodeType.NEGATE ||
-                node.getNodeType() == ComputationNodeType.TRANSPOSE) {
+    /*
+     * A node (with the fused chain below it) is computed out of core when one of its operands already is,
+     * or when its result would reach the spill threshold.
+     */
+    private boolean needsScratch(ComputationNode node) {
+        if (hasTiledOperand(node)) {
+            return true;
+        }
+        int[] shape = new ExpressionShapes().of(node);
+        return shape != null && scratch.shouldSpill(ExpressionShapes.size(shape));
+    }
 
-            if (node.getChildren().size() != 1) {
-                throw new IllegalArgumentException(
-                        "Unary operation requires exactly one operand: " + node.getNodeType());
+    private boolean hasTiledOperand(ComputationNode node) {
+        for (ComputationNode child : node.getChildren()) {
+            if (child.getNodeType() == ComputationNodeType.MATRIX ? child.isTiled() : hasTiledOperand(child)) {
+                return true;
             }
         }
+        return false;
+    }
 
-        List<Runnable> tasks = null;
+    /*
+     * Computes node tile by tile into a scratch file. Every operator of a fused chain becomes its own
+     * pass over the tiles; heap operands are spilled first. Those copies and the results of the
+     * inner chain members are deleted once node is resolved.
+     */
+    private void computeOutOfCore(ComputationNode node) {
+        List<TiledMatrix> temporaries = new ArrayList<>();
+        try {
+            node.resolve(computeTiled(node, temporaries));
+        } finally {
+            for (TiledMatrix temporary : temporaries) {
+                temporary.close();
+            }
+        }
+    }
+
+    private TiledMatrix computeTiled(ComputationNode node, List<TiledMatrix> temporaries) {
+        if (node.getNodeType() == ComputationNodeType.MATRIX) {
+            if (node.isTiled()) {
+                return node.getTiledMatrix();
+            }
+            TiledMatrix spilled = scratch.spill(node.getMatrix());
+            temporaries.add(spilled);
+            return spilled;
+        }
+        List<TiledMatrix> operands = new ArrayList<>();
+        for (ComputationNode child : node.getChildren()) {
+            TiledMatrix operand = computeTiled(child, temporaries);
+            if (child.getNodeType() != ComputationNodeType.MATRIX) {
+                temporaries.add(operand);
+            }
+            operands.add(operand);
+        }
+        TileBudget budget = scratch.getBudget();
+        TiledMatrix first = operands.get(0);
         switch (node.getNodeType()) {
-            case ADD:
-                tasks = createAddTasks();
-                break;
-            case MULTIPLY:
-                tasks = createMultiplyTasks();
-                break;
             case NEGATE:
-                tasks = createNegateTasks();
-                break;
+                return computeTiles(first.getRows(), first.getColumns(),
+                        result -> TileOperations.negateTasks(first, result, budget));
             case TRANSPOSE:
-                tasks = createTransposeTasks();
-                break;
+                return computeTiles(first.getColumns(), first.getRows(),
+                        result -> TileOperations.transposeTasks(first, result, budget));
+            case ADD:
+            case MULTIPLY:
+                if (operands.size() < 2) {
+                    throw new IllegalArgumentException("Binary operation requires two operands: " + node.getNodeType());
+                }
+                // More than two operands are combined left to right; the partial results are temporary
+                TiledMatrix accumulated = first;
+                for (int i = 1; i < operands.size(); i++) {
+                    TiledMatrix left = accumulated;
+                    TiledMatrix right = operands.get(i);
+                    if (i > 1) {
+                        temporaries.add(left);
+                    }
+                    accumulated = node.getNodeType() == ComputationNodeType.ADD
+                            ? computeTiles(left.getRows(), left.getColumns(),
+                                    result -> TileOperations.addTasks(left, right, result, budget))
+                            : computeTiles(left.getRows(), right.getColumns(),
+                                    result -> TileOperations.multiplyTasks(left, right, result, budget));
+                }
+                return accumulated;
             default:
                 throw new IllegalArgumentException("Unsupported operation: " + node.getNodeType());
         }
+    }
+
+    // Allocates a rows x cols result in scratch and fills it with the tasks built for it
+    private TiledMatrix computeTiles(int rows, int cols, Function<TiledMatrix, List<Runnable>> tasksFor) {
+        TiledMatrix result = scratch.allocate(rows, cols);
+        try {
+            executor.submitAll(tasksFor.apply(result));
+            return result;
+        } catch (RuntimeException e) {
+            result.close();
+            throw e;
+        }
+    }
+
+    /*
+     * Square products of at least strassen.getMinSize() rows. The recursion forks and joins
+     * through batches on the executor, and the product lands in a buffer from the pool.
+     */
+    private void multiplyStrassen(ComputationNode node, double[][] left, double[][] right) {
+        double[][] target = matrixPool.acquire(left.length, left.length);
+        try {
+            strassen.multiply(left, right, target, numThreads, executor::submitAll);
+        } catch (RuntimeException e) {
+            releaseAfterFailure(target);
+            throw e;
+        }
+        node.resolve(target);
+    }
+
+    /**
+     * Resolves node together with every unresolved elementwise node below it in a single fused pass.
+     * Operands of the chain must already be resolved.
+     */
+    public void computeElementwise(ComputationNode node) {
+        if (hasOnlySparseOperands(node)) {
+            resolveSparse(node, evaluateSparse(node));
+            return;
+        }
+        ElementwiseExpression expression = new ElementwiseExpression();
+        collectTerms(node, false, false, expression);
+        TaskPartitioner.Grid grid = partitioner().partition(expression.getRows(), expression.getColumns(),
+                expression.termCount(), true);
+        double[][] target = matrixPool.acquire(expression.getRows(), expression.getColumns());
+        executor.submitAll(expression.createBlockTasks(grid.getRowsPerTask(), grid.getColsPerTask(), target));
+        node.resolve(expression.getResult());
+    }
+
+    /*
+     * Multiplications with at least one sparse operand. Rows of the result are computed by parallel tasks:
+     * sparse x sparse into CSR row blocks that are stacked at the end, the mixed cases into dense rows.
+     */
+    private void computeSparseMultiply(ComputationNode node, ComputationNode left, ComputationNode right) {
+        List<Runnable> tasks;
+        if (left.isSparse() && right.isSparse()) {
+            SparseMatrix a = left.getSparseMatrix().toOrientation(VectorOrientation.ROW_MAJOR);
+            SparseMatrix b = right.getSparseMatrix().toOrientation(VectorOrientation.ROW_MAJOR);
+            int rows = a.getRows();
+            long workPerRow = Math.max(1, (long) a.getNonZeroCount() * (b.getNonZeroCount() / b.getRows() + 1) / rows);
+            int rowsPerTask = partitioner().partition(rows, 1, workPerRow, false).getRowsPerTask();
+            SparseMatrix[] blocks = new SparseMatrix[(rows + rowsPerTask - 1) / rowsPerTask];
+            tasks = new java.util.ArrayList<>();
+            for (int block = 0; block < blocks.length; block++) {
+                final int index = block;
+                final int r0 = block * rowsPerTask;
+                final int r1 = Math.min(r0 + rowsPerTask, rows);
+                tasks.add(() -> blocks[index] = a.multiplyRows(b, r0, r1));
+            }
+            executor.submitAll(tasks);
+            resolveSparse(node, SparseMatrix.concatRows(List.of(blocks)));
+            return;
+        }
+
+        double[][] result;
+        if (left.isSparse()) {
+            SparseMatrix a = left.getSparseMatrix().toOrientation(VectorOrientation.ROW_MAJOR);
+            double[][] b = denseOperand(right);
+            result = new double[a.getRows()][];
+            long workPerRow = Math.max(1, (long) a.getNonZeroCount() / a.getRows() * b[0].length);
+            TaskPartitioner.Grid grid = partitioner().partition(a.getRows(), 1, workPerRow, false);
+            tasks = createGridTasks(a.getRows(), 1, grid,
+                    (row, colStart, colEnd) -> a.multiplyRows(b, result, row, row + 1));
+        } else {
+            double[][] a = denseOperand(left);
+            SparseMatrix b = right.getSparseMatrix().toOrientation(VectorOrientation.ROW_MAJOR);
+            result = new double[a.length][];
+            long workPerRow = a[0].length + (long) b.getNonZeroCount();
+            TaskPartitioner.Grid grid = partitioner().partition(a.length, 1, workPerRow, false);
+            tasks = createGridTasks(a.length, 1, grid,
+                    (row, colStart, colEnd) -> b.multiplyLeftRows(a, result, row, row + 1));
+        }
         executor.submitAll(tasks);
+        node.resolve(result);
     }
 
-    public List<Runnable> createAddTasks() {
-        // TODO: return tasks that perform row-wise addition
-        List<Runnable> tasks = new java.util.ArrayList<>();
-        if (leftMatrix.length() != rightMatrix.length() || leftMatrix.get(0).length() != rightMatrix.get(0).length()) {
-            throw new IllegalArgumentException("Matrices must have the same number of rows to add.");
+    private double[][] denseOperand(ComputationNode operand) {
+        double[][] matrix = operand.getMatrix();
+        if (matrix.length == 0 || matrix[0].length == 0) {
+            throw new IllegalArgumentException("Cannot multiply an empty matrix.");
         }
-        for (int i = 0; i < leftMatrix.length(); i++) {
-            final int rowIndex = i;
-            tasks.add(() -> {
-                leftMatrix.get(rowIndex).add(rightMatrix.get(rowIndex));
-            });
+        return matrix;
+    }
+
+    // Keeps a sparse result sparse only while it is sparse enough to be worth it
+    private void resolveSparse(ComputationNode node, SparseMatrix result) {
+        if (result.getDensity() <= SparseMatrix.DEFAULT_DENSITY_THRESHOLD) {
+            node.resolve(result);
+        } else {
+            node.resolve(result.toDense());
         }
-        return tasks;
     }
 
-    public List<Runnable> createMultiplyTasks() {
+    private boolean hasOnlySparseOperands(ComputationNode node) {
+        if (node.getNodeType() == ComputationNodeType.MATRIX) {
+            return node.isSparse();
+        }
+        if (!ComputationScheduler.isElementwise(node)) {
+            return false;
+        }
+        for (ComputationNode child : node.getChildren()) {
+            if (!hasOnlySparseOperands(child)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * An elementwise chain over sparse operands only. Sums merge the operands' non-zeros, negation flips
+     * their signs and transposition reinterprets CSR as CSC, so the chain never expands to dense form.
+     */
+    private SparseMatrix evaluateSparse(ComputationNode node) {
+        List<ComputationNode> children = node.getChildren();
+        switch (node.getNodeType()) {
+            case MATRIX:
+                return node.getSparseMatrix();
+            case ADD:
+                if (children.size() < 2) {
+                    throw new IllegalArgumentException("Binary operation requires two operands: " + node.getNodeType());
+                }
+                SparseMatrix sum = evaluateSparse(children.get(0));
+                for (int i = 1; i < children.size(); i++) {
+                    sum = sum.add(evaluateSparse(children.get(i)));
+                }
+                return sum;
+            case NEGATE:
+            case TRANSPOSE:
+                if (children.size() != 1) {
+                    throw new IllegalArgumentException(
+                            "Unary operation requires exactly one operand: " + node.getNodeType());
+                }
+                SparseMatrix operand = evaluateSparse(children.get(0));
+                return node.getNodeType() == ComputationNodeType.NEGATE ? operand.negate() : operand.transpose();
+            default:
+                throw new IllegalStateException("Operand is not resolved: " + node.getNodeType());
+        }
+    }
+
+    /*
+     * Pushes negation and transposition down to the operand matrices:
+     * -(X + Y) = -X + -Y, (X + Y)^T = X^T + Y^T, (-X)^T = -(X^T) and (X^T)^T = X.
+     */
+    private void collectTerms(ComputationNode node, boolean negated, boolean transposed,
+            ElementwiseExpression expression) {
+        List<ComputationNode> children = node.getChildren();
+        switch (node.getNodeType()) {
+            case MATRIX:
+                expression.addTerm(node.getMatrix(), negated, transposed);
+                break;
+            case ADD:
+                if (children.size() < 2) {
+                    throw new IllegalArgumentException("Binary operation requires two operands: " + node.getNodeType());
+                }
+                for (ComputationNode child : children) {
+                    collectTerms(child, negated, transposed, expression);
+                }
+                break;
+            case NEGATE:
+            case TRANSPOSE:
+                if (children.size() != 1) {
+                    throw new IllegalArgumentException(
+                            "Unary operation requires exactly one operand: " + node.getNodeType());
+                }
+                boolean negate = node.getNodeType() == ComputationNodeType.NEGATE;
+                collectTerms(children.get(0), negated ^ negate, transposed ^ !negate, expression);
+                break;
+            default:
+                throw new IllegalStateException("Operand is not resolved: " + node.getNodeType());
+        }
+    }
+
+    public List<Runnable> createMultiplyTasks(SharedMatrix leftMatrix, SharedMatrix rightMatrix) {
         // TODO: return tasks that perform row × matrix multiplication
-        List<Runnable> tasks = new java.util.ArrayList<>();
         if (leftMatrix.get(0).length() != rightMatrix.length()) {
             throw new IllegalArgumentException(
                     "Number of columns in left matrix must equal number of rows in right matrix for multiplication.");
         }
-        for (int i = 0; i < leftMatrix.length(); i++) {
-            final int rowIndex = i;
-            tasks.add(() -> {
-                leftMatrix.get(rowIndex).vecMatMul(rightMatrix);
-            });
-        }
-        return tasks;
+        // Large right operands never get here: compute() hands them to multiplyPooled or multiplyStrassen.
+        // Every left element costs one multiply-add per result column; rows are never split
+        int rows = leftMatrix.length();
+        int inner = rightMatrix.length();
+        TaskPartitioner.Grid grid = partitioner().partition(rows, inner, rightMatrix.get(0).length(), false);
+        return createGridTasks(rows, inner, grid,
+                (row, colStart, colEnd) -> leftMatrix.get(row).vecMatMul(rightMatrix));
     }
 
-    public List<Runnable> createNegateTasks() {
-        // TODO: return tasks that negate rows
-        List<Runnable> tasks = new java.util.ArrayList<>();
-        for (int i = 0; i < leftMatrix.length(); i++) {
-            final int rowIndex = i;
-            tasks.add(() -> {
-                leftMatrix.get(rowIndex).negate();
-            });
-        }
-        return tasks;
+    // Work on columns [colStart, colEnd) of one row
+    private interface RowRangeOperation {
+        void apply(int row, int colStart, int colEnd);
     }
 
-    public List<Runnable> createTransposeTasks() {
-        // TODO: return tasks that transpose rows
+    /*
+     * One task per grid cell. A task covering whole rows applies the operation row by row;
+     * a task covering part of a row applies it to that column range only.
+     */
+    private List<Runnable> createGridTasks(int rows, int cols, TaskPartitioner.Grid grid, RowRangeOperation operation) {
         List<Runnable> tasks = new java.util.ArrayList<>();
-        tasks.add(() -> {
-            double[][] data = leftMatrix.readRowMajor();
-            int rows = data.length;
-            int cols = data[0].length;
-
-            double[][] transposed = new double[cols][rows];
-            for (int i = 0; i < rows; i++) {
-                for (int j = 0; j < cols; j++) {
-                    transposed[j][i] = data[i][j];
-                }
+        for (int rowStart = 0; rowStart < rows; rowStart += grid.getRowsPerTask()) {
+            for (int colStart = 0; colStart < cols; colStart += grid.getColsPerTask()) {
+                final int r0 = rowStart;
+                final int r1 = Math.min(rowStart + grid.getRowsPerTask(), rows);
+                final int c0 = colStart;
+                final int c1 = Math.min(colStart + grid.getColsPerTask(), cols);
+                tasks.add(() -> {
+                    for (int row = r0; row < r1; row++) {
+                        operation.apply(row, c0, c1);
+                    }
+                });
             }
+        }
+        return tasks;
+    }
 
-            leftMatrix.loadRowMajor(transposed);
-        });
+    // Sized with the executor's current dispatch cost, so tasks grow when handing them out gets expensive
+    private TaskPartitioner partitioner() {
+        return new TaskPartitioner(numThreads, executor.getDispatchCostNanos());
+    }
 
-        return tasks;
+    /**
+     * Threads for orchestration and I/O around this engine, for example one per client or batch runner.
+     * They are virtual threads when the engine runs on a VirtualThreadExecutor.
+     */
+    public ThreadFactory getThreadFactory() {
+        return executor.getThreadFactory();
     }
 
     public String getWorkerReport() {
@@ -1,11 +1,20 @@
 package spl.lae;
 import java.io.IOException;
 
+import metrics.EngineMetrics;
 import parser.*;
 
 public class Main {
     public static void main(String[] args) throws IOException {
       // TODO: main
+        if (args.length > 0 && args[0].equals("--server")) {
+            runServer(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--batch")) {
+            runBatch(args);
+            return;
+        }
         if (args.length != 3) {
             System.err.println("Usage: not aligned with the requset - <number_of_threads> <input_file> <output_file>");
             System.exit(1);
@@ -26,8 +35,10 @@ public class Main {
             return;
         }
 
+        boolean pretty = OutputWriter.prettyFromProperties();
         LinearAlgebraEngine engine = new LinearAlgebraEngine(numThreads);
-        InputParser parser = new InputParser();
+        engine.getScratchSpace().deleteStaleFiles();
+        InputParser parser = new InputParser(true, InputParser.sparseThresholdFromProperties(), engine.getScratchSpace());
         ComputationNode computationRoot;
         
         try {
@@ -58,8 +69,20 @@ public class Main {
         }
 
         try {
-            double[][] resultMatrix = result.getMatrix();
-            OutputWriter.write(resultMatrix, outputFilePath);
+            // Results computed out of core are streamed to binary outputs without loading them
+            if (result.isTiled() && BinaryMatrixIO.isBinaryMatrixPath(outputFilePath)) {
+                BinaryMatrixIO.write(result.getTiledMatrix(), outputFilePath);
+            } else {
+                double[][] resultMatrix = result.getMatrix();
+                if (BinaryMatrixIO.isBinaryMatrixPath(outputFilePath)) {
+                    BinaryMatrixIO.write(resultMatrix, outputFilePath);
+                } else {
+                    OutputWriter.write(resultMatrix, outputFilePath, pretty);
+                }
+            }
+            if (result.isTiled()) {
+                result.getTiledMatrix().close();
+            }
         } catch (Exception e) {
             System.err.println("Error writing result to output file: " + e.getMessage());
             try {
@@ -74,5 +97,120 @@ public class Main {
         System.out.println("Computation completed successfully.");
         System.out.println("\n--- Worker Report ---");
         System.out.println(engine.getWorkerReport());
+        dumpMetrics();
+    }
+
+    /*
+     * Writes the collected metrics as JSON when the lae.metrics.json system property names a file.
+     * They are also exposed over JMX while the process runs.
+     */
+    private static void dumpMetrics() {
+        String path = System.getProperty("lae.metrics.json");
+        if (path == null || path.isEmpty()) {
+            return;
+        }
+        try {
+            EngineMetrics.global().writeJson(path);
+        } catch (IOException e) {
+            System.err.println("Error writing metrics: " + e.getMessage());
+        }
+    }
+
+    /*
+     * --server <number_of_threads> [port]
+     * Serves requests from stdin, or from loopback clients of the given port, with one long-lived engine.
+     * See EngineServer for the protocol.
+     */
+    private static void runServer(String[] args) throws IOException {
+        if (args.length != 2 && args.length != 3) {
+            System.err.println("Usage: --server <number_of_threads> [port]");
+            System.exit(1);
+        }
+        int numThreads;
+        int port = -1;
+        try {
+            numThreads = Integer.parseInt(args[1]);
+            if (args.length == 3) {
+                port = Integer.parseInt(args[2]);
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Error: Number of threads and port must be integers.");
+            System.exit(1);
+            return;
+        }
+        if (numThreads <= 0 || (args.length == 3 && (port < 0 || port > 65535))) {
+            System.err.println("Error: Number of threads must be positive and port between 0 and 65535.");
+            System.exit(1);
+        }
+
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(numThreads);
+        engine.getScratchSpace().deleteStaleFiles();
+        EngineServer server = new EngineServer(engine, OutputWriter.prettyFromProperties());
+        try {
+            if (port == -1) {
+                server.serve(System.in, System.out);
+            } else {
+                server.serve(port);
+            }
+        } finally {
+            engine.shutdown();
+            System.err.println("Served " + server.getLatencies().summary());
+            dumpMetrics();
+        }
+    }
+
+    /*
+     * --batch <number_of_threads> <directory|manifest> [max_in_flight]
+     * Evaluates every input of the batch with one engine, at most max_in_flight (default: number_of_threads)
+     * expressions at a time, and prints the aggregate throughput. See BatchRunner for the input formats.
+     */
+    private static void runBatch(String[] args) throws IOException {
+        if (args.length != 3 && args.length != 4) {
+            System.err.println("Usage: --batch <number_of_threads> <directory|manifest> [max_in_flight]");
+            System.exit(1);
+        }
+        int numThreads;
+        int maxInFlight;
+        try {
+            numThreads = Integer.parseInt(args[1]);
+            maxInFlight = args.length == 4 ? Integer.parseInt(args[3]) : numThreads;
+        } catch (NumberFormatException e) {
+            System.err.println("Error: Number of threads and expressions in flight must be integers.");
+            System.exit(1);
+            return;
+        }
+        if (numThreads <= 0 || maxInFlight <= 0) {
+            System.err.println("Error: Number of threads and expressions in flight must be positive.");
+            System.exit(1);
+        }
+
+        java.util.List<BatchRunner.Job> jobs;
+        try {
+            jobs = BatchRunner.loadJobs(args[2]);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Error reading batch: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(numThreads);
+        engine.getScratchSpace().deleteStaleFiles();
+        BatchRunner runner = new BatchRunner(engine, maxInFlight);
+        BatchRunner.Summary summary;
+        try {
+            summary = runner.run(jobs);
+        } finally {
+            engine.shutdown();
+        }
+
+        for (String failure : summary.getFailures()) {
+            System.err.println(failure);
+        }
+        System.out.println(summary);
+        System.out.println("Latency: " + runner.getLatencies().summary());
+        dumpMetrics();
+        if (summary.getFailed() > 0) {
+            System.exit(1);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,97 @@
+package spl.lae;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded least-recently-used cache of computed matrices, keyed by ExpressionKey.
+ * The bound is on the total number of cached elements, so a few huge results cannot exhaust memory;
+ * results larger than the whole bound are not cached at all.
+ *
+ * Matrices are copied on the way in and on the way out, so callers may modify what they get back.
+ * All methods are synchronized: one cache can be shared by several engines and runs.
+ */
+public class ResultCache {
+
+    private final long maxElements;
+    private long elements = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private final LinkedHashMap<ExpressionKey, double[][]> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    public ResultCache(long maxElements) {
+        if (maxElements <= 0) {
+            throw new IllegalArgumentException("Cache capacity must be positive.");
+        }
+        this.maxElements = maxElements;
+    }
+
+    /**
+     * Returns a copy of the cached result for key, or null if there is none.
+     */
+    public synchronized double[][] get(ExpressionKey key) {
+        double[][] matrix = entries.get(key);
+        if (matrix == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return copy(matrix);
+    }
+
+    public synchronized void put(ExpressionKey key, double[][] matrix) {
+        long size = elementCount(matrix);
+        if (size > maxElements) {
+            return;
+        }
+        double[][] previous = entries.put(key, copy(matrix));
+        if (previous != null) {
+            elements -= elementCount(previous);
+        }
+        elements += size;
+        // Iteration order is least recently used first
+        Iterator<Map.Entry<ExpressionKey, double[][]>> eldest = entries.entrySet().iterator();
+        while (elements > maxElements) {
+            elements -= elementCount(eldest.next().getValue());
+            eldest.remove();
+        }
+    }
+
+    public synchronized boolean contains(ExpressionKey key) {
+        return entries.containsKey(key);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        elements = 0;
+    }
+
+    private static long elementCount(double[][] matrix) {
+        long count = 0;
+        for (double[] row : matrix) {
+            count += row.length;
+        }
+        return count;
+    }
+
+    private static double[][] copy(double[][] matrix) {
+        double[][] copy = new double[matrix.length][];
+        for (int i = 0; i < matrix.length; i++) {
+            copy[i] = matrix[i].clone();
+        }
+        return copy;
+    }
+}
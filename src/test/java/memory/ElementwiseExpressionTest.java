@@ -0,0 +1,101 @@
+package memory;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+public class ElementwiseExpressionTest {
+
+    private static double[][] sequentialMatrix(int rows, int cols, int start) {
+        double[][] matrix = new double[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                matrix[i][j] = start + i * cols + j;
+            }
+        }
+        return matrix;
+    }
+
+    private static void runAll(List<Runnable> tasks) {
+        for (Runnable task : tasks) {
+            task.run();
+        }
+    }
+
+    @Test
+    public void testNegatedSum() {
+        double[][] a = { { 1, 2 }, { 3, 4 } };
+        double[][] b = { { 10, 20 }, { 30, 40 } };
+        double[][] c = { { 100, 200 }, { 300, 400 } };
+        // -(A + B + C)
+        ElementwiseExpression expression = new ElementwiseExpression();
+        expression.addTerm(a, true, false);
+        expression.addTerm(b, true, false);
+        expression.addTerm(c, true, false);
+        runAll(expression.createRowBlockTasks(1));
+        double[][] result = expression.getResult();
+        assertEquals(-111, result[0][0]);
+        assertEquals(-222, result[0][1]);
+        assertEquals(-444, result[1][1]);
+    }
+
+    @Test
+    public void testTransposedTermsAcrossTiles() {
+        double[][] a = sequentialMatrix(40, 70, 0);
+        double[][] b = sequentialMatrix(70, 40, 1000);
+        // A - B^T
+        ElementwiseExpression expression = new ElementwiseExpression();
+        expression.addTerm(a, false, false);
+        expression.addTerm(b, true, true);
+        List<Runnable> tasks = expression.createRowBlockTasks(16);
+        assertEquals(3, tasks.size(), "40 rows in blocks of 16 should give 3 tasks");
+        runAll(tasks);
+        double[][] result = expression.getResult();
+        assertEquals(40, result.length);
+        assertEquals(70, result[0].length);
+        for (int i = 0; i < 40; i++) {
+            for (int j = 0; j < 70; j++) {
+                assertEquals(a[i][j] - b[j][i], result[i][j], "Element [" + i + "][" + j + "] should match");
+            }
+        }
+    }
+
+    @Test
+    public void testColumnBlocks() {
+        double[][] a = sequentialMatrix(3, 100, 0);
+        double[][] b = sequentialMatrix(100, 3, 500);
+        // -A + B^T, with rows split into column ranges that cross transpose tiles
+        ElementwiseExpression expression = new ElementwiseExpression();
+        expression.addTerm(a, true, false);
+        expression.addTerm(b, false, true);
+        List<Runnable> tasks = expression.createBlockTasks(2, 40);
+        assertEquals(6, tasks.size(), "3 rows in blocks of 2 times 100 columns in blocks of 40");
+        runAll(tasks);
+        double[][] result = expression.getResult();
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 100; j++) {
+                assertEquals(-a[i][j] + b[j][i], result[i][j], "Element [" + i + "][" + j + "] should match");
+            }
+        }
+    }
+
+    @Test
+    public void testOperandsAreNotModified() {
+        double[][] a = { { 1, 2 }, { 3, 4 } };
+        ElementwiseExpression expression = new ElementwiseExpression();
+        expression.addTerm(a, true, true);
+        runAll(expression.createRowBlockTasks(2));
+        assertEquals(-3, expression.getResult()[0][1]);
+        assertEquals(2, a[0][1], "Operand should be left untouched");
+    }
+
+    @Test
+    public void testShapeMismatchThrowsException() {
+        ElementwiseExpression expression = new ElementwiseExpression();
+        expression.addTerm(sequentialMatrix(2, 3, 0), false, false);
+        assertThrows(IllegalArgumentException.class, () -> {
+            expression.addTerm(sequentialMatrix(2, 3, 0), false, true);
+        }, "Adding a 3x2 term to a 2x3 expression should throw exception");
+    }
+}
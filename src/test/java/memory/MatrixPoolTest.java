@@ -0,0 +1,41 @@
+package memory;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MatrixPoolTest {
+
+    @Test
+    public void testReleasedMatrixIsReusedForSameShape() {
+        MatrixPool pool = new MatrixPool(100);
+        double[][] matrix = pool.acquire(3, 4);
+        assertEquals(1, pool.getMisses());
+        assertTrue(pool.release(matrix));
+        assertEquals(12, pool.getPooledElements());
+
+        assertNotSame(matrix, pool.acquire(4, 3), "A different shape should not be recycled");
+        assertSame(matrix, pool.acquire(3, 4));
+        assertEquals(1, pool.getHits());
+        assertEquals(0, pool.getPooledElements());
+    }
+
+    @Test
+    public void testFlatArraysArePooledByLength() {
+        MatrixPool pool = new MatrixPool(100);
+        double[] array = new double[10];
+        assertTrue(pool.releaseFlat(array));
+        assertSame(array, pool.acquireFlat(10));
+        assertEquals(10, pool.acquireFlat(10).length);
+    }
+
+    @Test
+    public void testPoolSizeIsBounded() {
+        MatrixPool pool = new MatrixPool(20);
+        assertTrue(pool.release(new double[4][4]));
+        assertFalse(pool.release(new double[2][4]), "16 + 8 elements exceed the bound");
+        assertFalse(pool.release(new double[][] { { 1, 2 }, { 3 } }), "Ragged matrices are not pooled");
+        assertEquals(16, pool.getPooledElements());
+        pool.clear();
+        assertEquals(0, pool.getPooledElements());
+    }
+}
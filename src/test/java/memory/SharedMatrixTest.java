@@ -1,5 +1,7 @@
 package memory;
 
+import java.util.Arrays;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
@@ -137,4 +139,189 @@ public class SharedMatrixTest {
         assertEquals(3, result[2][0]);
         assertEquals(6, result[2][1]);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testContiguousStorageReadRowMajor() {
+        SharedMatrix contiguous = new SharedMatrix(testData, MatrixStorage.CONTIGUOUS);
+        assertEquals(MatrixStorage.CONTIGUOUS, contiguous.getStorage());
+        assertEquals(2, contiguous.length());
+        double[][] result = contiguous.readRowMajor();
+        for (int i = 0; i < 2; i++) {
+            for (int j = 0; j < 3; j++) {
+                assertEquals(testData[i][j], result[i][j],
+                        "Element [" + i + "][" + j + "] should match");
+            }
+        }
+    }
+
+    @Test
+    public void testContiguousStorageCopiesInput() {
+        SharedMatrix contiguous = new SharedMatrix(MatrixStorage.CONTIGUOUS);
+        contiguous.loadRowMajor(testData);
+        contiguous.get(0).negate();
+        assertEquals(1, testData[0][0], "Contiguous storage should not modify the caller's arrays");
+        assertEquals(-1, contiguous.get(0).get(0));
+        assertEquals(4, contiguous.get(1).get(0), "Negating one row view should not touch the next row");
+    }
+
+    @Test
+    public void testContiguousStorageColumnMajor() {
+        SharedMatrix contiguous = new SharedMatrix(MatrixStorage.CONTIGUOUS);
+        contiguous.loadColumnMajor(testData);
+        assertEquals(VectorOrientation.COLUMN_MAJOR, contiguous.getOrientation());
+        double[][] result = contiguous.readRowMajor();
+        assertEquals(3, result.length, "Should have 3 rows");
+        assertEquals(2, result[0].length, "Should have 2 columns");
+        assertEquals(4, result[0][1]);
+        assertEquals(3, result[2][0]);
+    }
+
+    @Test
+    public void testLoadFlat() {
+        double[] data = { 1, 2, 3, 4, 5, 6 };
+        matrix.loadFlat(data, 3, 2, VectorOrientation.ROW_MAJOR);
+        assertEquals(3, matrix.length());
+        assertEquals(2, matrix.get(0).length());
+        double[][] result = matrix.readRowMajor();
+        assertEquals(3, result[1][0]);
+        assertEquals(6, result[2][1]);
+    }
+
+    @Test
+    public void testLoadFlatTooShortThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            matrix.loadFlat(new double[5], 3, 2, VectorOrientation.ROW_MAJOR);
+        }, "Loading flat data shorter than rows * columns should throw exception");
+    }
+
+    @Test
+    public void testCopyIntoFromColumnMajor() {
+        matrix.loadColumnMajor(testData);
+        double[] dst = new double[6];
+        matrix.copyInto(dst, 0);
+        double[] expected = { 1, 4, 2, 5, 3, 6 };
+        for (int i = 0; i < 6; i++) {
+            assertEquals(expected[i], dst[i], "Element " + i + " should match");
+        }
+    }
+
+    @Test
+    public void testFreeze() {
+        matrix.loadRowMajor(testData);
+        assertFalse(matrix.isFrozen());
+        matrix.freeze();
+        assertTrue(matrix.isFrozen());
+        assertThrows(IllegalStateException.class, () -> {
+            matrix.get(0).negate();
+        }, "Modifying a row of a frozen matrix should throw exception");
+        double[][] result = matrix.readRowMajor();
+        assertEquals(6, result[1][2]);
+        matrix.loadRowMajor(testData);
+        assertFalse(matrix.isFrozen(), "Loading new data should replace the frozen vectors");
+    }
+
+    @Test
+    public void testSnapshotIsIndependentCopy() {
+        matrix.loadRowMajor(testData);
+        SharedMatrix snapshot = matrix.snapshot();
+        assertTrue(snapshot.isFrozen());
+        matrix.get(0).negate();
+        double[][] result = snapshot.readRowMajor();
+        assertEquals(1, result[0][0], "Snapshot should not see later changes");
+        assertEquals(3, result[0][2]);
+        assertEquals(5, result[1][1]);
+    }
+
+    @Test
+    public void testTransposeFlipsOrientationWithoutCopying() {
+        matrix.loadRowMajor(testData);
+        SharedVector firstRow = matrix.get(0);
+        matrix.transpose();
+        assertEquals(VectorOrientation.COLUMN_MAJOR, matrix.getOrientation());
+        assertSame(firstRow, matrix.get(0), "Transpose should reuse the existing vectors");
+        double[][] result = matrix.readRowMajor();
+        assertEquals(3, result.length, "Transposed: 3 rows");
+        assertEquals(2, result[0].length, "Transposed: 2 columns");
+        assertEquals(4, result[0][1]);
+        assertEquals(3, result[2][0]);
+        matrix.transpose();
+        assertEquals(6, matrix.readRowMajor()[1][2], "Transposing twice should restore the matrix");
+    }
+
+    @Test
+    public void testTransposeFrozenMatrixThrowsException() {
+        matrix.loadRowMajor(testData);
+        matrix.freeze();
+        assertThrows(IllegalStateException.class, () -> {
+            matrix.transpose();
+        }, "Transposing a frozen matrix in place should throw exception");
+        assertEquals(VectorOrientation.ROW_MAJOR, matrix.getOrientation());
+    }
+
+    @Test
+    public void testStripedMatrixReadsAndTransposes() {
+        SharedMatrix striped = new SharedMatrix(MatrixStorage.CONTIGUOUS, MatrixLocking.STRIPED);
+        striped.loadRowMajor(testData);
+        assertEquals(MatrixLocking.STRIPED, striped.getLocking());
+        assertEquals(6, striped.readRowMajor()[1][2]);
+        striped.get(1).negate();
+        striped.transpose();
+        double[][] result = striped.readRowMajor();
+        assertEquals(3, result.length, "Transposed: 3 rows");
+        assertEquals(-4, result[0][1]);
+        assertEquals(3, result[2][0]);
+        double[] flat = new double[6];
+        striped.copyInto(flat, 0);
+        assertEquals(-6, flat[5]);
+    }
+
+    @Test
+    public void testStripedRowsSharingAStripeCanBeAdded() {
+        SharedMatrix striped = new SharedMatrix(MatrixStorage.VECTORS, new StripedLocks(1));
+        striped.loadRowMajor(new double[][] { { 1, 2 }, { 3, 4 } });
+        striped.get(0).add(striped.get(1));
+        striped.get(1).add(striped.get(1));
+        double[][] result = striped.readRowMajor();
+        assertEquals(4, result[0][0]);
+        assertEquals(8, result[1][1]);
+    }
+
+    @Test
+    public void testStripedTransposeFrozenMatrixThrowsException() {
+        SharedMatrix striped = new SharedMatrix(MatrixStorage.CONTIGUOUS, MatrixLocking.STRIPED);
+        striped.loadRowMajor(testData);
+        striped.freeze();
+        assertThrows(IllegalStateException.class, striped::transpose);
+        assertEquals(VectorOrientation.ROW_MAJOR, striped.getOrientation());
+        assertEquals(4, striped.readRowMajor()[1][0]);
+    }
+
+    @Test
+    public void testStripedReadsNeverSeeHalfWrittenRows() throws InterruptedException {
+        int rows = 32;
+        int cols = 256;
+        double[][] data = new double[rows][cols];
+        for (double[] row : data) {
+            Arrays.fill(row, 1);
+        }
+        SharedMatrix striped = new SharedMatrix(MatrixStorage.CONTIGUOUS, MatrixLocking.STRIPED);
+        striped.loadRowMajor(data);
+        Thread writer = new Thread(() -> {
+            for (int round = 0; round < 200; round++) {
+                for (int i = 0; i < rows; i++) {
+                    striped.get(i).negate();
+                }
+            }
+        });
+        writer.start();
+        for (int read = 0; read < 200; read++) {
+            double[][] result = striped.readRowMajor();
+            for (double[] row : result) {
+                for (double value : row) {
+                    assertEquals(row[0], value, "A row was read while it was being negated");
+                }
+            }
+        }
+        writer.join();
+    }
+}
@@ -133,4 +133,111 @@ public class SharedVectorTest {
             rowVector1.vecMatMul(matrix);
         }, "vecMatMul with dimension mismatch should throw exception");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testStridedView() {
+        double[] data = { 1, 2, 3, 4, 5, 6 };
+        SharedVector column = new SharedVector(data, 1, 2, 3, VectorOrientation.COLUMN_MAJOR);
+        assertEquals(3, column.length());
+        assertEquals(2, column.get(0));
+        assertEquals(4, column.get(1));
+        assertEquals(6, column.get(2));
+        column.negate();
+        assertEquals(-4, data[3], "Negating a view should write through to the backing array");
+        assertEquals(3, data[2], "Elements outside the view should not change");
+        assertEquals(-28, rowVector1.dot(column), 0.000001);
+    }
+
+    @Test
+    public void testStridedViewOutOfBoundsThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            new SharedVector(new double[4], 1, 2, 3, VectorOrientation.ROW_MAJOR);
+        }, "A view reaching past the backing array should throw exception");
+    }
+
+    @Test
+    public void testFrozenVectorReadsAndRejectsWrites() {
+        rowVector1.freeze();
+        assertTrue(rowVector1.isFrozen());
+        assertEquals(2, rowVector1.get(1));
+        assertEquals(32, rowVector1.dot(colVector2));
+        assertThrows(IllegalStateException.class, () -> {
+            rowVector1.negate();
+        }, "Negating a frozen vector should throw exception");
+        assertThrows(IllegalStateException.class, () -> {
+            rowVector1.add(rowVector2);
+        }, "Adding into a frozen vector should throw exception");
+        assertEquals(1, rowVector1.get(0), "Frozen vector should keep its contents");
+    }
+
+    @Test
+    public void testConcurrentFreezeIsIdempotent() throws InterruptedException {
+        // Both freezers pass the first frozen check, then queue for the write lock behind this read lock
+        rowVector1.readLock();
+        Throwable[] failures = new Throwable[2];
+        Thread[] freezers = new Thread[2];
+        for (int i = 0; i < 2; i++) {
+            final int index = i;
+            freezers[i] = new Thread(() -> {
+                try {
+                    rowVector1.freeze();
+                } catch (Throwable t) {
+                    failures[index] = t;
+                }
+            });
+            freezers[i].start();
+        }
+        for (Thread freezer : freezers) {
+            while (freezer.getState() != Thread.State.WAITING) {
+                Thread.sleep(1);
+            }
+        }
+        rowVector1.readUnlock();
+        for (Thread freezer : freezers) {
+            freezer.join();
+        }
+        assertNull(failures[0], "Freezing concurrently should not throw");
+        assertNull(failures[1], "Freezing concurrently should not throw");
+        assertTrue(rowVector1.isFrozen());
+    }
+
+    @Test
+    public void testAddFromFrozenVector() {
+        rowVector2.freeze();
+        rowVector1.add(rowVector2);
+        assertEquals(5, rowVector1.get(0));
+        assertEquals(9, rowVector1.get(2));
+    }
+
+    @Test
+    public void testCopyInto() {
+        double[] dst = new double[5];
+        rowVector1.copyInto(dst, 1);
+        assertEquals(0, dst[0]);
+        assertEquals(1, dst[1]);
+        assertEquals(2, dst[2]);
+        assertEquals(3, dst[3]);
+        assertEquals(0, dst[4]);
+    }
+
+    @Test
+    public void testSliceSharesStorage() {
+        SharedVector slice = rowVector1.slice(1, 3);
+        assertEquals(2, slice.length());
+        slice.add(rowVector2.slice(0, 2));
+        assertEquals(1, rowVector1.get(0), "Elements outside the slice should be untouched");
+        assertEquals(6, rowVector1.get(1));
+        assertEquals(8, rowVector1.get(2));
+        assertThrows(IndexOutOfBoundsException.class, () -> rowVector1.slice(2, 4));
+
+        rowVector2.freeze();
+        assertTrue(rowVector2.slice(0, 1).isFrozen(), "A slice of a frozen vector should be frozen");
+    }
+
+    @Test
+    public void testAddToItself() {
+        rowVector1.add(rowVector1);
+        assertEquals(2, rowVector1.get(0), "Adding a vector to itself should double it");
+        assertEquals(6, rowVector1.get(2));
+    }
+}
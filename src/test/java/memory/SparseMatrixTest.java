@@ -0,0 +1,118 @@
+package memory;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Random;
+
+public class SparseMatrixTest {
+
+    private static double[][] randomSparse(int rows, int cols, double density, long seed) {
+        Random random = new Random(seed);
+        double[][] matrix = new double[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                if (random.nextDouble() < density) {
+                    matrix[i][j] = random.nextInt(19) - 9;
+                }
+            }
+        }
+        return matrix;
+    }
+
+    private static double[][] denseProduct(double[][] a, double[][] b) {
+        double[][] result = new double[a.length][b[0].length];
+        for (int i = 0; i < a.length; i++) {
+            for (int k = 0; k < b.length; k++) {
+                for (int j = 0; j < b[0].length; j++) {
+                    result[i][j] += a[i][k] * b[k][j];
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void assertMatrixEquals(double[][] expected, double[][] actual) {
+        assertEquals(expected.length, actual.length, "Row count should match");
+        for (int i = 0; i < expected.length; i++) {
+            assertArrayEquals(expected[i], actual[i], 1e-9, "Row " + i + " should match");
+        }
+    }
+
+    @Test
+    public void testRoundTripInBothOrientations() {
+        double[][] dense = { { 0, 2, 0 }, { 0, 0, 0 }, { 5, 0, 6 } };
+        SparseMatrix csr = SparseMatrix.fromDense(dense);
+        SparseMatrix csc = SparseMatrix.fromDense(dense, VectorOrientation.COLUMN_MAJOR);
+        assertEquals(3, csr.getNonZeroCount());
+        assertEquals(3.0 / 9, csr.getDensity(), 1e-12);
+        assertEquals(6, csc.get(2, 2));
+        assertEquals(0, csc.get(1, 1));
+        assertMatrixEquals(dense, csr.toDense());
+        assertMatrixEquals(dense, csc.toDense());
+        assertMatrixEquals(dense, csc.toOrientation(VectorOrientation.ROW_MAJOR).toDense());
+    }
+
+    @Test
+    public void testTransposeAndNegate() {
+        double[][] dense = { { 1, 0, 0, 4 }, { 0, 0, 3, 0 } };
+        SparseMatrix transposed = SparseMatrix.fromDense(dense).transpose().negate();
+        assertEquals(4, transposed.getRows());
+        assertEquals(2, transposed.getColumns());
+        assertMatrixEquals(new double[][] { { -1, 0 }, { 0, 0 }, { 0, -3 }, { -4, 0 } }, transposed.toDense());
+    }
+
+    @Test
+    public void testAddMergesAndDropsCancelledElements() {
+        SparseMatrix a = SparseMatrix.fromDense(new double[][] { { 1, 0, 2 }, { 0, 3, 0 } });
+        SparseMatrix b = SparseMatrix.fromDense(new double[][] { { 0, 5, -2 }, { 0, 1, 0 } },
+                VectorOrientation.COLUMN_MAJOR);
+        SparseMatrix sum = a.add(b);
+        assertEquals(VectorOrientation.ROW_MAJOR, sum.getOrientation());
+        assertEquals(3, sum.getNonZeroCount(), "1 + 0, 0 + 5 and 3 + 1 remain, 2 - 2 is dropped");
+        assertMatrixEquals(new double[][] { { 1, 5, 0 }, { 0, 4, 0 } }, sum.toDense());
+        assertMatrixEquals(new double[][] { { -1, -5, 0 }, { 0, -4, 0 } }, sum.negate().toDense());
+        assertThrows(IllegalArgumentException.class, () -> a.add(SparseMatrix.fromDense(new double[][] { { 1 } })));
+    }
+
+    @Test
+    public void testProductsMatchDenseMultiplication() {
+        double[][] a = randomSparse(37, 53, 0.08, 1);
+        double[][] b = randomSparse(53, 29, 0.08, 2);
+        double[][] expected = denseProduct(a, b);
+        SparseMatrix sparseA = SparseMatrix.fromDense(a, VectorOrientation.COLUMN_MAJOR);
+        SparseMatrix sparseB = SparseMatrix.fromDense(b);
+
+        assertMatrixEquals(expected, sparseA.multiply(b));
+        assertMatrixEquals(expected, sparseA.multiply(sparseB).toDense());
+
+        double[][] result = new double[a.length][];
+        sparseB.multiplyLeftRows(a, result, 0, a.length);
+        assertMatrixEquals(expected, result);
+    }
+
+    @Test
+    public void testRowBlocksConcatenate() {
+        double[][] a = randomSparse(20, 15, 0.2, 3);
+        double[][] b = randomSparse(15, 10, 0.2, 4);
+        SparseMatrix sparseA = SparseMatrix.fromDense(a);
+        SparseMatrix sparseB = SparseMatrix.fromDense(b);
+        SparseMatrix product = SparseMatrix.concatRows(List.of(sparseA.multiplyRows(sparseB, 0, 7),
+                sparseA.multiplyRows(sparseB, 7, 8), sparseA.multiplyRows(sparseB, 8, 20)));
+        assertMatrixEquals(denseProduct(a, b), product.toDense());
+    }
+
+    @Test
+    public void testRowProductsNeedCsr() {
+        SparseMatrix csc = SparseMatrix.fromDense(new double[][] { { 1, 0 }, { 0, 1 } }, VectorOrientation.COLUMN_MAJOR);
+        assertThrows(IllegalStateException.class, () -> csc.multiplyRows(new double[][] { { 1 }, { 1 } },
+                new double[2][], 0, 2));
+    }
+
+    @Test
+    public void testMismatchedProductThrowsException() {
+        SparseMatrix a = SparseMatrix.fromDense(new double[][] { { 1, 0, 0 } });
+        assertThrows(IllegalArgumentException.class, () -> a.multiply(new double[][] { { 1 }, { 1 } }));
+    }
+}
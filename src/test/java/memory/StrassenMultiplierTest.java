@@ -0,0 +1,119 @@
+package memory;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class StrassenMultiplierTest {
+
+    private static double[][] naiveMultiply(double[][] a, double[][] b) {
+        double[][] result = new double[a.length][b[0].length];
+        for (int i = 0; i < a.length; i++) {
+            for (int j = 0; j < b[0].length; j++) {
+                for (int k = 0; k < b.length; k++) {
+                    result[i][j] += a[i][k] * b[k][j];
+                }
+            }
+        }
+        return result;
+    }
+
+    private static double[][] randomMatrix(int n, long seed) {
+        Random random = new Random(seed);
+        double[][] matrix = new double[n][n];
+        for (double[] row : matrix) {
+            for (int j = 0; j < n; j++) {
+                row[j] = random.nextDouble() * 2 - 1;
+            }
+        }
+        return matrix;
+    }
+
+    private static void assertProduct(double[][] expected, double[][] result) {
+        for (int i = 0; i < expected.length; i++) {
+            for (int j = 0; j < expected.length; j++) {
+                assertEquals(expected[i][j], result[i][j], 1e-9, "Element (" + i + ", " + j + ")");
+            }
+        }
+    }
+
+    @Test
+    public void testOddSizeIsPaddedAndMatchesPlainProduct() {
+        double[][] a = randomMatrix(45, 1);
+        double[][] b = randomMatrix(45, 2);
+        StrassenMultiplier multiplier = new StrassenMultiplier(32, 8, 3);
+        assertEquals(3, multiplier.depthFor(45), "45 -> 23 -> 12 -> 6 rows");
+        double[][] target = new double[45][45];
+        List<Integer> batchSizes = new ArrayList<>();
+        multiplier.multiply(a, b, target, 4, tasks -> {
+            batchSizes.add(tasks.size());
+            tasks.forEach(Runnable::run);
+        });
+        assertProduct(naiveMultiply(a, b), target);
+        assertEquals(List.of(7, 7, 4), batchSizes, "One level forked for 4 workers: fork, products, join");
+    }
+
+    @Test
+    public void testSeveralForkedLevelsOnRealThreads() throws InterruptedException {
+        double[][] a = randomMatrix(64, 3);
+        double[][] b = randomMatrix(64, 4);
+        StrassenMultiplier multiplier = new StrassenMultiplier(32, 4, 4);
+        double[][] target = new double[64][64];
+        for (double[] row : target) {
+            Arrays.fill(row, Double.NaN);
+        }
+        multiplier.multiply(a, b, target, 16, tasks -> {
+            List<Thread> threads = new ArrayList<>();
+            for (Runnable task : tasks) {
+                Thread thread = new Thread(task);
+                thread.start();
+                threads.add(thread);
+            }
+            for (Thread thread : threads) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        assertProduct(naiveMultiply(a, b), target);
+    }
+
+    @Test
+    public void testAppliesOnlyToLargeSquareProducts() {
+        StrassenMultiplier multiplier = new StrassenMultiplier(4, 2, 2);
+        assertTrue(multiplier.appliesTo(new double[4][4], new double[4][4]));
+        assertFalse(multiplier.appliesTo(new double[3][3], new double[3][3]), "Below the minimum size");
+        assertFalse(multiplier.appliesTo(new double[4][5], new double[5][4]), "Not square");
+        assertFalse(new StrassenMultiplier(4, 2, 0).appliesTo(new double[4][4], new double[4][4]),
+                "Depth 0 turns Strassen off");
+    }
+
+    @Test
+    public void testInvalidLimitsThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> new StrassenMultiplier(64, 0, 2));
+        assertThrows(IllegalArgumentException.class, () -> new StrassenMultiplier(64, 64, 2));
+        assertThrows(IllegalArgumentException.class, () -> new StrassenMultiplier(64, 16, -1));
+    }
+
+    @Test
+    public void testInconsistentPropertiesFallBackToDefaults() {
+        try {
+            System.setProperty(StrassenMultiplier.MIN_SIZE_PROPERTY, "128");
+            StrassenMultiplier fallback = StrassenMultiplier.fromProperties();
+            assertEquals(StrassenMultiplier.DEFAULT_MIN_SIZE, fallback.getMinSize());
+            assertEquals(StrassenMultiplier.DEFAULT_LEAF_SIZE, fallback.getLeafSize());
+
+            System.setProperty(StrassenMultiplier.LEAF_SIZE_PROPERTY, "64");
+            assertEquals(128, StrassenMultiplier.fromProperties().getMinSize(), "Consistent settings are kept");
+        } finally {
+            System.clearProperty(StrassenMultiplier.MIN_SIZE_PROPERTY);
+            System.clearProperty(StrassenMultiplier.LEAF_SIZE_PROPERTY);
+        }
+    }
+}
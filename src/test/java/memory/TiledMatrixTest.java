@@ -0,0 +1,160 @@
+package memory;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class TiledMatrixTest {
+
+    private static double[][] randomMatrix(int rows, int cols, long seed) {
+        Random random = new Random(seed);
+        double[][] matrix = new double[rows][cols];
+        for (double[] row : matrix) {
+            for (int j = 0; j < cols; j++) {
+                row[j] = random.nextDouble() * 2 - 1;
+            }
+        }
+        return matrix;
+    }
+
+    private static void assertMatrix(double[][] expected, double[][] result) {
+        assertEquals(expected.length, result.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertArrayEquals(expected[i], result[i], 1e-9, "Row " + i + " should match");
+        }
+    }
+
+    // Runs the tasks on a few threads, so tasks compete for the budget
+    private static void runAll(List<Runnable> tasks) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Runnable task : tasks) {
+                futures.add(pool.submit(task));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testRoundTripWithEdgeTiles() throws Exception {
+        Path dir = Files.createTempDirectory("tiles");
+        double[][] matrix = randomMatrix(5, 7, 1);
+        try (TiledMatrix tiled = TiledMatrix.fromDense(matrix, 3, dir)) {
+            assertEquals(2, tiled.getTileRows());
+            assertEquals(3, tiled.getTileColumns());
+            assertMatrix(matrix, tiled.toDense());
+
+            double[] corner = new double[tiled.tileElements()];
+            tiled.readTile(1, 2, corner);
+            assertEquals(matrix[4][6], corner[1 * 3 + 0]);
+            assertEquals(0, corner[1 * 3 + 1], "Padding should be zero");
+            assertEquals(0, corner[2 * 3 + 0], "Padding should be zero");
+        } finally {
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    public void testCloseDeletesScratchFile() throws Exception {
+        Path dir = Files.createTempDirectory("tiles");
+        TiledMatrix tiled = TiledMatrix.create(4, 4, 2, dir);
+        Path file = tiled.getFile();
+        assertTrue(Files.exists(file));
+        tiled.close();
+        tiled.close();
+        assertTrue(tiled.isClosed());
+        assertFalse(Files.exists(file), "Closing should delete the scratch file");
+        assertThrows(IllegalStateException.class, () -> tiled.readTile(0, 0, new double[4]));
+        Files.delete(dir);
+    }
+
+    @Test
+    public void testStaleScratchFilesAreDeleted() throws Exception {
+        Path dir = Files.createTempDirectory("tiles");
+        ScratchSpace scratch = new ScratchSpace(dir, 1, 2, TileBudget.MAX_TILES_PER_TASK);
+        Path stale = Files.createFile(dir.resolve("lae-tiles-1.tmp")); // Left behind by a crashed process
+        Path other = Files.createFile(dir.resolve("other.tmp"));
+        try (TiledMatrix live = scratch.allocate(4, 4)) {
+            assertEquals(1, scratch.deleteStaleFiles());
+            assertFalse(Files.exists(stale));
+            assertTrue(Files.exists(live.getFile()), "A scratch file in use should be kept");
+            assertTrue(Files.exists(other), "Files that are not scratch files should be kept");
+        } finally {
+            Files.delete(other);
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    public void testInvalidShapes() throws Exception {
+        Path dir = Files.createTempDirectory("tiles");
+        try {
+            assertThrows(IllegalArgumentException.class, () -> TiledMatrix.create(0, 4, 2, dir));
+            assertThrows(IllegalArgumentException.class, () -> TiledMatrix.create(4, 4, 0, dir));
+            assertThrows(IllegalArgumentException.class,
+                    () -> TiledMatrix.create(4, 4, TiledMatrix.MAX_TILE_SIZE + 1, dir));
+            assertThrows(IllegalArgumentException.class, () -> new TileBudget(2, 4));
+        } finally {
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    public void testTileOperationsMatchDense() throws Exception {
+        Path dir = Files.createTempDirectory("tiles");
+        double[][] a = randomMatrix(7, 5, 2);
+        double[][] b = randomMatrix(7, 5, 3);
+        double[][] c = randomMatrix(5, 8, 4);
+        TileBudget budget = new TileBudget(TileBudget.MAX_TILES_PER_TASK, 3);
+        try (TiledMatrix ta = TiledMatrix.fromDense(a, 3, dir);
+                TiledMatrix tb = TiledMatrix.fromDense(b, 3, dir);
+                TiledMatrix tc = TiledMatrix.fromDense(c, 3, dir);
+                TiledMatrix sum = TiledMatrix.create(7, 5, 3, dir);
+                TiledMatrix negated = TiledMatrix.create(7, 5, 3, dir);
+                TiledMatrix transposed = TiledMatrix.create(5, 7, 3, dir);
+                TiledMatrix product = TiledMatrix.create(7, 8, 3, dir)) {
+            runAll(TileOperations.addTasks(ta, tb, sum, budget));
+            runAll(TileOperations.negateTasks(ta, negated, budget));
+            runAll(TileOperations.transposeTasks(ta, transposed, budget));
+            runAll(TileOperations.multiplyTasks(ta, tc, product, budget));
+
+            double[][] expectedSum = new double[7][5];
+            double[][] expectedNegated = new double[7][5];
+            double[][] expectedTransposed = new double[5][7];
+            double[][] expectedProduct = new double[7][8];
+            for (int i = 0; i < 7; i++) {
+                for (int j = 0; j < 5; j++) {
+                    expectedSum[i][j] = a[i][j] + b[i][j];
+                    expectedNegated[i][j] = -a[i][j];
+                    expectedTransposed[j][i] = a[i][j];
+                    for (int k = 0; k < 8; k++) {
+                        expectedProduct[i][k] += a[i][j] * c[j][k];
+                    }
+                }
+            }
+            assertMatrix(expectedSum, sum.toDense());
+            assertMatrix(expectedNegated, negated.toDense());
+            assertMatrix(expectedTransposed, transposed.toDense());
+            assertMatrix(expectedProduct, product.toDense());
+            assertEquals(budget.getMaxTiles(), budget.freeTiles(), "Every tile should be returned to the budget");
+
+            assertThrows(IllegalArgumentException.class, () -> TileOperations.addTasks(ta, tc, sum, budget));
+            assertThrows(IllegalArgumentException.class, () -> TileOperations.negateTasks(ta, ta, budget));
+        } finally {
+            Files.delete(dir);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package memory;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class TiledMultiplierTest {
+
+    private static double[][] naiveMultiply(double[][] a, double[][] b) {
+        double[][] result = new double[a.length][b[0].length];
+        for (int i = 0; i < a.length; i++) {
+            for (int j = 0; j < b[0].length; j++) {
+                for (int k = 0; k < b.length; k++) {
+                    result[i][j] += a[i][k] * b[k][j];
+                }
+            }
+        }
+        return result;
+    }
+
+    private static double[][] sequentialMatrix(int rows, int cols) {
+        double[][] matrix = new double[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                matrix[i][j] = i * cols + j + 1;
+            }
+        }
+        return matrix;
+    }
+
+    private static TiledMultiplier multiplier(double[][] a, double[][] b, int blockSize) {
+        return new TiledMultiplier(a, b, new double[a.length][b[0].length], blockSize, new MatrixPool());
+    }
+
+    @Test
+    public void testSmallProduct() {
+        double[][] a = { { 1, 2 }, { 3, 4 } };
+        double[][] b = { { 2, 0 }, { 1, 2 } };
+        TiledMultiplier multiplier = multiplier(a, b, TiledMultiplier.DEFAULT_BLOCK_SIZE);
+        for (Runnable task : multiplier.createBlockTasks()) {
+            task.run();
+        }
+        double[][] result = multiplier.getResult();
+        assertEquals(4, result[0][0]);
+        assertEquals(4, result[0][1]);
+        assertEquals(10, result[1][0]);
+        assertEquals(8, result[1][1]);
+    }
+
+    @Test
+    public void testRectangularProductAcrossBlockBoundaries() {
+        double[][] a = sequentialMatrix(7, 5);
+        double[][] b = sequentialMatrix(5, 9);
+        TiledMultiplier multiplier = multiplier(a, b, 3);
+        List<Runnable> tasks = multiplier.createBlockTasks();
+        assertEquals(9, tasks.size(), "7x9 result with 3x3 blocks should have 3 * 3 blocks");
+        for (Runnable task : tasks) {
+            task.run();
+        }
+        double[][] expected = naiveMultiply(a, b);
+        double[][] result = multiplier.getResult();
+        assertEquals(7, result.length);
+        assertEquals(9, result[0].length);
+        for (int i = 0; i < 7; i++) {
+            for (int j = 0; j < 9; j++) {
+                assertEquals(expected[i][j], result[i][j], "Element [" + i + "][" + j + "] should match");
+            }
+        }
+    }
+
+    @Test
+    public void testDimensionMismatchThrowsException() {
+        double[][] a = sequentialMatrix(2, 3);
+        double[][] b = sequentialMatrix(2, 3);
+        assertThrows(IllegalArgumentException.class, () -> {
+            new TiledMultiplier(a, b, new double[2][3], TiledMultiplier.DEFAULT_BLOCK_SIZE, new MatrixPool());
+        }, "Multiplying with mismatched inner dimensions should throw exception");
+    }
+
+    @Test
+    public void testProductIntoRecycledTarget() {
+        // 300 inner elements span two inner slices, so the second one must accumulate onto the first
+        double[][] a = sequentialMatrix(70, 300);
+        double[][] b = sequentialMatrix(300, 40);
+        MatrixPool pool = new MatrixPool();
+        double[][] target = pool.acquire(70, 40);
+        for (double[] row : target) {
+            Arrays.fill(row, 12345);
+        }
+        TiledMultiplier multiplier = new TiledMultiplier(a, b, target, 32, pool);
+        for (Runnable task : multiplier.createBlockTasks()) {
+            task.run();
+        }
+        multiplier.release();
+
+        assertSame(target, multiplier.getResult());
+        double[][] expected = naiveMultiply(a, b);
+        for (int i = 0; i < expected.length; i++) {
+            assertArrayEquals(expected[i], target[i], 1e-6, "Row " + i + " should match");
+        }
+        assertEquals(300 * 40, pool.getPooledElements(), "The packing buffer should be back in the pool");
+    }
+
+    @Test
+    public void testOversizedProductsAreRejected() {
+        // 50000 x 50000 elements overflow an int; the rows are shared so nothing large is allocated
+        double[] wide = new double[50000];
+        double[][] tall = new double[50000][];
+        Arrays.fill(tall, wide);
+        assertThrows(IllegalArgumentException.class,
+                () -> new TiledMultiplier(new double[][] { wide }, tall, new double[][] { wide }, 32, new MatrixPool()),
+                "A packed operand beyond the array limit should be rejected");
+    }
+}
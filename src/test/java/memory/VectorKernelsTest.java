@@ -0,0 +1,84 @@
+package memory;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.Random;
+
+public class VectorKernelsTest {
+
+    // Lengths below, at and around typical vector widths, so both the vector loop and the tail are exercised
+    private static final int[] LENGTHS = { 0, 1, 3, 4, 7, 8, 9, 31, 64, 1001 };
+
+    private static double[] randomArray(Random random, int length) {
+        double[] array = new double[length];
+        for (int i = 0; i < length; i++) {
+            array[i] = random.nextDouble() * 200 - 100;
+        }
+        return array;
+    }
+
+    private static VectorKernels simd() {
+        VectorKernels simd = Kernels.simd();
+        assumeTrue(simd != null, "Vector API not available, run with --add-modules jdk.incubator.vector");
+        return simd;
+    }
+
+    @Test
+    public void testAddAndNegateMatchScalar() {
+        VectorKernels simd = simd();
+        Random random = new Random(1);
+        for (int length : LENGTHS) {
+            double[] src = randomArray(random, length + 5);
+            double[] expected = randomArray(random, length + 3);
+            double[] actual = expected.clone();
+            Kernels.scalar().add(expected, 3, src, 5, length);
+            simd.add(actual, 3, src, 5, length);
+            assertArrayEquals(expected, actual, "add, length " + length);
+            Kernels.scalar().negate(expected, 2, length);
+            simd.negate(actual, 2, length);
+            assertArrayEquals(expected, actual, "negate, length " + length);
+        }
+    }
+
+    @Test
+    public void testDotMatchesScalar() {
+        VectorKernels simd = simd();
+        Random random = new Random(2);
+        for (int length : LENGTHS) {
+            double[] a = randomArray(random, length + 1);
+            double[] b = randomArray(random, length + 2);
+            double expected = Kernels.scalar().dot(a, 1, b, 2, length);
+            double actual = simd.dot(a, 1, b, 2, length);
+            // Lanes are summed in a different order, and with fused multiply-add
+            assertEquals(expected, actual, 1e-9 * Math.max(1, Math.abs(expected)), "dot, length " + length);
+        }
+    }
+
+    @Test
+    public void testAxpyMatchesScalar() {
+        VectorKernels simd = simd();
+        Random random = new Random(3);
+        for (int length : LENGTHS) {
+            double[] x = randomArray(random, length);
+            double[] expected = randomArray(random, length + 4);
+            double[] actual = expected.clone();
+            Kernels.scalar().axpy(-2.5, x, 0, expected, 4, length);
+            simd.axpy(-2.5, x, 0, actual, 4, length);
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals(expected[i], actual[i], 1e-9 * Math.max(1, Math.abs(expected[i])),
+                        "axpy, length " + length + ", element " + i);
+            }
+        }
+    }
+
+    @Test
+    public void testSelectedKernelsAreUsable() {
+        VectorKernels kernels = Kernels.get();
+        assertNotNull(kernels);
+        double[] a = { 1, 2, 3 };
+        double[] b = { 4, 5, 6 };
+        assertEquals(32, kernels.dot(a, 0, b, 0, 3), kernels.name());
+    }
+}
@@ -0,0 +1,72 @@
+package metrics;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+import spl.lae.LinearAlgebraEngine;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import javax.management.ObjectName;
+
+public class EngineMetricsTest {
+
+    @Test
+    public void testHistogramPercentiles() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        histogram.record(0);
+
+        assertEquals(101, histogram.getCount());
+        assertEquals(5050, histogram.getSum());
+        assertEquals(100, histogram.getMax());
+        assertEquals(0, histogram.percentile(0));
+        long median = histogram.percentile(0.5);
+        assertTrue(median >= 50 && median <= 100, "Median bound should be within a factor of two: " + median);
+        assertEquals(100, histogram.percentile(1.0), "Percentiles are capped at the maximum");
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.percentile(0.99));
+    }
+
+    @Test
+    public void testInvalidPercentileThrows() {
+        assertThrows(IllegalArgumentException.class, () -> new Histogram().percentile(1.5));
+    }
+
+    @Test
+    public void testEngineRunIsRecorded() throws Exception {
+        EngineMetrics metrics = EngineMetrics.global();
+        long tasksBefore = metrics.getTasksCompleted();
+        long loadedBefore = metrics.getBytesLoaded();
+        long readBefore = metrics.getBytesRead();
+
+        double[][] a = { { 1, 2 }, { 3, 4 } };
+        ComputationNode root = new ComputationNode(ComputationNodeType.MULTIPLY,
+                List.of(new ComputationNode(a), new ComputationNode(a)));
+        new LinearAlgebraEngine(2).run(root);
+
+        assertTrue(metrics.getTasksCompleted() > tasksBefore);
+        assertTrue(metrics.getBytesLoaded() - loadedBefore >= 2 * 4 * Double.BYTES,
+                "Both operands should be counted as loaded");
+        assertTrue(metrics.getBytesRead() - readBefore >= 4 * Double.BYTES);
+        assertNotNull(metrics.nodeTime("MULTIPLY"));
+        assertTrue(metrics.getNodeTimeTotals().containsKey("MULTIPLY"));
+
+        String json = metrics.getJson();
+        assertTrue(json.contains("\"taskQueueWait\""));
+        assertTrue(json.contains("\"MULTIPLY\""));
+        assertTrue(json.contains("\"bytesLoaded\""));
+
+        ObjectName name = new ObjectName(EngineMetrics.OBJECT_NAME);
+        assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+        assertEquals(metrics.getTasksCompleted(),
+                ManagementFactory.getPlatformMBeanServer().getAttribute(name, "TasksCompleted"));
+    }
+}
@@ -0,0 +1,128 @@
+package parser;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import memory.SharedMatrix;
+import memory.VectorOrientation;
+import spl.lae.LinearAlgebraEngine;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.stream.Stream;
+
+public class BinaryMatrixIOTest {
+
+    private static final int MAGIC = 0x4D45414C;
+
+    private Path dir;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("binary");
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    // A file with the given header fields followed by dataElements doubles
+    private Path writeRaw(String name, int magic, int version, int orientation, int rows, int cols,
+            int dataElements) throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(24 + dataElements * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(magic).putInt(version).putInt(orientation).putInt(rows).putInt(cols).putInt(0);
+        for (int i = 0; i < dataElements; i++) {
+            buffer.putDouble(i + 1);
+        }
+        Path file = dir.resolve(name);
+        Files.write(file, buffer.array());
+        return file;
+    }
+
+    private static void assertRejected(Path file, String message) {
+        assertThrows(ParseException.class, () -> BinaryMatrixIO.loadRowMajor(file.toString()), message);
+        assertThrows(ParseException.class, () -> BinaryMatrixIO.load(file.toString()), message);
+    }
+
+    @Test
+    public void testRoundTripInBothOrientations() throws Exception {
+        double[][] a = { { 1, 2, 3 }, { 4, 5, 6 } };
+        Path rowMajor = dir.resolve("a.bin");
+        BinaryMatrixIO.write(a, rowMajor.toString());
+        SharedMatrix columnMajor = new SharedMatrix();
+        columnMajor.loadColumnMajor(new double[][] { { 1, 4 }, { 2, 5 }, { 3, 6 } }); // The columns of a
+        Path columns = dir.resolve("b.bin");
+        BinaryMatrixIO.write(columnMajor, columns.toString());
+
+        assertEquals(VectorOrientation.COLUMN_MAJOR, BinaryMatrixIO.load(columns.toString()).getOrientation());
+        int[] dimensions = BinaryMatrixIO.readDimensions(columns.toString());
+        assertEquals(2, dimensions[0]);
+        assertEquals(3, dimensions[1]);
+        for (Path file : new Path[] { rowMajor, columns }) {
+            double[][] loaded = BinaryMatrixIO.loadRowMajor(file.toString());
+            assertEquals(2, loaded.length);
+            for (int i = 0; i < a.length; i++) {
+                assertArrayEquals(a[i], loaded[i], "Row " + i + " of " + file.getFileName() + " should match");
+            }
+        }
+    }
+
+    @Test
+    public void testBinaryMatrixOperands() throws Exception {
+        double[][] a = { { 1, 2, 3 }, { 4, 5, 6 } };
+        SharedMatrix columnMajor = new SharedMatrix();
+        columnMajor.loadColumnMajor(new double[][] { { 1, 0, 1 }, { 0, 1, 1 } });
+        BinaryMatrixIO.write(a, dir.resolve("a.bin").toString());
+        BinaryMatrixIO.write(columnMajor, dir.resolve("b.bin").toString());
+
+        Path input = dir.resolve("input.json");
+        Files.writeString(input, "{\"operator\": \"*\", \"operands\": [{\"file\": \"a.bin\"}, {\"file\": \"b.bin\"}]}");
+        for (boolean streaming : new boolean[] { false, true }) {
+            ComputationNode root = new InputParser(streaming).parse(input.toString());
+            double[][] result = new LinearAlgebraEngine(2).run(root).getMatrix();
+            // b is the 3x2 matrix whose columns are {1, 0, 1} and {0, 1, 1}
+            assertArrayEquals(new double[] { 4, 5 }, result[0]);
+            assertArrayEquals(new double[] { 10, 11 }, result[1]);
+        }
+    }
+
+    @Test
+    public void testBadHeadersAreRejected() throws Exception {
+        Path notMatrix = dir.resolve("broken.bin");
+        Files.writeString(notMatrix, "not a matrix");
+        assertRejected(notMatrix, "A file that is not a binary matrix should be rejected");
+        assertRejected(writeRaw("short.bin", MAGIC, 1, 0, 1, 1, 0), "A header without data should be rejected");
+        assertRejected(writeRaw("magic.bin", 0x12345678, 1, 0, 1, 1, 1), "A wrong magic number should be rejected");
+        assertRejected(writeRaw("version.bin", MAGIC, 2, 0, 1, 1, 1), "An unknown version should be rejected");
+        assertRejected(writeRaw("orientation.bin", MAGIC, 1, 7, 1, 1, 1), "An unknown orientation should be rejected");
+        assertRejected(writeRaw("rows.bin", MAGIC, 1, 0, 0, 1, 1), "Zero rows should be rejected");
+        assertRejected(writeRaw("cols.bin", MAGIC, 1, 0, 1, -3, 1), "Negative columns should be rejected");
+    }
+
+    @Test
+    public void testTruncatedDataIsRejected() throws Exception {
+        Path truncated = writeRaw("truncated.bin", MAGIC, 1, 0, 2, 3, 5);
+        assertRejected(truncated, "A file with fewer elements than its header promises should be rejected");
+        assertThrows(ParseException.class, () -> BinaryMatrixIO.readDimensions(truncated.toString()));
+
+        Path header = dir.resolve("header.bin");
+        Files.write(header, new byte[10]);
+        assertRejected(header, "A file shorter than the header should be rejected");
+
+        Path input = dir.resolve("input.json");
+        Files.writeString(input, "{\"operator\": \"-\", \"operands\": [{\"file\": \"truncated.bin\"}]}");
+        assertThrows(ParseException.class, () -> new InputParser(true).parse(input.toString()),
+                "A truncated operand file should fail to parse");
+    }
+}
@@ -0,0 +1,71 @@
+package parser;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import memory.SharedMatrix;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class OutputWriterTest {
+
+    private Path file;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        file = Files.createTempFile("output", ".json");
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testCompactStreamingOutput() throws Exception {
+        double[][] data = { { 1.5, -2 }, { 3, 4 } };
+        OutputWriter.write(new SharedMatrix(data), file.toString(), false);
+        assertEquals("{\"result\":[[1.5,-2.0],[3.0,4.0]]}", Files.readString(file));
+
+        OutputWriter.write(data, file.toString(), true);
+        JsonNode written = new ObjectMapper().readTree(file.toFile());
+        assertEquals(-2.0, written.get("result").get(0).get(1).asDouble());
+        assertEquals(4.0, written.get("result").get(1).get(1).asDouble());
+    }
+
+    @Test
+    public void testCompactOutputHasNoWhitespace() throws Exception {
+        double[][] data = new double[50][20];
+        for (int i = 0; i < data.length; i++) {
+            for (int j = 0; j < data[0].length; j++) {
+                data[i][j] = i - j;
+            }
+        }
+        OutputWriter.write(data, file.toString(), false);
+        String compact = Files.readString(file);
+        assertFalse(compact.contains("\n"), "Compact output should have no line breaks");
+        assertFalse(compact.contains(" "), "Compact output should have no indentation");
+
+        OutputWriter.write(data, file.toString());
+        String pretty = Files.readString(file);
+        assertTrue(pretty.contains("\n"), "The default output should be pretty-printed");
+        assertEquals(compact, pretty.replaceAll("\\s", ""), "Both outputs should hold the same JSON");
+    }
+
+    @Test
+    public void testCompactProperty() {
+        assertTrue(OutputWriter.prettyFromProperties(), "Output should be pretty-printed by default");
+        System.setProperty(OutputWriter.COMPACT_PROPERTY, "true");
+        try {
+            assertFalse(OutputWriter.prettyFromProperties());
+        } finally {
+            System.clearProperty(OutputWriter.COMPACT_PROPERTY);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package parser;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import spl.lae.LinearAlgebraEngine;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+
+public class ParserTest {
+
+    // Parses json with the streaming parser, from a temporary file
+    private static ComputationNode parseStreaming(String json) throws Exception {
+        Path input = Files.createTempFile("input", ".json");
+        try {
+            Files.writeString(input, json);
+            return new InputParser(true).parse(input.toString());
+        } finally {
+            Files.deleteIfExists(input);
+        }
+    }
+
+    private static void assertStreamingRejects(String json, String message) {
+        assertThrows(ParseException.class, () -> parseStreaming(json), message);
+    }
+
+    @Test
+    public void testStreamingParserMatchesTreeParser() throws Exception {
+        ComputationNode streamed = new InputParser(true).parse("example.json");
+        ComputationNode tree = new InputParser().parse("example.json");
+        double[][] streamedResult = new LinearAlgebraEngine(2).run(streamed).getMatrix();
+        double[][] treeResult = new LinearAlgebraEngine(2).run(tree).getMatrix();
+        assertEquals(treeResult.length, streamedResult.length);
+        for (int i = 0; i < treeResult.length; i++) {
+            assertArrayEquals(treeResult[i], streamedResult[i], "Row " + i + " should match");
+        }
+    }
+
+    @Test
+    public void testStreamingParserReadsMatrixOperands() throws Exception {
+        ComputationNode root = parseStreaming(
+                "{\"operands\": [[[1, 2], [3, 4]], [[0.5, -1], [2e1, 0]]], \"ignored\": {\"x\": [1]}, \"operator\": \"+\"}");
+        assertEquals(ComputationNodeType.ADD, root.getNodeType());
+        assertEquals(2, root.getChildren().size());
+        assertArrayEquals(new double[] { 3, 4 }, root.getChildren().get(0).getMatrix()[1]);
+        assertArrayEquals(new double[] { 20, 0 }, root.getChildren().get(1).getMatrix()[1]);
+    }
+
+    @Test
+    public void testStreamingParserRejectsMalformedInput() {
+        assertStreamingRejects("", "An empty file should fail to parse");
+        assertStreamingRejects("{\"operator\": \"+\", \"operands\": [[[1, 2]], [[3, 4]]",
+                "Truncated input should fail to parse");
+        assertStreamingRejects("{\"operator\": \"+\", \"operands\": [[[1, 2], [3]], [[1, 2], [3, 4]]]}",
+                "Rows of different lengths should fail to parse");
+        assertStreamingRejects("{\"operator\": \"-\", \"operands\": [[1, 2, 3]]}",
+                "A 1D vector should fail to parse");
+        assertStreamingRejects("{\"operator\": \"-\", \"operands\": [[]]}", "An empty matrix should fail to parse");
+        assertStreamingRejects("{\"operator\": \"-\", \"operands\": [[[1, \"two\"]]]}",
+                "A non-numeric element should fail to parse");
+        assertStreamingRejects("{\"operator\": \"-\", \"operands\": [[[1, 2], 3]]}",
+                "A row that is not an array should fail to parse");
+        assertStreamingRejects("{\"operator\": \"-\", \"operands\": 5}", "Operands that are not an array should fail");
+        assertStreamingRejects("{\"operands\": [[[1]]]}", "An operator node without an operator should fail");
+        assertStreamingRejects("\"just a string\"", "A root that is neither an object nor an array should fail");
+    }
+}
@@ -0,0 +1,73 @@
+package scheduling;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TaskPartitionerTest {
+
+    @Test
+    public void testManyShortRowsAreGrouped() {
+        TaskPartitioner partitioner = new TaskPartitioner(4);
+        TaskPartitioner.Grid grid = partitioner.partition(1_000_000, 4, 1, true);
+        assertEquals(4, grid.getColsPerTask(), "Short rows should never be split");
+        int tasks = grid.taskCount(1_000_000, 4);
+        assertTrue(tasks >= 4 && tasks <= 16, "Expected a few tasks per worker, got " + tasks);
+    }
+
+    @Test
+    public void testFewLongRowsAreSplit() {
+        TaskPartitioner partitioner = new TaskPartitioner(8);
+        TaskPartitioner.Grid grid = partitioner.partition(4, 1_000_000, 1, true);
+        assertEquals(1, grid.getRowsPerTask());
+        assertTrue(grid.getColsPerTask() < 1_000_000);
+        assertTrue(grid.taskCount(4, 1_000_000) >= 8, "Every worker should get work");
+    }
+
+    @Test
+    public void testRowsKeptWholeWhenSplittingIsNotAllowed() {
+        TaskPartitioner partitioner = new TaskPartitioner(8);
+        TaskPartitioner.Grid grid = partitioner.partition(4, 1_000_000, 1, false);
+        assertEquals(1_000_000, grid.getColsPerTask());
+        assertEquals(4, grid.taskCount(4, 1_000_000));
+    }
+
+    @Test
+    public void testSmallWorkIsNotSplit() {
+        TaskPartitioner partitioner = new TaskPartitioner(8);
+        assertEquals(1, partitioner.partition(16, 10, 1, true).taskCount(16, 10),
+                "Work below one task's dispatch cost should not be split");
+        assertEquals(1, partitioner.partition(2, 50_000, 1, true).taskCount(2, 50_000),
+                "A short, wide matrix should not be cut into slivers");
+        // 4 tasks' worth of work: fewer tasks than workers, but no smaller than the dispatch cost allows
+        assertEquals(4, partitioner.partition(4, 80_000, 1, true).taskCount(4, 80_000));
+        assertEquals(3, partitioner.partition(3, 1_000_000, 1, false).taskCount(3, 1_000_000),
+                "Cannot have more tasks than rows");
+    }
+
+    @Test
+    public void testEnoughWorkReachesEveryWorker() {
+        TaskPartitioner partitioner = new TaskPartitioner(8);
+        // Exactly one task's worth of work per worker
+        assertEquals(8, partitioner.partition(8, 80_000, 1, true).taskCount(8, 80_000));
+        int tasks = partitioner.partition(1_000, 1_000, 1, true).taskCount(1_000, 1_000);
+        assertTrue(tasks >= 8 && tasks <= 32, "Expected a few tasks per worker, got " + tasks);
+    }
+
+    @Test
+    public void testExpensiveDispatchMakesBiggerTasks() {
+        TaskPartitioner cheap = new TaskPartitioner(16, 1_000);
+        TaskPartitioner expensive = new TaskPartitioner(16, 100_000);
+        int cheapTasks = cheap.partition(2_000, 500, 1, true).taskCount(2_000, 500);
+        int expensiveTasks = expensive.partition(2_000, 500, 1, true).taskCount(2_000, 500);
+        assertTrue(expensiveTasks < cheapTasks, cheapTasks + " tasks vs " + expensiveTasks);
+        assertEquals(1, expensiveTasks, "Less work than one expensive dispatch is worth should stay in one task");
+        assertEquals(16, expensive.partition(2_000, 500, 26, true).taskCount(2_000, 500),
+                "Never fewer tasks than workers once every worker's share pays for its dispatch");
+    }
+
+    @Test
+    public void testInvalidArgumentsThrow() {
+        assertThrows(IllegalArgumentException.class, () -> new TaskPartitioner(0));
+        assertThrows(IllegalArgumentException.class, () -> new TaskPartitioner(2).partition(0, 5, 1, true));
+    }
+}
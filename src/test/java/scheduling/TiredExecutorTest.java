@@ -0,0 +1,171 @@
+package scheduling;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TiredExecutorTest {
+
+    private TiredExecutor executor;
+
+    @BeforeEach
+    public void setUp() {
+        executor = new TiredExecutor(3);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        executor.shutdown();
+    }
+
+    private static List<Runnable> countingTasks(int count, AtomicInteger counter) {
+        List<Runnable> tasks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            tasks.add(counter::incrementAndGet);
+        }
+        return tasks;
+    }
+
+    @Test
+    public void testSubmitAllRunsEveryTask() {
+        AtomicInteger counter = new AtomicInteger(0);
+        executor.submitAll(countingTasks(50, counter));
+        assertEquals(50, counter.get(), "submitAll should return only after all tasks ran");
+    }
+
+    @Test
+    public void testEmptyBatchIsDone() throws InterruptedException {
+        TaskBatch batch = executor.submitBatch(new ArrayList<>());
+        assertTrue(batch.isDone());
+        batch.await();
+    }
+
+    @Test
+    public void testBatchesAreTrackedSeparately() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Runnable> slowTasks = new ArrayList<>();
+        slowTasks.add(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        TaskBatch slowBatch = executor.submitBatch(slowTasks);
+
+        AtomicInteger counter = new AtomicInteger(0);
+        TaskBatch fastBatch = executor.submitBatch(countingTasks(10, counter));
+        assertTrue(fastBatch.await(5, TimeUnit.SECONDS), "A batch should not wait for another batch's tasks");
+        assertEquals(10, counter.get());
+        assertFalse(slowBatch.isDone());
+
+        release.countDown();
+        assertTrue(slowBatch.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testTaskFailureIsRethrownAndWorkerSurvives() {
+        List<Runnable> tasks = new ArrayList<>();
+        tasks.add(() -> {
+            throw new IllegalArgumentException("bad task");
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            executor.submitAll(tasks);
+        }, "A failing task should surface to the caller of submitAll");
+
+        AtomicInteger counter = new AtomicInteger(0);
+        executor.submitAll(countingTasks(10, counter));
+        assertEquals(10, counter.get(), "Workers should keep running after a task failed");
+    }
+
+    @Test
+    public void testWorkStealingModeRunsEveryTask() throws InterruptedException {
+        TiredExecutor stealing = new TiredExecutor(4, DispatchMode.WORK_STEALING);
+        try {
+            assertEquals(DispatchMode.WORK_STEALING, stealing.getMode());
+            AtomicInteger counter = new AtomicInteger(0);
+            for (int round = 0; round < 20; round++) {
+                stealing.submitAll(countingTasks(25, counter));
+            }
+            assertEquals(500, counter.get(), "Every task should run exactly once");
+        } finally {
+            stealing.shutdown();
+        }
+    }
+
+    @Test
+    public void testWorkStealingIdleWorkersStealFromBusyOne() throws InterruptedException {
+        TiredExecutor stealing = new TiredExecutor(2, DispatchMode.WORK_STEALING);
+        try {
+            CountDownLatch release = new CountDownLatch(1);
+            List<Runnable> blocking = new ArrayList<>();
+            blocking.add(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            TaskBatch blocked = stealing.submitBatch(blocking);
+            // With one worker blocked, the other one has to finish all of these
+            AtomicInteger counter = new AtomicInteger(0);
+            TaskBatch rest = stealing.submitBatch(countingTasks(30, counter));
+            assertTrue(rest.await(5, TimeUnit.SECONDS), "The free worker should run or steal all tasks");
+            assertEquals(30, counter.get());
+            release.countDown();
+            assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        } finally {
+            stealing.shutdown();
+        }
+    }
+
+    @Test
+    public void testWorkStealingBurstWakesEveryWorker() throws InterruptedException {
+        int workers = 8;
+        TiredExecutor stealing = new TiredExecutor(workers, DispatchMode.WORK_STEALING);
+        try {
+            // Every task waits until all of them run at the same time, which needs every worker awake
+            CountDownLatch arrived = new CountDownLatch(workers);
+            AtomicInteger together = new AtomicInteger(0);
+            List<Runnable> tasks = new ArrayList<>();
+            for (int i = 0; i < workers; i++) {
+                tasks.add(() -> {
+                    arrived.countDown();
+                    try {
+                        if (arrived.await(5, TimeUnit.SECONDS)) {
+                            together.incrementAndGet();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            assertTrue(stealing.submitBatch(tasks).await(10, TimeUnit.SECONDS));
+            assertEquals(workers, together.get(), "A burst of tasks should reach every idle worker");
+        } finally {
+            stealing.shutdown();
+        }
+    }
+
+    @Test
+    public void testInterruptedSubmitFailsTheBatch() throws InterruptedException {
+        AtomicInteger counter = new AtomicInteger(0);
+        Thread.currentThread().interrupt();
+        TaskBatch batch = executor.submitBatch(countingTasks(3, counter));
+        assertTrue(Thread.interrupted(), "The interrupt should be kept for the caller");
+        assertTrue(batch.isDone(), "Tasks that were never handed over should still finish the batch");
+        assertThrows(IllegalStateException.class, batch::await);
+        assertEquals(0, counter.get());
+
+        Thread.currentThread().interrupt();
+        assertThrows(IllegalStateException.class, () -> executor.submitAll(countingTasks(3, counter)));
+        assertTrue(Thread.interrupted());
+    }
+}
@@ -0,0 +1,112 @@
+package spl.lae;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import parser.ComputationNode;
+import scheduling.VirtualThreadExecutor;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class BatchRunnerTest {
+
+    private LinearAlgebraEngine engine;
+    private Path tempDir;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        engine = new LinearAlgebraEngine(2);
+        tempDir = Files.createTempDirectory("batch-runner");
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        engine.shutdown();
+        try (Stream<Path> files = Files.walk(tempDir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    public void testDirectoryBatch() throws Exception {
+        for (String name : List.of("a.json", "b.json", "c.json")) {
+            Files.copy(Paths.get("example.json"), tempDir.resolve(name));
+        }
+        Files.writeString(tempDir.resolve("broken.json"), "{ \"operator\": ");
+        Files.writeString(tempDir.resolve("old.result.json"), "{}");
+        Files.createDirectory(tempDir.resolve("nested.json"));
+
+        List<BatchRunner.Job> jobs = BatchRunner.loadJobs(tempDir.toString());
+        assertEquals(4, jobs.size(), "Only .json files that are not results should be inputs");
+        assertEquals(tempDir.resolve("a.result.json").toString(), jobs.get(0).getOutputFilePath());
+
+        BatchRunner.Summary summary = new BatchRunner(engine, 2).run(jobs);
+
+        assertEquals(4, summary.getExpressions());
+        assertEquals(1, summary.getFailed());
+        assertTrue(summary.getFailures().get(0).startsWith(tempDir.resolve("broken.json").toString()));
+        assertTrue(summary.gflopsPerSecond() > 0);
+        assertTrue(Files.readString(tempDir.resolve("c.result.json")).contains("\"result\""));
+        assertTrue(Files.readString(tempDir.resolve("broken.result.json")).contains("\"error\""));
+    }
+
+    @Test
+    public void testManifestBatch() throws Exception {
+        Files.copy(Paths.get("example.json"), tempDir.resolve("input.json"));
+        Files.writeString(tempDir.resolve("batch.txt"), "# input output\n\ninput.json first.json\ninput.json second.json\n");
+
+        BatchRunner.Summary summary = new BatchRunner(engine, 4).run(BatchRunner.loadJobs(
+                tempDir.resolve("batch.txt").toString()));
+
+        assertEquals(2, summary.getExpressions());
+        assertEquals(0, summary.getFailed());
+        assertEquals(Files.readString(tempDir.resolve("first.json")), Files.readString(tempDir.resolve("second.json")));
+    }
+
+    @Test
+    public void testBatchOnVirtualThreads() throws Exception {
+        Files.copy(Paths.get("example.json"), tempDir.resolve("input.json"));
+        Files.writeString(tempDir.resolve("batch.txt"), "input.json platform.json\ninput.json virtual.json\n");
+        List<BatchRunner.Job> jobs = BatchRunner.loadJobs(tempDir.resolve("batch.txt").toString());
+
+        new BatchRunner(engine, 1).run(jobs.subList(0, 1));
+        LinearAlgebraEngine virtualEngine = new LinearAlgebraEngine(new VirtualThreadExecutor(2), null);
+        try {
+            assertTrue(virtualEngine.getThreadFactory().newThread(() -> {}).isVirtual());
+            BatchRunner.Summary summary = new BatchRunner(virtualEngine, 4).run(jobs.subList(1, 2));
+            assertEquals(0, summary.getFailed());
+            assertTrue(virtualEngine.getWorkerReport().contains("Worker 1"), "Kernels should still run on tired workers");
+        } finally {
+            virtualEngine.shutdown();
+        }
+        assertEquals(Files.readString(tempDir.resolve("platform.json")), Files.readString(tempDir.resolve("virtual.json")));
+    }
+
+    @Test
+    public void testMalformedManifestThrowsException() throws Exception {
+        Files.writeString(tempDir.resolve("batch.txt"), "input.json\n");
+        assertThrows(IllegalArgumentException.class, () -> {
+            BatchRunner.loadJobs(tempDir.resolve("batch.txt").toString());
+        }, "A manifest line without an output file should throw exception");
+    }
+
+    @Test
+    public void testCountFlops() {
+        ComputationNode a = new ComputationNode(new double[3][4]);
+        ComputationNode b = new ComputationNode(new double[4][5]);
+        ComputationNode c = new ComputationNode(new double[3][5]);
+        // -(A * B) + C: 2*3*4*5 for the product, 15 for the negation, 15 for the addition
+        ComputationNode root = new ComputationNode("+", List.of(new ComputationNode("-",
+                List.of(new ComputationNode("*", List.of(a, b)))), c));
+        assertEquals(150, ExpressionShapes.countFlops(root));
+    }
+}
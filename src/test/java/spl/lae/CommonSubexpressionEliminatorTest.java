@@ -0,0 +1,92 @@
+package spl.lae;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import parser.ComputationNode;
+
+import java.util.List;
+
+public class CommonSubexpressionEliminatorTest {
+
+    @Test
+    public void testIdenticalLiteralsAreShared() {
+        ComputationNode a1 = new ComputationNode(new double[][] { { 1, 2 }, { 3, 4 } });
+        ComputationNode a2 = new ComputationNode(new double[][] { { 1, 2 }, { 3, 4 } });
+        ComputationNode b = new ComputationNode(new double[][] { { 1, 2 }, { 3, 5 } });
+        ComputationNode root = new ComputationNode("*", List.of(a1, a2));
+
+        CommonSubexpressionEliminator subexpressions = new CommonSubexpressionEliminator();
+        ComputationNode shared = subexpressions.share(root);
+
+        assertNotSame(root, shared, "A node whose operands were replaced should be copied");
+        assertSame(shared.getChildren().get(0), shared.getChildren().get(1));
+        assertEquals(subexpressions.keyOf(a1), subexpressions.keyOf(a2));
+        assertNotEquals(subexpressions.keyOf(a1), subexpressions.keyOf(subexpressions.share(b)));
+    }
+
+    @Test
+    public void testIdenticalSubexpressionsAreShared() {
+        double[][] a = { { 1, 2 }, { 3, 4 } };
+        double[][] b = { { 0, 1 }, { 1, 0 } };
+        // (A * B) + -(A * B), every node written out separately
+        ComputationNode left = new ComputationNode("*", List.of(new ComputationNode(a), new ComputationNode(b)));
+        ComputationNode right = new ComputationNode("*", List.of(new ComputationNode(a), new ComputationNode(b)));
+        ComputationNode root = new ComputationNode("+", List.of(left,
+                new ComputationNode("-", List.of(right))));
+
+        CommonSubexpressionEliminator subexpressions = new CommonSubexpressionEliminator();
+        ComputationNode shared = subexpressions.share(root);
+
+        assertSame(left, shared.getChildren().get(0), "The first occurrence should be kept");
+        assertSame(left, shared.getChildren().get(1).getChildren().get(0));
+        assertEquals(3, subexpressions.operatorNodes().size(), "+, * and - are the distinct computations");
+    }
+
+    @Test
+    public void testOperandOrderMatters() {
+        ComputationNode a = new ComputationNode(new double[][] { { 1, 2 }, { 3, 4 } });
+        ComputationNode b = new ComputationNode(new double[][] { { 0, 1 }, { 1, 0 } });
+        CommonSubexpressionEliminator subexpressions = new CommonSubexpressionEliminator();
+        ComputationNode ab = subexpressions.share(new ComputationNode("*", List.of(a, b)));
+        ComputationNode ba = subexpressions.share(new ComputationNode("*", List.of(b, a)));
+        assertNotSame(ab, ba);
+        assertNotEquals(subexpressions.keyOf(ab), subexpressions.keyOf(ba));
+    }
+
+    @Test
+    public void testSharedSubexpressionComputesCorrectResult() {
+        double[][] a = { { 1, 2 }, { 3, 4 } };
+        double[][] b = { { 0, 1 }, { 1, 0 } };
+        // (A * B) * T(A * B)
+        ComputationNode left = new ComputationNode("*", List.of(new ComputationNode(a), new ComputationNode(b)));
+        ComputationNode right = new ComputationNode("*", List.of(new ComputationNode(a), new ComputationNode(b)));
+        ComputationNode root = new ComputationNode("*", List.of(left,
+                new ComputationNode("T", List.of(right))));
+
+        double[][] result = new LinearAlgebraEngine(2).run(root).getMatrix();
+
+        // A * B = {{2, 1}, {4, 3}}
+        assertArrayEquals(new double[] { 5, 11 }, result[0]);
+        assertArrayEquals(new double[] { 11, 25 }, result[1]);
+    }
+
+    @Test
+    public void testLeavesByIdentityWithoutDigests() {
+        double[][] a = { { 1, 2 }, { 3, 4 } };
+        ComputationNode first = new ComputationNode("-", List.of(new ComputationNode(a)));
+        ComputationNode second = new ComputationNode("-", List.of(new ComputationNode(a)));
+        ComputationNode copy = new ComputationNode(new double[][] { { 1, 2 }, { 3, 4 } });
+        ComputationNode root = new ComputationNode("+", List.of(first,
+                new ComputationNode("+", List.of(second, copy))));
+
+        CommonSubexpressionEliminator subexpressions = new CommonSubexpressionEliminator(false);
+        ComputationNode shared = subexpressions.share(root);
+
+        ComputationNode inner = shared.getChildren().get(1);
+        assertSame(first, inner.getChildren().get(0), "Operators over the same matrix should still be shared");
+        assertNotSame(first.getChildren().get(0), inner.getChildren().get(1),
+                "Equal contents in another matrix should not be digested to find them");
+        assertNotEquals(subexpressions.keyOf(first.getChildren().get(0)), subexpressions.keyOf(copy));
+    }
+}
@@ -0,0 +1,101 @@
+package spl.lae;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import parser.ComputationNode;
+import parser.InputParser;
+import parser.OutputWriter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class EngineServerTest {
+
+    private LinearAlgebraEngine engine;
+    private Path tempDir;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        engine = new LinearAlgebraEngine(2);
+        tempDir = Files.createTempDirectory("engine-server");
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        engine.shutdown();
+        try (var files = Files.list(tempDir)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(tempDir);
+    }
+
+    @Test
+    public void testEngineEvaluatesSeveralExpressions() {
+        for (int i = 1; i <= 3; i++) {
+            double[][] a = { { i, 0 }, { 0, i } };
+            ComputationNode root = new ComputationNode("-", List.of(new ComputationNode(a)));
+            double[][] result = engine.evaluate(root).getMatrix();
+            assertEquals(-i, result[1][1], "Expression " + i + " should be evaluated by the same engine");
+        }
+        engine.shutdown();
+        assertThrows(IllegalStateException.class, () -> {
+            engine.evaluate(new ComputationNode("-", List.of(new ComputationNode(new double[][] { { 1 } }))));
+        }, "Evaluating after shutdown should throw exception");
+    }
+
+    @Test
+    public void testServeRequestsFromStream() throws Exception {
+        Path first = tempDir.resolve("first.json");
+        Path second = tempDir.resolve("second.json");
+        Path failed = tempDir.resolve("failed.json");
+        String requests = "example.json " + first + "\n"
+                + "\n"
+                + "example.json " + second + "\n"
+                + "missing.json " + failed + "\n"
+                + "STATS\n"
+                + "QUIT\n"
+                + "example.json " + tempDir.resolve("ignored.json") + "\n";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        new EngineServer(engine).serve(new ByteArrayInputStream(requests.getBytes(StandardCharsets.UTF_8)), out);
+
+        String[] responses = out.toString(StandardCharsets.UTF_8).split("\\R");
+        assertEquals(4, responses.length, "Every request before QUIT should get one response");
+        assertTrue(responses[0].startsWith("OK " + first + " "), responses[0]);
+        assertTrue(responses[1].startsWith("OK " + second + " "), responses[1]);
+        assertTrue(responses[2].startsWith("ERROR Error parsing input file"), responses[2]);
+        assertTrue(responses[3].startsWith("STATS count=2 "), responses[3]);
+        assertFalse(Files.exists(tempDir.resolve("ignored.json")), "Requests after QUIT should not run");
+
+        Path single = tempDir.resolve("single.json");
+        OutputWriter.write(new LinearAlgebraEngine(2).run(new InputParser().parse("example.json")).getMatrix(),
+                single.toString());
+        assertEquals(Files.readString(single), Files.readString(second), "Output should match a single run");
+        assertTrue(Files.readString(failed).contains("Error parsing input file"));
+    }
+
+    @Test
+    public void testMalformedRequest() {
+        assertTrue(new EngineServer(engine).handle("only-one-path.json").startsWith("ERROR "));
+    }
+
+    @Test
+    public void testCompactServerOutput() throws Exception {
+        Path compact = tempDir.resolve("compact.json");
+        EngineServer.Outcome outcome = new EngineServer(engine, false).process("example.json", compact.toString());
+        assertNull(outcome.getError());
+        String text = Files.readString(compact);
+        assertFalse(text.contains("\n"), "Compact output should have no line breaks");
+        assertFalse(text.contains(" "), "Compact output should have no indentation");
+        assertTrue(text.startsWith("{\"result\":[["), text);
+    }
+}
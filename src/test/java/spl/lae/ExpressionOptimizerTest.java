@@ -0,0 +1,139 @@
+package spl.lae;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import parser.ComputationNode;
+import parser.ComputationNodeType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ExpressionOptimizerTest {
+
+    private static double[][] sequentialMatrix(int rows, int cols) {
+        double[][] matrix = new double[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                matrix[i][j] = (i * cols + j) % 7 - 3;
+            }
+        }
+        return matrix;
+    }
+
+    private static double[][] multiply(double[][] a, double[][] b) {
+        double[][] result = new double[a.length][b[0].length];
+        for (int i = 0; i < a.length; i++) {
+            for (int j = 0; j < b[0].length; j++) {
+                for (int k = 0; k < b.length; k++) {
+                    result[i][j] += a[i][k] * b[k][j];
+                }
+            }
+        }
+        return result;
+    }
+
+    private static double[][] transpose(double[][] a) {
+        double[][] result = new double[a[0].length][a.length];
+        for (int i = 0; i < a.length; i++) {
+            for (int j = 0; j < a[0].length; j++) {
+                result[j][i] = a[i][j];
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void testChainIsReordered() {
+        ComputationNode a = new ComputationNode(sequentialMatrix(50, 2));
+        ComputationNode b = new ComputationNode(sequentialMatrix(2, 50));
+        ComputationNode c = new ComputationNode(sequentialMatrix(50, 2));
+        ComputationNode chain = new ComputationNode("*", new ArrayList<>(List.of(a, b, c)));
+
+        ComputationNode plan = new ExpressionOptimizer().optimize(chain);
+
+        // (A * B) * C costs 50*2*50 + 50*50*2, A * (B * C) only 2*50*2 + 50*2*2
+        assertEquals(ComputationNodeType.MULTIPLY, plan.getNodeType());
+        assertSame(a, plan.getChildren().get(0));
+        ComputationNode right = plan.getChildren().get(1);
+        assertEquals(ComputationNodeType.MULTIPLY, right.getNodeType());
+        assertSame(b, right.getChildren().get(0));
+        assertSame(c, right.getChildren().get(1));
+    }
+
+    @Test
+    public void testTransposePushedIntoNarrowProduct() {
+        ComputationNode a = new ComputationNode(sequentialMatrix(40, 3));
+        ComputationNode b = new ComputationNode(sequentialMatrix(3, 40));
+        ComputationNode product = new ComputationNode("*", List.of(a, b));
+        ComputationNode root = new ComputationNode("T", List.of(product));
+
+        ComputationNode plan = new ExpressionOptimizer().optimize(root);
+
+        // T(A * B) = T(B) * T(A): two 3x40 transposes instead of one 40x40
+        assertEquals(ComputationNodeType.MULTIPLY, plan.getNodeType());
+        ComputationNode left = plan.getChildren().get(0);
+        assertEquals(ComputationNodeType.TRANSPOSE, left.getNodeType());
+        assertSame(b, left.getChildren().get(0));
+    }
+
+    @Test
+    public void testTransposesCancel() {
+        double[][] aData = sequentialMatrix(5, 4);
+        double[][] bData = sequentialMatrix(6, 5);
+        ComputationNode a = new ComputationNode(aData);
+        ComputationNode b = new ComputationNode(bData);
+        // T(T(A) * T(B)) = B * A
+        ComputationNode product = new ComputationNode("*", List.of(new ComputationNode("T", List.of(a)),
+                new ComputationNode("T", List.of(b))));
+        ComputationNode root = new ComputationNode("T", List.of(product));
+
+        ComputationNode plan = new ExpressionOptimizer().optimize(root);
+
+        assertEquals(ComputationNodeType.MULTIPLY, plan.getNodeType());
+        assertSame(b, plan.getChildren().get(0));
+        assertSame(a, plan.getChildren().get(1));
+    }
+
+    @Test
+    public void testSharedProductIsKept() {
+        ComputationNode a = new ComputationNode(sequentialMatrix(30, 2));
+        ComputationNode b = new ComputationNode(sequentialMatrix(2, 30));
+        ComputationNode shared = new ComputationNode("*", List.of(a, b));
+        ComputationNode root = new ComputationNode("+", List.of(shared,
+                new ComputationNode("T", List.of(shared))));
+
+        ComputationNode plan = new ExpressionOptimizer().optimize(root);
+
+        ComputationNode left = plan.getChildren().get(0);
+        ComputationNode right = plan.getChildren().get(1);
+        assertEquals(ComputationNodeType.TRANSPOSE, right.getNodeType());
+        assertSame(left, right.getChildren().get(0), "The shared product should still be computed once");
+    }
+
+    @Test
+    public void testMismatchedChainIsLeftAsWritten() {
+        ComputationNode a = new ComputationNode(sequentialMatrix(2, 3));
+        ComputationNode b = new ComputationNode(sequentialMatrix(2, 3));
+        ComputationNode chain = new ComputationNode("*", List.of(a, b));
+        assertSame(chain, new ExpressionOptimizer().optimize(chain));
+    }
+
+    @Test
+    public void testOptimizedChainComputesSameResult() {
+        double[][] aData = sequentialMatrix(20, 3);
+        double[][] bData = sequentialMatrix(3, 20);
+        double[][] cData = sequentialMatrix(20, 4);
+        ComputationNode chain = new ComputationNode("*", new ArrayList<>(List.of(new ComputationNode(aData),
+                new ComputationNode(bData), new ComputationNode(cData))));
+        ComputationNode root = new ComputationNode("T", List.of(chain));
+
+        double[][] result = new LinearAlgebraEngine(2).run(root).getMatrix();
+
+        double[][] expected = transpose(multiply(multiply(aData, bData), cData));
+        assertEquals(expected.length, result.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertArrayEquals(expected[i], result[i], 1e-9, "Row " + i + " should match");
+        }
+    }
+}
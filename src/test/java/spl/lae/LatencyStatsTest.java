@@ -0,0 +1,35 @@
+package spl.lae;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyStatsTest {
+
+    @Test
+    public void testPercentilesOfFewSamples() {
+        LatencyStats stats = new LatencyStats();
+        assertEquals(0, stats.percentile(0.5), "Nothing recorded yet");
+        for (long nanos = 1; nanos <= 100; nanos++) {
+            stats.record(nanos);
+        }
+        assertEquals(100, stats.getCount());
+        assertEquals(50, stats.percentile(0.5));
+        assertEquals(99, stats.percentile(0.99));
+        assertEquals(100, stats.percentile(1));
+        assertEquals(50, stats.mean());
+        assertThrows(IllegalArgumentException.class, () -> stats.percentile(1.5));
+    }
+
+    @Test
+    public void testOnlyRecentSamplesAreKept() {
+        LatencyStats stats = new LatencyStats();
+        stats.record(1_000_000);
+        for (int i = 0; i < 3 * LatencyStats.WINDOW; i++) {
+            stats.record(10);
+        }
+        assertEquals(3 * LatencyStats.WINDOW + 1, stats.getCount(), "The count should cover every request");
+        assertEquals(1_000_000, stats.max(), "The maximum should cover every request");
+        assertEquals(10, stats.percentile(1), "Percentiles should cover only the recent requests");
+        assertTrue(stats.mean() > 10, "The mean should cover every request");
+    }
+}
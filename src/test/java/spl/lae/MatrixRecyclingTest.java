@@ -0,0 +1,135 @@
+package spl.lae;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import memory.MatrixPool;
+import memory.StrassenMultiplier;
+import parser.ComputationNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class MatrixRecyclingTest {
+
+    private static double[][] sequentialMatrix(int rows, int cols, int seed) {
+        double[][] matrix = new double[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                matrix[i][j] = (i * cols + j + seed) % 11 - 5;
+            }
+        }
+        return matrix;
+    }
+
+    private static double[][] multiply(double[][] a, double[][] b) {
+        double[][] result = new double[a.length][b[0].length];
+        for (int i = 0; i < a.length; i++) {
+            for (int k = 0; k < b.length; k++) {
+                for (int j = 0; j < b[0].length; j++) {
+                    result[i][j] += a[i][k] * b[k][j];
+                }
+            }
+        }
+        return result;
+    }
+
+    private static ComputationNode operator(String operator, ComputationNode... operands) {
+        return new ComputationNode(operator, new ArrayList<>(List.of(operands)));
+    }
+
+    // -(A * B + C) * B, every product large enough for the tiled path
+    private static ComputationNode expression(double[][] a, double[][] b, double[][] c) {
+        ComputationNode product = operator("*", new ComputationNode(a), new ComputationNode(b));
+        ComputationNode negatedSum = operator("-", operator("+", product, new ComputationNode(c)));
+        return operator("*", negatedSum, new ComputationNode(b));
+    }
+
+    @Test
+    public void testIntermediatesAreRecycledAcrossEvaluations() throws Exception {
+        double[][] a = sequentialMatrix(80, 64, 1);
+        double[][] b = sequentialMatrix(64, 64, 2);
+        double[][] c = sequentialMatrix(80, 64, 3);
+        double[][] sum = multiply(a, b);
+        for (int i = 0; i < sum.length; i++) {
+            for (int j = 0; j < sum[0].length; j++) {
+                sum[i][j] = -(sum[i][j] + c[i][j]);
+            }
+        }
+        double[][] expected = multiply(sum, b);
+
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(2);
+        try {
+            MatrixPool pool = engine.getMatrixPool();
+            double[][] first = engine.evaluate(expression(a, b, c)).getMatrix();
+            long missesAfterFirst = pool.getMisses();
+            double[][] second = engine.evaluate(expression(a, b, c)).getMatrix();
+
+            assertNotSame(first, second, "Results handed to the caller must never be recycled");
+            assertTrue(pool.getHits() > 0, "The second evaluation should reuse the first one's buffers");
+            assertTrue(pool.getMisses() - missesAfterFirst < missesAfterFirst);
+            for (int i = 0; i < expected.length; i++) {
+                assertArrayEquals(expected[i], first[i], 1e-6, "Row " + i + " of the first result should match");
+                assertArrayEquals(expected[i], second[i], 1e-6, "Row " + i + " of the second result should match");
+            }
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void testOperandMatricesAreNotRecycled() {
+        double[][] a = sequentialMatrix(64, 64, 4);
+        ComputationNode leaf = new ComputationNode(a);
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(2);
+        engine.run(operator("-", operator("*", leaf, new ComputationNode(a))));
+        assertSame(a, leaf.getMatrix(), "The caller's operands must stay untouched");
+        assertEquals(2 * 64 * 64, engine.getMatrixPool().getPooledElements(),
+                "Only the product and the packing buffer should be pooled");
+    }
+
+    @Test
+    public void testMatrixRootIsReturnedAsIs() {
+        double[][] a = sequentialMatrix(3, 2, 5);
+        ComputationNode root = new LinearAlgebraEngine(2).run(new ComputationNode(a));
+        assertSame(a, root.getMatrix());
+    }
+
+    @Test
+    public void testCancelledTransposesGiveTheOperand() {
+        double[][] a = sequentialMatrix(3, 2, 6);
+        ComputationNode root = new LinearAlgebraEngine(2).run(
+                operator("T", operator("T", new ComputationNode(a))));
+        double[][] result = root.getMatrix();
+        assertEquals(3, result.length);
+        for (int i = 0; i < a.length; i++) {
+            assertArrayEquals(a[i], result[i], "Row " + i + " should match");
+        }
+    }
+
+    @Test
+    public void testFailedProductsGiveTheTargetBack() {
+        double[][] a = sequentialMatrix(64, 64, 7);
+        double[][] ragged = sequentialMatrix(64, 64, 8);
+        ragged[5] = new double[63];
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(2);
+        assertThrows(IllegalArgumentException.class,
+                () -> engine.run(operator("*", new ComputationNode(a), new ComputationNode(ragged))));
+        assertEquals(64 * 64, engine.getMatrixPool().getPooledElements(),
+                "The product buffer of a failed multiply should be back in the pool");
+
+        System.setProperty(StrassenMultiplier.MIN_SIZE_PROPERTY, "64");
+        System.setProperty(StrassenMultiplier.LEAF_SIZE_PROPERTY, "16");
+        LinearAlgebraEngine strassenEngine;
+        try {
+            strassenEngine = new LinearAlgebraEngine(2);
+        } finally {
+            System.clearProperty(StrassenMultiplier.MIN_SIZE_PROPERTY);
+            System.clearProperty(StrassenMultiplier.LEAF_SIZE_PROPERTY);
+        }
+        assertThrows(RuntimeException.class,
+                () -> strassenEngine.run(operator("*", new ComputationNode(a), new ComputationNode(ragged))));
+        assertTrue(strassenEngine.getMatrixPool().getPooledElements() >= 64 * 64,
+                "The product buffer of a failed Strassen multiply should be back in the pool");
+    }
+}
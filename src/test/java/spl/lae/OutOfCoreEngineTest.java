@@ -0,0 +1,181 @@
+package spl.lae;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import memory.ScratchSpace;
+import memory.TiledMatrix;
+import parser.BinaryMatrixIO;
+import parser.ComputationNode;
+import parser.InputParser;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class OutOfCoreEngineTest {
+
+    private static double[][] matrix(int rows, int cols, int seed) {
+        double[][] matrix = new double[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                matrix[i][j] = (i * cols + j + seed) % 7 - 3;
+            }
+        }
+        return matrix;
+    }
+
+    // (A + B^T) * -C
+    private static ComputationNode expression() {
+        ComputationNode sum = new ComputationNode("+", new ArrayList<>(List.of(
+                new ComputationNode(matrix(5, 6, 1)),
+                new ComputationNode("T", new ArrayList<>(List.of(new ComputationNode(matrix(6, 5, 2))))))));
+        ComputationNode negated = new ComputationNode("-", new ArrayList<>(List.of(
+                new ComputationNode(matrix(6, 4, 3)))));
+        return new ComputationNode("*", new ArrayList<>(List.of(sum, negated)));
+    }
+
+    // Every result of at least one element spills, into 2 x 2 tiles
+    private static LinearAlgebraEngine spillingEngine(Path dir) {
+        System.setProperty(ScratchSpace.DIRECTORY_PROPERTY, dir.toString());
+        System.setProperty(ScratchSpace.THRESHOLD_PROPERTY, "1");
+        System.setProperty(ScratchSpace.TILE_SIZE_PROPERTY, "2");
+        try {
+            return new LinearAlgebraEngine(3);
+        } finally {
+            System.clearProperty(ScratchSpace.DIRECTORY_PROPERTY);
+            System.clearProperty(ScratchSpace.THRESHOLD_PROPERTY);
+            System.clearProperty(ScratchSpace.TILE_SIZE_PROPERTY);
+        }
+    }
+
+    private static long countFiles(Path dir) throws Exception {
+        try (var files = Files.list(dir)) {
+            return files.count();
+        }
+    }
+
+    private static void deleteDirectory(Path dir) throws Exception {
+        try (var files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    @Test
+    public void testSpilledResultMatchesInMemoryResult() throws Exception {
+        Path dir = Files.createTempDirectory("scratch");
+        try {
+            double[][] expected = new LinearAlgebraEngine(2).run(expression()).getMatrix();
+            ComputationNode root = spillingEngine(dir).run(expression());
+            assertTrue(root.isTiled(), "The result should stay in a scratch file");
+            double[][] result = root.getMatrix();
+            assertEquals(expected.length, result.length);
+            for (int i = 0; i < expected.length; i++) {
+                assertArrayEquals(expected[i], result[i], 1e-9, "Row " + i + " should match");
+            }
+            root.getTiledMatrix().close();
+            try (var files = Files.list(dir)) {
+                assertEquals(0, files.count(), "Every scratch file should be deleted");
+            }
+        } finally {
+            deleteDirectory(dir);
+        }
+    }
+
+    @Test
+    public void testLargeBinaryInputIsLoadedTiled() throws Exception {
+        Path dir = Files.createTempDirectory("scratch");
+        try {
+            double[][] a = matrix(5, 3, 4);
+            Path input = dir.resolve("a" + BinaryMatrixIO.FILE_EXTENSION);
+            Path json = dir.resolve("input.json");
+            Path output = dir.resolve("out" + BinaryMatrixIO.FILE_EXTENSION);
+            BinaryMatrixIO.write(a, input.toString());
+            Files.writeString(json, "{\"operator\": \"-\", \"operands\": [{\"file\": \"" + input.getFileName() + "\"}]}");
+
+            LinearAlgebraEngine engine = spillingEngine(dir);
+            ComputationNode parsed = new InputParser(true, 0.05, engine.getScratchSpace()).parse(json.toString());
+            assertTrue(parsed.getChildren().get(0).isTiled(), "The operand should be loaded into a scratch file");
+
+            ComputationNode root = engine.run(parsed);
+            try (TiledMatrix result = root.getTiledMatrix()) {
+                BinaryMatrixIO.write(result, output.toString());
+            }
+            double[][] written = BinaryMatrixIO.loadRowMajor(output.toString());
+            for (int i = 0; i < a.length; i++) {
+                for (int j = 0; j < a[0].length; j++) {
+                    assertEquals(-a[i][j], written[i][j], "Element (" + i + ", " + j + ")");
+                }
+            }
+        } finally {
+            deleteDirectory(dir);
+        }
+    }
+
+    @Test
+    public void testSharedAndFailedIntermediatesAreDeleted() throws Exception {
+        Path dir = Files.createTempDirectory("scratch");
+        try {
+            LinearAlgebraEngine engine = spillingEngine(dir);
+            try {
+                // A + B is shared by both operands of the product
+                double[][] a = matrix(4, 4, 5);
+                double[][] b = matrix(4, 4, 6);
+                ComputationNode first = new ComputationNode("+", new ArrayList<>(List.of(
+                        new ComputationNode(a), new ComputationNode(b))));
+                ComputationNode second = new ComputationNode("+", new ArrayList<>(List.of(
+                        new ComputationNode(a), new ComputationNode(b))));
+                ComputationNode root = engine.evaluate(new ComputationNode("*", new ArrayList<>(List.of(first, second))));
+                assertEquals(1, countFiles(dir), "Only the result should keep its scratch file");
+                root.getTiledMatrix().close();
+
+                // T(A) is 6 x 5, so T(A) * -B fails after both operands were computed out of core
+                ComputationNode mismatched = new ComputationNode("*", new ArrayList<>(List.of(
+                        new ComputationNode("T", new ArrayList<>(List.of(new ComputationNode(matrix(5, 6, 1))))),
+                        new ComputationNode("-", new ArrayList<>(List.of(new ComputationNode(matrix(6, 4, 2))))))));
+                assertThrows(IllegalArgumentException.class, () -> engine.evaluate(mismatched));
+                assertEquals(0, countFiles(dir), "A failed evaluation should delete every scratch file");
+            } finally {
+                engine.shutdown();
+            }
+        } finally {
+            deleteDirectory(dir);
+        }
+    }
+
+    @Test
+    public void testServerStreamsAndDeletesTiledResults() throws Exception {
+        Path dir = Files.createTempDirectory("scratch");
+        Path work = Files.createTempDirectory("server");
+        try {
+            double[][] a = matrix(5, 3, 7);
+            Path input = work.resolve("a" + BinaryMatrixIO.FILE_EXTENSION);
+            Path json = work.resolve("input.json");
+            Path output = work.resolve("out" + BinaryMatrixIO.FILE_EXTENSION);
+            BinaryMatrixIO.write(a, input.toString());
+            Files.writeString(json, "{\"operator\": \"T\", \"operands\": [{\"file\": \"" + input.getFileName() + "\"}]}");
+
+            LinearAlgebraEngine engine = spillingEngine(dir);
+            try {
+                EngineServer.Outcome outcome = new EngineServer(engine).process(json.toString(), output.toString());
+                assertNull(outcome.getError());
+            } finally {
+                engine.shutdown();
+            }
+            assertEquals(0, countFiles(dir), "The server should delete the scratch files of every request");
+            double[][] written = BinaryMatrixIO.loadRowMajor(output.toString());
+            for (int i = 0; i < a.length; i++) {
+                for (int j = 0; j < a[0].length; j++) {
+                    assertEquals(a[i][j], written[j][i], "Element (" + j + ", " + i + ")");
+                }
+            }
+        } finally {
+            deleteDirectory(dir);
+            deleteDirectory(work);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package spl.lae;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import parser.ComputationNode;
+import scheduling.DispatchMode;
+
+import java.util.List;
+
+public class ResultCacheTest {
+
+    private static ExpressionKey keyOf(double value) {
+        return ExpressionKey.ofMatrix(new double[][] { { value } });
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        ResultCache cache = new ResultCache(8);
+        cache.put(keyOf(1), new double[][] { { 1, 1 }, { 1, 1 } });
+        cache.put(keyOf(2), new double[][] { { 2, 2 }, { 2, 2 } });
+        assertNotNull(cache.get(keyOf(1)), "Reading an entry should make it most recently used");
+        cache.put(keyOf(3), new double[][] { { 3, 3 }, { 3, 3 } });
+
+        assertTrue(cache.contains(keyOf(1)));
+        assertFalse(cache.contains(keyOf(2)), "The least recently used entry should be evicted");
+        assertTrue(cache.contains(keyOf(3)));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testOversizedResultIsNotCached() {
+        ResultCache cache = new ResultCache(3);
+        cache.put(keyOf(1), new double[][] { { 1, 1 }, { 1, 1 } });
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testCachedMatrixIsCopied() {
+        ResultCache cache = new ResultCache(100);
+        double[][] matrix = { { 1, 2 } };
+        cache.put(keyOf(1), matrix);
+        matrix[0][0] = 99;
+        double[][] cached = cache.get(keyOf(1));
+        assertEquals(1, cached[0][0], "Changing the original should not affect the cache");
+        cached[0][1] = 99;
+        assertEquals(2, cache.get(keyOf(1))[0][1], "Changing a returned copy should not affect the cache");
+    }
+
+    @Test
+    public void testCacheIsReusedAcrossRuns() {
+        ResultCache cache = new ResultCache(1000);
+        double[][] a = { { 1, 2 }, { 3, 4 } };
+        double[][] b = { { 2, 0 }, { 1, 2 } };
+
+        ComputationNode first = new ComputationNode("*", List.of(new ComputationNode(a), new ComputationNode(b)));
+        new LinearAlgebraEngine(2, DispatchMode.HANDOFF, cache).run(first);
+        assertEquals(1, cache.size());
+
+        // -(A * B) in a fresh tree, on a fresh engine: the product comes from the cache
+        ComputationNode second = new ComputationNode("-", List.of(
+                new ComputationNode("*", List.of(new ComputationNode(a), new ComputationNode(b)))));
+        double[][] result = new LinearAlgebraEngine(2, DispatchMode.HANDOFF, cache).run(second).getMatrix();
+
+        assertEquals(1, cache.getHits());
+        assertArrayEquals(new double[] { -4, -4 }, result[0]);
+        assertArrayEquals(new double[] { -10, -8 }, result[1]);
+        assertEquals(2, cache.size(), "The negation should be cached as well");
+    }
+}
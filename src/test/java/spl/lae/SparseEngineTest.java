@@ -0,0 +1,147 @@
+package spl.lae;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import memory.SparseMatrix;
+import parser.ComputationNode;
+import parser.InputParser;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SparseEngineTest {
+
+    // A band matrix: the diagonal and the element to its right, about 5% of a 40x40 matrix
+    private static String bandMatrix(int size) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            json.append(i == 0 ? "[" : ",[");
+            for (int j = 0; j < size; j++) {
+                json.append(j == 0 ? "" : ",").append(j == i ? i + 1 : j == i + 1 ? -2 : 0);
+            }
+            json.append("]");
+        }
+        return json.append("]").toString();
+    }
+
+    private static String denseMatrix(int rows, int cols) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < rows; i++) {
+            json.append(i == 0 ? "[" : ",[");
+            for (int j = 0; j < cols; j++) {
+                json.append(j == 0 ? "" : ",").append((i * cols + j) % 5 + 1);
+            }
+            json.append("]");
+        }
+        return json.append("]").toString();
+    }
+
+    private static double[][] evaluate(Path input, InputParser parser) throws Exception {
+        LinearAlgebraEngine engine = new LinearAlgebraEngine(3);
+        return engine.run(parser.parse(input.toString())).getMatrix();
+    }
+
+    @Test
+    public void testSparseOperandsGiveSameResultAsDense() throws Exception {
+        String s = bandMatrix(40);
+        String d = denseMatrix(40, 6);
+        // (S * S + -(S^T)) * D + S * D, with S sparse and D dense
+        String json = "{\"operator\": \"+\", \"operands\": ["
+                + "{\"operator\": \"*\", \"operands\": [{\"operator\": \"+\", \"operands\": ["
+                + "{\"operator\": \"*\", \"operands\": [" + s + "," + s + "]},"
+                + "{\"operator\": \"-\", \"operands\": [{\"operator\": \"T\", \"operands\": [" + s + "]}]}]},"
+                + d + "]},"
+                + "{\"operator\": \"*\", \"operands\": [" + s + "," + d + "]}]}";
+        Path input = Files.createTempFile("sparse", ".json");
+        try {
+            Files.writeString(input, json);
+            ComputationNode parsed = new InputParser(true, SparseMatrix.DEFAULT_DENSITY_THRESHOLD).parse(input.toString());
+            assertTrue(parsed.getChildren().get(1).getChildren().get(0).isSparse(), "S should be parsed as sparse");
+            assertFalse(parsed.getChildren().get(1).getChildren().get(1).isSparse(), "D should stay dense");
+
+            double[][] sparseResult = evaluate(input, new InputParser(true, SparseMatrix.DEFAULT_DENSITY_THRESHOLD));
+            double[][] denseResult = evaluate(input, new InputParser(true, 0));
+            assertEquals(40, sparseResult.length);
+            for (int i = 0; i < denseResult.length; i++) {
+                assertArrayEquals(denseResult[i], sparseResult[i], 1e-9, "Row " + i + " should match");
+            }
+        } finally {
+            Files.deleteIfExists(input);
+        }
+    }
+
+    @Test
+    public void testSparseChainStaysSparse() {
+        double[][] identity = new double[30][30];
+        for (int i = 0; i < 30; i++) {
+            identity[i][i] = 1;
+        }
+        ComputationNode sparse = new ComputationNode(SparseMatrix.fromDense(identity));
+        ComputationNode root = new ComputationNode("-", new ArrayList<>(List.of(
+                new ComputationNode("T", new ArrayList<>(List.of(sparse))))));
+        new LinearAlgebraEngine(2).run(root);
+        assertTrue(root.isSparse(), "-(I^T) should never be expanded");
+        assertEquals(-1, root.getMatrix()[4][4]);
+        assertEquals(30, root.getSparseMatrix().getNonZeroCount());
+    }
+
+    @Test
+    public void testNegatedSumOfOverlappingSparseOperands() throws Exception {
+        StringBuilder diagonal = new StringBuilder("[");
+        for (int i = 0; i < 40; i++) {
+            diagonal.append(i == 0 ? "[" : ",[");
+            for (int j = 0; j < 40; j++) {
+                diagonal.append(j == 0 ? "" : ",").append(j == i ? 3 : 0);
+            }
+            diagonal.append("]");
+        }
+        diagonal.append("]");
+        // -(X + Y), where X and Y share their diagonal
+        String json = "{\"operator\": \"-\", \"operands\": [{\"operator\": \"+\", \"operands\": ["
+                + bandMatrix(40) + "," + diagonal + "]}]}";
+        Path input = Files.createTempFile("sparse", ".json");
+        try {
+            Files.writeString(input, json);
+            double[][] sparseResult = evaluate(input, new InputParser(true, SparseMatrix.DEFAULT_DENSITY_THRESHOLD));
+            double[][] denseResult = evaluate(input, new InputParser(true, 0));
+            for (int i = 0; i < denseResult.length; i++) {
+                assertArrayEquals(denseResult[i], sparseResult[i], 1e-9, "Row " + i + " should match");
+            }
+            assertEquals(-(5 + 3), sparseResult[4][4]);
+        } finally {
+            Files.deleteIfExists(input);
+        }
+    }
+
+    @Test
+    public void testSparseStorageIsOptIn() throws Exception {
+        // -Z on an all-zero operand: -0.0 on the dense path, 0.0 once Z is stored sparse
+        String json = "{\"operator\": \"-\", \"operands\": [[[0, 0], [0, 0]]]}";
+        Path input = Files.createTempFile("sparse", ".json");
+        try {
+            Files.writeString(input, json);
+            assertFalse(new InputParser(true).parse(input.toString()).getChildren().get(0).isSparse(),
+                    "Matrices should stay dense unless sparse storage is asked for");
+            assertEquals(-0.0, evaluate(input, new InputParser(true))[0][0]);
+            assertEquals(0.0, evaluate(input, new InputParser(true, SparseMatrix.DEFAULT_DENSITY_THRESHOLD))[0][0]);
+        } finally {
+            Files.deleteIfExists(input);
+        }
+    }
+
+    @Test
+    public void testSparseThresholdProperty() {
+        try {
+            assertEquals(0, InputParser.sparseThresholdFromProperties());
+            System.setProperty(InputParser.SPARSE_THRESHOLD_PROPERTY, "0.05");
+            assertEquals(0.05, InputParser.sparseThresholdFromProperties());
+            System.setProperty(InputParser.SPARSE_THRESHOLD_PROPERTY, "2");
+            assertEquals(0, InputParser.sparseThresholdFromProperties(), "Out of range values are ignored");
+        } finally {
+            System.clearProperty(InputParser.SPARSE_THRESHOLD_PROPERTY);
+        }
+    }
+}
@@ -6,6 +6,9 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import parser.*;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class SystemTest {
 
     private LinearAlgebraEngine engine;
@@ -30,6 +33,19 @@ public class SystemTest {
         assertNotNull(computationRoot);
         System.out.println("Parsing successful");
 
+        // The 10x10 example is too small to be worth spreading over every worker, so the engine
+        // first computes a product large enough that every worker gets a share of it
+        System.out.println("Step 2b: Running a 300x300 product on the same engine...");
+        double[][] large = new double[300][300];
+        for (int i = 0; i < 300; i++) {
+            for (int j = 0; j < 300; j++) {
+                large[i][j] = (i + j) % 5;
+            }
+        }
+        ComputationNode product = new ComputationNode("*", List.of(
+                new ComputationNode(large), new ComputationNode(large)));
+        assertEquals(300, engine.evaluate(product).getMatrix().length);
+
         System.out.println("Step 3: Running computation...");
         System.out.println("This computes: ((A + T(B)) * C * -D), Where A, B, C, D are 10x10 matrices");
         long startTime = System.currentTimeMillis();
@@ -151,7 +167,7 @@ public class SystemTest {
         double[][] d = { { 2, 0 }, { 1, 2 } };
         ComputationNode cNode = new ComputationNode(c);
         ComputationNode dNode = new ComputationNode(d);
-        ComputationNode multNode = new ComputationNode("*", java.util.List.of(cNode, dNode));
+        ComputationNode multNode = new ComputationNode("*", List.of(cNode, dNode));
 
         LinearAlgebraEngine simpleEngine = new LinearAlgebraEngine(2);
         ComputationNode multResult = simpleEngine.run(multNode);
@@ -203,4 +219,54 @@ public class SystemTest {
         assertEquals(6, transMatrix[2][1]);
         System.out.println("Transpose operation correct");
     }
+
+    @Test
+    public void testIndependentSubtrees() {
+        System.out.println("Testing independent subtrees...");
+        double[][] a = { { 1, 2 }, { 3, 4 } };
+        double[][] b = { { 1, 1 }, { 1, 1 } };
+        double[][] c = { { 2, 0 }, { 0, 2 } };
+        double[][] d = { { 1, 2 }, { 3, 4 } };
+        // (A + B + C) * -(D)
+        ComputationNode sumNode = new ComputationNode("+", new ArrayList<>(List.of(
+                new ComputationNode(a), new ComputationNode(b), new ComputationNode(c))));
+        ComputationNode negNode = new ComputationNode("-", List.of(new ComputationNode(d)));
+        ComputationNode multNode = new ComputationNode("*", List.of(sumNode, negNode));
+
+        LinearAlgebraEngine simpleEngine = new LinearAlgebraEngine(2);
+        double[][] result = simpleEngine.run(multNode).getMatrix();
+
+        // A + B + C = {{4, 3}, {4, 7}}
+        assertEquals(-13, result[0][0]);
+        assertEquals(-20, result[0][1]);
+        assertEquals(-25, result[1][0]);
+        assertEquals(-36, result[1][1]);
+        System.out.println("Independent subtrees correct");
+    }
+
+    @Test
+    public void testFusedElementwiseChain() {
+        System.out.println("Testing fused elementwise chain...");
+        double[][] a = { { 1, 2 }, { 3, 4 } };
+        double[][] b = { { 1, 0 }, { 0, 1 } };
+        double[][] c = { { 2, 0 }, { 0, 2 } };
+        // -(T(A) + -(B * C))
+        ComputationNode transNode = new ComputationNode("T", List.of(new ComputationNode(a)));
+        ComputationNode multNode = new ComputationNode("*", List.of(new ComputationNode(b),
+                new ComputationNode(c)));
+        ComputationNode negProduct = new ComputationNode("-", List.of(multNode));
+        ComputationNode sumNode = new ComputationNode("+", List.of(transNode, negProduct));
+        ComputationNode root = new ComputationNode("-", List.of(sumNode));
+
+        LinearAlgebraEngine simpleEngine = new LinearAlgebraEngine(2);
+        double[][] result = simpleEngine.run(root).getMatrix();
+
+        // T(A) = {{1, 3}, {2, 4}}, B * C = {{2, 0}, {0, 2}}
+        assertEquals(1, result[0][0]);
+        assertEquals(-3, result[0][1]);
+        assertEquals(-2, result[1][0]);
+        assertEquals(-2, result[1][1]);
+        assertEquals(2, a[0][1], "Operands should not be modified");
+        System.out.println("Fused elementwise chain correct");
+    }
 }